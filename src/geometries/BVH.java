@@ -0,0 +1,303 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bounding volume hierarchy (BVH) - a collection of geometries that is queried through
+ * a binary tree of bounding boxes.
+ * <p>
+ * It accepts the same {@link #add(Intersectable...)} calls as {@link Geometries} and can
+ * replace it anywhere (e.g. as the scene's geometries). The tree is built lazily on the first
+ * query after the geometries have changed (including geometries added later to a nested
+ * collection), using the surface area heuristic (SAH) over the bounding boxes of the
+ * geometries. A ray then visits only the nodes whose boxes it passes through. Unbounded
+ * geometries (planes, tubes) are kept out of the tree and are tested for every ray.
+ * <p>
+ * The tree is stored flat in primitive arrays (see {@link BvhBuilder}): the boxes of the
+ * nodes in one {@code double[]} and their links in one {@code int[]}, in depth-first order
+ * with the first child right after its parent. The traversal walks the arrays with a small
+ * stack of node indices, without any object per node.
+ * <p>
+ * A packet of coherent rays ({@link #calculateClosestIntersections(Ray[], int, Intersection[])})
+ * traverses the tree together (see {@link RayPacket}), so a node is fetched once for the packet
+ * and the nodes that no ray of the packet hits are mostly rejected by a single test.
+ * <p>
+ * For large scenes the tree may be built in advance and in parallel by {@link #build(ForkJoinPool)}.
+ */
+public class BVH extends BoxHierarchy<BvhBuilder.Tree> {
+    /**
+     * Constructs an empty hierarchy
+     */
+    public BVH() {}
+
+    /**
+     * Constructs a hierarchy containing the given geometries.
+     *
+     * @param geometries the geometries to add
+     */
+    public BVH(Intersectable... geometries) {
+        super(geometries);
+    }
+
+    @Override
+    protected BvhBuilder.Tree layout(BvhBuilder.Tree built) {
+        return built;
+    }
+
+    @Override
+    public BVH build(ForkJoinPool pool) {
+        super.build(pool);
+        return this;
+    }
+
+    /**
+     * Calculates the distance along a ray to the point where it enters the box of a node (slab test).
+     * It is shared by all the hierarchies stored in the layout of {@link BvhBuilder}.
+     *
+     * @param bounds      the boxes of the nodes
+     * @param node        the node index
+     * @param ray         the ray
+     * @param maxDistance maximal distance along the ray
+     * @return the entry distance (0 if the ray head is inside the box), or
+     *         {@link Double#POSITIVE_INFINITY} if the ray does not pass through the box within the distance
+     */
+    static double entry(double[] bounds, int node, Ray ray, double maxDistance) {
+        int b = 6 * node;
+        double tMin = 0;
+        double tMax = maxDistance;
+        // the sign bits of the ray select the near and the far bound of each slab
+        double t0 = (bounds[b + 3 * ray.signX] - ray.ox) * ray.ix;
+        double t1 = (bounds[b + 3 - 3 * ray.signX] - ray.ox) * ray.ix;
+        // NaN (when the head is on a slab border of a parallel ray) fails the comparisons - it is ignored
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+        t0 = (bounds[b + 1 + 3 * ray.signY] - ray.oy) * ray.iy;
+        t1 = (bounds[b + 4 - 3 * ray.signY] - ray.oy) * ray.iy;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+        t0 = (bounds[b + 2 + 3 * ray.signZ] - ray.oz) * ray.iz;
+        t1 = (bounds[b + 5 - 3 * ray.signZ] - ray.oz) * ray.iz;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        return tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        Tree<BvhBuilder.Tree> t = tree();
+        List<Intersection> intersections = null;
+        for (Intersectable geometry : t.unbounded())
+            intersections = collect(intersections, geometry.calculateIntersections(ray, maxDistance));
+        if (t.layout() == null) return intersections;
+
+        double[] bounds = t.layout().bounds();
+        int[] nodes = t.layout().nodes();
+        int[] stack = new int[STACK_SIZE];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entry(bounds, node, ray, maxDistance) == Double.POSITIVE_INFINITY) continue;
+            int link = nodes[2 * node];
+            int count = nodes[2 * node + 1];
+            if (count > 0) {
+                for (int i = link; i < link + count; ++i)
+                    intersections = collect(intersections, t.objects()[i].calculateIntersections(ray, maxDistance));
+                continue;
+            }
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = link;
+            stack[top++] = node + 1;
+        }
+        return intersections;
+    }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        Tree<BvhBuilder.Tree> t = tree();
+        double closest = Double.POSITIVE_INFINITY;
+        for (Intersectable geometry : t.unbounded()) {
+            double distance = geometry.calculateClosestDistanceHelper(ray, maxDistance, hit);
+            if (distance != Double.POSITIVE_INFINITY) {
+                closest = distance;
+                maxDistance = distance;
+            }
+        }
+        if (t.layout() == null) return closest;
+
+        double[] bounds = t.layout().bounds();
+        int[] nodes = t.layout().nodes();
+
+        // Front-to-back traversal: the nearer child is visited first and nodes entered
+        // beyond the closest hit found so far are skipped
+        int[] stack = new int[STACK_SIZE];
+        double[] entries = new double[STACK_SIZE];
+        int top = 0;
+        double rootEntry = entry(bounds, 0, ray, maxDistance);
+        if (rootEntry == Double.POSITIVE_INFINITY) return closest;
+        stack[0] = 0;
+        entries[0] = rootEntry;
+        ++top;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entries[top] >= maxDistance) continue;
+            int link = nodes[2 * node];
+            int count = nodes[2 * node + 1];
+            if (count > 0) {
+                for (int i = link; i < link + count; ++i) {
+                    double distance = t.objects()[i].calculateClosestDistanceHelper(ray, maxDistance, hit);
+                    if (distance != Double.POSITIVE_INFINITY) {
+                        closest = distance;
+                        maxDistance = distance;
+                    }
+                }
+                continue;
+            }
+            double first = entry(bounds, node + 1, ray, maxDistance);
+            double second = entry(bounds, link, ray, maxDistance);
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            // push the farther child first so that the nearer one is popped first
+            boolean firstNear = first <= second;
+            double farEntry = firstNear ? second : first;
+            double nearEntry = firstNear ? first : second;
+            if (farEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = firstNear ? link : node + 1;
+                entries[top++] = farEntry;
+            }
+            if (nearEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = firstNear ? node + 1 : link;
+                entries[top++] = nearEntry;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected void calculateClosestDistancesHelper(Ray[] rays, int count, double[] distances, Hit[] hits) {
+        Tree<BvhBuilder.Tree> t = tree();
+        for (Intersectable geometry : t.unbounded())
+            geometry.calculateClosestDistancesHelper(rays, count, distances, hits);
+        if (t.layout() == null || count == 0) return;
+
+        double[] bounds = t.layout().bounds();
+        int[] nodes = t.layout().nodes();
+        RayPacket packet = new RayPacket(rays, count, distances);
+        int first = packet.first(bounds, 0, 0);
+        if (first == count) return;
+
+        // Ranged traversal: a node is pushed with the first ray of the packet that enters it
+        // (and its entry distance), the nearer child of the first ray is visited first
+        int[] stack = new int[STACK_SIZE];
+        int[] firsts = new int[STACK_SIZE];
+        double[] entries = new double[STACK_SIZE];
+        int top = 0;
+        stack[0] = 0;
+        firsts[0] = first;
+        entries[0] = packet.entry;
+        ++top;
+        while (top > 0) {
+            int node = stack[--top];
+            first = firsts[top];
+            // the first ray has found a hit before the node since it was pushed
+            if (entries[top] >= distances[first]) {
+                first = packet.first(bounds, node, first + 1);
+                if (first == count) continue;
+            }
+            int link = nodes[2 * node];
+            int leafCount = nodes[2 * node + 1];
+            if (leafCount > 0) {
+                for (int r = first; r < count; ++r) {
+                    if (r > first && entry(bounds, node, rays[r], distances[r]) == Double.POSITIVE_INFINITY)
+                        continue;
+                    for (int i = link; i < link + leafCount; ++i) {
+                        double distance = t.objects()[i].calculateClosestDistanceHelper(rays[r], distances[r], hits[r]);
+                        if (distance != Double.POSITIVE_INFINITY) distances[r] = distance;
+                    }
+                }
+                packet.update();
+                continue;
+            }
+            int firstA = packet.first(bounds, node + 1, first);
+            double entryA = packet.entry;
+            int firstB = packet.first(bounds, link, first);
+            double entryB = packet.entry;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                firsts = Arrays.copyOf(firsts, firsts.length * 2);
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            // push the child the first ray enters later (or not at all) first
+            boolean aNear = firstA < firstB || firstA == firstB && entryA <= entryB;
+            if (aNear ? firstB < count : firstA < count) {
+                stack[top] = aNear ? link : node + 1;
+                firsts[top] = aNear ? firstB : firstA;
+                entries[top++] = aNear ? entryB : entryA;
+            }
+            if (aNear ? firstA < count : firstB < count) {
+                stack[top] = aNear ? node + 1 : link;
+                firsts[top] = aNear ? firstA : firstB;
+                entries[top++] = aNear ? entryA : entryB;
+            }
+        }
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        Tree<BvhBuilder.Tree> t = tree();
+        for (Intersectable geometry : t.unbounded()) {
+            ktr = geometry.calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+            if (ktr.lowerThan(minK)) return Double3.ZERO;
+        }
+        if (t.layout() == null) return ktr;
+
+        double[] bounds = t.layout().bounds();
+        int[] nodes = t.layout().nodes();
+
+        // Any order of the nodes will do - the query stops at the first blocking hit
+        int[] stack = new int[STACK_SIZE];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entry(bounds, node, ray, maxDistance) == Double.POSITIVE_INFINITY) continue;
+            int link = nodes[2 * node];
+            int count = nodes[2 * node + 1];
+            if (count > 0) {
+                for (int i = link; i < link + count; ++i) {
+                    ktr = t.objects()[i].calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+                    if (ktr.lowerThan(minK)) return Double3.ZERO;
+                }
+                continue;
+            }
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = link;
+            stack[top++] = node + 1;
+        }
+        return ktr;
+    }
+
+    /**
+     * Appends intersections of a geometry to the collected intersections
+     *
+     * @param intersections the intersections collected so far (may be {@code null})
+     * @param found         the intersections to append (may be {@code null})
+     * @return the intersections collected so far (may be {@code null})
+     */
+    static List<Intersection> collect(List<Intersection> intersections, List<Intersection> found) {
+        if (found == null) return intersections;
+        if (intersections == null) intersections = new LinkedList<>();
+        intersections.addAll(found);
+        return intersections;
+    }
+}
@@ -0,0 +1,180 @@
+package geometries;
+
+import primitives.Ray;
+import primitives.Util;
+
+/**
+ * Intersection kernels testing one ray against a batch of boxes or triangles at once.
+ * <p>
+ * The batches are stored as planes of coordinates (structure of arrays): the same coordinate
+ * of the consecutive boxes or triangles is stored consecutively, so that a vector unit can load
+ * it for several of them by one instruction. The boxes of a batch are stored as 6 planes of
+ * {@code width} values (minX, minY, minZ, maxX, maxY, maxZ), the triangles as 9 planes (the first
+ * vertex and the two edges from it, as in {@link TriangleMesh}) of {@code stride} values.
+ * <p>
+ * This class is the scalar implementation. When the {@code jdk.incubator.vector} module is
+ * enabled ({@code --add-modules jdk.incubator.vector}), {@link #INSTANCE} is the implementation by
+ * the Vector API that tests as many boxes or triangles as the vector unit holds (4 on AVX2, 8 on
+ * AVX-512) by the same instructions. Both implementations give exactly the same results.
+ */
+class BatchKernels {
+    /** The kernels used by the geometries - the vector ones if the vector module is enabled */
+    static final BatchKernels INSTANCE = create();
+    /**
+     * Threshold of the squared determinant of a ray and a triangle relatively to the squared
+     * lengths of the triangle edges, under which the ray is parallel to the triangle plane - it
+     * does not depend on the scale of the triangle
+     */
+    static final double PARALLEL = 0x1p-80;
+
+    /**
+     * Creates the best kernels available
+     *
+     * @return the vector kernels if the vector module is enabled, the scalar ones otherwise
+     */
+    private static BatchKernels create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded by name, since the class cannot be linked without the module
+                return (BatchKernels) Class.forName("geometries.VectorBatchKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // the scalar kernels will do
+            }
+        }
+        return new BatchKernels();
+    }
+
+    /**
+     * Returns whether the kernels use the vector unit
+     *
+     * @return true for the kernels by the Vector API
+     */
+    boolean isVector() {
+        return false;
+    }
+
+    /**
+     * Calculates the distances along a ray to the points where it enters a batch of boxes (slab test)
+     *
+     * @param boxes       the boxes, 6 planes of {@code width} values from the offset
+     * @param offset      the offset of the batch in the array
+     * @param width       the amount of the values of a plane
+     * @param count       the amount of the boxes to test (not above the width)
+     * @param ray         the ray
+     * @param maxDistance maximal distance along the ray
+     * @param entries     the array for the entry distances (0 if the ray head is inside the box),
+     *                    {@link Double#POSITIVE_INFINITY} for the boxes the ray does not pass through
+     *                    within the distance
+     */
+    void boxes(double[] boxes, int offset, int width, int count, Ray ray, double maxDistance, double[] entries) {
+        int nearX = offset + 3 * width * ray.signX, farX = offset + 3 * width * (1 - ray.signX);
+        int nearY = offset + width + 3 * width * ray.signY, farY = offset + width + 3 * width * (1 - ray.signY);
+        int nearZ = offset + 2 * width + 3 * width * ray.signZ;
+        int farZ = offset + 2 * width + 3 * width * (1 - ray.signZ);
+        for (int i = 0; i < count; ++i) {
+            double tMin = 0;
+            double tMax = maxDistance;
+            double t0 = (boxes[nearX + i] - ray.ox) * ray.ix;
+            double t1 = (boxes[farX + i] - ray.ox) * ray.ix;
+            // NaN (when the head is on a slab border of a parallel ray) fails the comparisons - it is ignored
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            t0 = (boxes[nearY + i] - ray.oy) * ray.iy;
+            t1 = (boxes[farY + i] - ray.oy) * ray.iy;
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            t0 = (boxes[nearZ + i] - ray.oz) * ray.iz;
+            t1 = (boxes[farZ + i] - ray.oz) * ray.iz;
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            entries[i] = tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Calculates the distances along a ray to the points where it enters the quantized child boxes
+     * of a node of a wide hierarchy (see {@link BvhBuilder.WideTree}), decoding the boxes on the fly
+     *
+     * @param frames      the quantization frames of the nodes, 6 values per node
+     * @param boxes       the quantized child boxes, 6 planes of {@code width} unsigned bytes per node
+     * @param node        the node index
+     * @param width       the maximal amount of children of a node
+     * @param count       the amount of the children of the node
+     * @param ray         the ray
+     * @param maxDistance maximal distance along the ray
+     * @param entries     the array for the entry distances, as in
+     *                    {@link #boxes(double[], int, int, int, Ray, double, double[])}
+     */
+    void quantizedBoxes(double[] frames, byte[] boxes, int node, int width, int count, Ray ray, double maxDistance,
+                        double[] entries) {
+        int f = 6 * node;
+        double originX = frames[f], originY = frames[f + 1], originZ = frames[f + 2];
+        double stepX = frames[f + 3], stepY = frames[f + 4], stepZ = frames[f + 5];
+        int offset = 6 * width * node;
+        int nearX = offset + 3 * width * ray.signX, farX = offset + 3 * width * (1 - ray.signX);
+        int nearY = offset + width + 3 * width * ray.signY, farY = offset + width + 3 * width * (1 - ray.signY);
+        int nearZ = offset + 2 * width + 3 * width * ray.signZ;
+        int farZ = offset + 2 * width + 3 * width * (1 - ray.signZ);
+        for (int i = 0; i < count; ++i) {
+            double tMin = 0;
+            double tMax = maxDistance;
+            double t0 = (originX + (boxes[nearX + i] & 0xFF) * stepX - ray.ox) * ray.ix;
+            double t1 = (originX + (boxes[farX + i] & 0xFF) * stepX - ray.ox) * ray.ix;
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            t0 = (originY + (boxes[nearY + i] & 0xFF) * stepY - ray.oy) * ray.iy;
+            t1 = (originY + (boxes[farY + i] & 0xFF) * stepY - ray.oy) * ray.iy;
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            t0 = (originZ + (boxes[nearZ + i] & 0xFF) * stepZ - ray.oz) * ray.iz;
+            t1 = (originZ + (boxes[farZ + i] & 0xFF) * stepZ - ray.oz) * ray.iz;
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            entries[i] = tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Intersects a ray with a batch of triangles (Möller–Trumbore algorithm). Hits on the edges
+     * of the triangles are reported.
+     *
+     * @param triangles   the triangles, 9 planes of {@code stride} values
+     * @param stride      the amount of the values of a plane
+     * @param begin       the index of the first triangle of the batch
+     * @param count       the amount of the triangles of the batch
+     * @param ray         the ray
+     * @param maxDistance the distance beyond which the intersections are ignored
+     * @param distances   the array for the distances to the intersections,
+     *                    {@link Double#POSITIVE_INFINITY} for the triangles without one
+     */
+    void triangles(double[] triangles, int stride, int begin, int count, Ray ray, double maxDistance,
+                   double[] distances) {
+        double dx = ray.dx, dy = ray.dy, dz = ray.dz;
+        for (int i = 0; i < count; ++i) {
+            int k = begin + i;
+            distances[i] = Double.POSITIVE_INFINITY;
+            double e1x = triangles[3 * stride + k], e1y = triangles[4 * stride + k], e1z = triangles[5 * stride + k];
+            double e2x = triangles[6 * stride + k], e2y = triangles[7 * stride + k], e2z = triangles[8 * stride + k];
+            double px = dy * e2z - dz * e2y;
+            double py = dz * e2x - dx * e2z;
+            double pz = dx * e2y - dy * e2x;
+            double det = e1x * px + e1y * py + e1z * pz;
+            // the ray is parallel to the triangle plane
+            double lengths = (e1x * e1x + e1y * e1y + e1z * e1z) * (e2x * e2x + e2y * e2y + e2z * e2z);
+            if (det * det <= PARALLEL * lengths) continue;
+            double inv = 1 / det;
+            double sx = ray.ox - triangles[k], sy = ray.oy - triangles[stride + k], sz = ray.oz - triangles[2 * stride + k];
+            double u = (sx * px + sy * py + sz * pz) * inv;
+            if (u < 0 || u > 1) continue;
+            double qx = sy * e1z - sz * e1y;
+            double qy = sz * e1x - sx * e1z;
+            double qz = sx * e1y - sy * e1x;
+            double v = (dx * qx + dy * qy + dz * qz) * inv;
+            if (v < 0 || u + v > 1) continue;
+            double t = Util.alignZero((e2x * qx + e2y * qy + e2z * qz) * inv);
+            if (t <= 0 || Util.alignZero(t - maxDistance) >= 0) continue;
+            distances[i] = t;
+        }
+    }
+}
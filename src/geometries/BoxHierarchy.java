@@ -0,0 +1,120 @@
+package geometries;
+
+import primitives.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The base of the bounding volume hierarchies ({@link BVH}, {@link WideBVH}) - a collection of
+ * geometries that is queried through a tree of bounding boxes.
+ * <p>
+ * It keeps the built tree and rebuilds it lazily on the first query after the geometries have
+ * changed, or in advance by {@link #build(ForkJoinPool)}. The tree is the binary SAH tree of
+ * {@link BvhBuilder} over the bounding boxes of the geometries, stored in the layout of the
+ * subclass (see {@link #layout(BvhBuilder.Tree)}); the unbounded geometries are kept out of it.
+ *
+ * @param <L> the type of the layout of the tree
+ */
+abstract class BoxHierarchy<L> extends Geometries {
+    /** Initial size of the traversal stack (it grows for unusually deep trees) */
+    protected static final int STACK_SIZE = 64;
+
+    /**
+     * The built hierarchy
+     *
+     * @param layout    the tree in the layout of the subclass ({@code null} if there are no bounded geometries)
+     * @param bounds    the box of the root (6 values)
+     * @param objects   the bounded geometries in the order of the leaves
+     * @param unbounded the geometries without bounding box
+     * @param <L>       the type of the layout
+     */
+    protected record Tree<L>(L layout, double[] bounds, Intersectable[] objects, Intersectable[] unbounded) {
+    }
+
+    /** The current hierarchy, {@code null} if it must be (re)built */
+    private volatile Tree<L> tree = null;
+
+    /**
+     * Constructs a hierarchy containing the given geometries.
+     *
+     * @param geometries the geometries to add
+     */
+    protected BoxHierarchy(Intersectable... geometries) {
+        super(geometries);
+    }
+
+    /**
+     * Converts the binary tree built over the geometries into the layout of the hierarchy
+     *
+     * @param built the binary tree
+     * @return the tree in the layout
+     */
+    protected abstract L layout(BvhBuilder.Tree built);
+
+    @Override
+    protected void invalidateBounds() {
+        tree = null;
+        super.invalidateBounds();
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        Tree<L> t = tree();
+        if (t.unbounded.length > 0 || t.layout == null) return null;
+        double[] b = t.bounds;
+        return new BoundingBox(b[0], b[1], b[2], b[3], b[4], b[5]);
+    }
+
+    /**
+     * Returns the hierarchy, building it first if it is out of date
+     *
+     * @return the hierarchy
+     */
+    protected final Tree<L> tree() {
+        Tree<L> t = tree;
+        if (t == null)
+            synchronized (this) {
+                t = tree;
+                if (t == null) tree = t = createTree(null);
+            }
+        return t;
+    }
+
+    /**
+     * Builds the hierarchy over the current geometries in advance, instead of on the first query.
+     * The build runs on the given pool in parallel.
+     *
+     * @param pool the pool to build on, {@code null} for a sequential build
+     * @return the hierarchy itself
+     */
+    public BoxHierarchy<L> build(ForkJoinPool pool) {
+        synchronized (this) {
+            tree = createTree(pool == null || pool.getParallelism() <= 1 ? null : pool);
+        }
+        return this;
+    }
+
+    /**
+     * Builds the hierarchy over the current geometries
+     *
+     * @param pool the pool for a parallel build, {@code null} for a sequential build
+     * @return the hierarchy
+     */
+    private Tree<L> createTree(ForkJoinPool pool) {
+        List<Intersectable> bounded = new ArrayList<>();
+        List<Intersectable> unbounded = new ArrayList<>();
+        BvhBuilder.flatten(this, bounded, unbounded);
+        Intersectable[] unboundedArray = unbounded.toArray(new Intersectable[0]);
+        int count = bounded.size();
+        if (count == 0) return new Tree<>(null, null, new Intersectable[0], unboundedArray);
+
+        BvhBuilder.Tree built = BvhBuilder.build(BvhBuilder.boxes(bounded), count, pool);
+        Intersectable[] objects = new Intersectable[count];
+        for (int i = 0; i < count; ++i)
+            objects[i] = bounded.get(built.order()[i]);
+        return new Tree<>(layout(built), Arrays.copyOf(built.bounds(), 6), objects, unboundedArray);
+    }
+}
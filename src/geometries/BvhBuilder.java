@@ -0,0 +1,652 @@
+package geometries;
+
+import primitives.BoundingBox;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Builder of bounding volume hierarchies using the binned surface area heuristic (SAH).
+ * <p>
+ * The builder works on primitive arrays only: the input is the flat array of the bounding
+ * boxes of the primitives, and the output is the tree flattened into parallel arrays in
+ * depth-first order - the first (near) child of an inner node immediately follows it.
+ * <ul>
+ * <li>{@code bounds} - 6 values per node: minX, minY, minZ, maxX, maxY, maxZ</li>
+ * <li>{@code nodes} - 2 values per node: for a leaf the offset of its first primitive in
+ * {@code order} and the amount of its primitives; for an inner node the index of its second
+ * child and {@code -1 - axis} of the split axis</li>
+ * <li>{@code order} - the primitive indices ordered so that the primitives of each leaf are
+ * consecutive</li>
+ * </ul>
+ * Given a {@link ForkJoinPool}, the build runs in parallel: on the top levels the bounds and
+ * the bins of a node are gathered by parallel reductions over its primitives, and below them
+ * the two subtrees of every large enough node are built by separate tasks. Every subtree is
+ * built into its own reserved range of node slots, and the tree is compacted at the end.
+ * <p>
+ * A built binary tree may be collapsed into a wide tree of 4 or 8 children per node by
+ * {@link #widen(Tree, int)}, with the child boxes quantized relatively to their parent box.
+ */
+final class BvhBuilder {
+    /** Amount of bins along the split axis */
+    private static final int BINS = 16;
+    /** Default cost of traversing an inner node relatively to intersecting one primitive */
+    static final double TRAVERSAL_COST = 0.5;
+    /** Maximal amount of primitives in a leaf */
+    static final int MAX_LEAF_SIZE = 8;
+    /** Minimal amount of primitives of a subtree for building it by a separate task */
+    private static final int SUBTREE_TASK_SIZE = 4096;
+    /** Amount of primitives reduced by one task when gathering bounds and bins in parallel */
+    private static final int REDUCE_CHUNK_SIZE = 32768;
+    /** Amount of values of a cell of gathered statistics: primitives count and a box */
+    private static final int CELL = 7;
+    /** Largest quantized coordinate of a child box (an unsigned byte) */
+    static final int LEVELS = 255;
+
+    /**
+     * The flattened tree
+     *
+     * @param bounds    node boxes, 6 values per node
+     * @param nodes     node links, 2 values per node
+     * @param order     primitive indices in leaf order
+     * @param nodeCount amount of nodes
+     */
+    record Tree(double[] bounds, int[] nodes, int[] order, int nodeCount) {
+    }
+
+    /**
+     * The wide tree collapsed from a binary one, in primitive arrays of {@code nodeCount} nodes,
+     * the root first.
+     * <ul>
+     * <li>{@code frames} - 6 values per node: the origin (x, y, z) and the quantization step (x, y, z)
+     * of its box, a child coordinate {@code q} standing for {@code origin + q * step}</li>
+     * <li>{@code boxes} - the quantized boxes of the children, unsigned bytes in 6 planes of
+     * {@code width} values per node (minX, minY, minZ, maxX, maxY, maxZ), rounded outwards</li>
+     * <li>{@code nodes} - {@code 1 + 2 * width} values per node: the amount of its children, then
+     * 2 values per child: for a leaf the offset of its first primitive in the order of the binary
+     * tree and the amount of its primitives, for an inner node its index and 0</li>
+     * </ul>
+     *
+     * @param frames    node quantization frames, 6 values per node
+     * @param boxes     quantized child boxes, {@code 6 * width} values per node
+     * @param nodes     child links, {@code 1 + 2 * width} values per node
+     * @param width     the maximal amount of children of a node
+     * @param nodeCount amount of nodes
+     */
+    record WideTree(double[] frames, byte[] boxes, int[] nodes, int width, int nodeCount) {
+    }
+
+    /**
+     * Gathering of statistics over a range of primitives into cells of
+     * {@value #CELL} values (count, minX, minY, minZ, maxX, maxY, maxZ)
+     */
+    @FunctionalInterface
+    private interface Gather {
+        /**
+         * Adds the statistics of a range of primitives to the cells
+         *
+         * @param begin first index of the range in {@link #order}
+         * @param end   index after the last one of the range
+         * @param cells the cells to add to
+         */
+        void gather(int begin, int end, double[] cells);
+    }
+
+    /** Primitive boxes, 6 values per primitive, reordered along with {@link #order} */
+    private final double[] boxes;
+    /** Primitive box centers, 3 values per primitive, reordered along with {@link #order} */
+    private final double[] centers;
+    /** Primitive indices, reordered during the build */
+    private final int[] order;
+    /** Node boxes being built, in reserved slots */
+    private final double[] bounds;
+    /** Node links being built, in reserved slots */
+    private final int[] nodes;
+    /** The pool of a parallel build, {@code null} for a sequential build */
+    private final ForkJoinPool pool;
+    /** Cost of traversing an inner node relatively to intersecting one primitive */
+    private final double traversalCost;
+    /** Per thread cells for gathering the bounds of a node without a parallel reduction */
+    private final ThreadLocal<double[]> boundsCells = ThreadLocal.withInitial(() -> new double[2 * CELL]);
+    /** Per thread cells for gathering the bins of a node without a parallel reduction */
+    private final ThreadLocal<double[]> binCells = ThreadLocal.withInitial(() -> new double[3 * BINS * CELL]);
+
+    /**
+     * Prepares a build over the given primitive boxes
+     *
+     * @param boxes primitive boxes, 6 values per primitive
+     * @param count         amount of primitives
+     * @param traversalCost cost of traversing an inner node relatively to intersecting one primitive
+     * @param pool          the pool for a parallel build, {@code null} for a sequential build
+     */
+    private BvhBuilder(double[] boxes, int count, double traversalCost, ForkJoinPool pool) {
+        this.boxes = Arrays.copyOf(boxes, 6 * count);
+        this.traversalCost = traversalCost;
+        this.pool = pool;
+        centers = new double[3 * count];
+        order = new int[count];
+        for (int i = 0; i < count; ++i) {
+            order[i] = i;
+            for (int axis = 0; axis < 3; ++axis)
+                centers[3 * i + axis] = (boxes[6 * i + axis] + boxes[6 * i + 3 + axis]) / 2;
+        }
+        // a binary tree with leaves of at least one primitive has less than 2 * count nodes
+        bounds = new double[6 * (2 * count - 1)];
+        nodes = new int[2 * (2 * count - 1)];
+    }
+
+    /**
+     * Builds a hierarchy over the given primitive boxes
+     *
+     * @param boxes primitive boxes, 6 values per primitive
+     * @param count amount of primitives, at least one
+     * @return the flattened tree
+     */
+    static Tree build(double[] boxes, int count) {
+        return build(boxes, count, null);
+    }
+
+    /**
+     * Builds a hierarchy over the given primitive boxes, in parallel if a pool is given
+     *
+     * @param boxes primitive boxes, 6 values per primitive
+     * @param count amount of primitives, at least one
+     * @param pool  the pool for a parallel build, {@code null} for a sequential build
+     * @return the flattened tree
+     */
+    static Tree build(double[] boxes, int count, ForkJoinPool pool) {
+        return build(boxes, count, TRAVERSAL_COST, pool);
+    }
+
+    /**
+     * Builds a hierarchy over the given primitive boxes, in parallel if a pool is given.
+     * The traversal cost controls the size of the leaves: the cheaper the primitives are to
+     * intersect, the higher it should be, so that fewer nodes are created.
+     *
+     * @param boxes         primitive boxes, 6 values per primitive
+     * @param count         amount of primitives, at least one
+     * @param traversalCost cost of traversing an inner node relatively to intersecting one primitive
+     * @param pool          the pool for a parallel build, {@code null} for a sequential build
+     * @return the flattened tree
+     */
+    static Tree build(double[] boxes, int count, double traversalCost, ForkJoinPool pool) {
+        BvhBuilder builder = new BvhBuilder(boxes, count, traversalCost, pool);
+        if (pool == null || count < SUBTREE_TASK_SIZE)
+            builder.build(0, 0, count);
+        else
+            pool.invoke(ForkJoinTask.adapt(() -> builder.build(0, 0, count)));
+        return builder.compact();
+    }
+
+    /**
+     * Collapses a binary tree into a wide one. The children of a wide node are found by repeatedly
+     * opening the inner binary node of the largest surface area among them, so every wide node
+     * replaces up to {@code width - 1} binary inner nodes; the leaves stay as they are. A subtree
+     * with no more leaves than the width (that fills a wide node of its own) is opened only if all
+     * its leaves fit, so the nodes above the leaves are not left with two children.
+     *
+     * @param tree  the binary tree
+     * @param width the maximal amount of children of a node (2 to 8)
+     * @return the wide tree
+     */
+    static WideTree widen(Tree tree, int width) {
+        double[] bounds = tree.bounds();
+        int[] binary = tree.nodes();
+        int stride = 1 + 2 * width;
+        // every wide node but a leaf root replaces at least one binary inner node
+        int capacity = Math.max(1, tree.nodeCount() / 2);
+        double[] frames = new double[6 * capacity];
+        byte[] boxes = new byte[6 * width * capacity];
+        int[] nodes = new int[stride * capacity];
+        int count = 1;
+        // amount of the leaves of every binary subtree (the children follow their parent)
+        int[] leaves = new int[tree.nodeCount()];
+        for (int node = tree.nodeCount() - 1; node >= 0; --node)
+            leaves[node] = binary[2 * node + 1] > 0 ? 1 : leaves[node + 1] + leaves[binary[2 * node]];
+
+        // pairs of a wide node to fill and its binary node
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = 0;
+        int[] children = new int[width];
+        while (top > 0) {
+            int node = stack[--top];
+            int wide = stack[--top];
+            int n = 1;
+            children[0] = node;
+            while (n < width) {
+                int open = -1;
+                double largest = -1;
+                for (int i = 0; i < n; ++i) {
+                    if (binary[2 * children[i] + 1] > 0) continue;
+                    if (leaves[children[i]] <= width && leaves[children[i]] - 1 > width - n) continue;
+                    double area = area(bounds, 6 * children[i]);
+                    if (area > largest) {
+                        largest = area;
+                        open = i;
+                    }
+                }
+                if (open < 0) break;
+                int parent = children[open];
+                children[open] = parent + 1;
+                children[n++] = binary[2 * parent];
+            }
+
+            int f = 6 * wide;
+            for (int axis = 0; axis < 3; ++axis) {
+                double origin = bounds[6 * node + axis], end = bounds[6 * node + 3 + axis];
+                double step = (end - origin) / LEVELS;
+                // the last level must reach the end of the box in spite of the rounding
+                while (origin + LEVELS * step < end) step = Math.nextUp(step);
+                frames[f + axis] = origin;
+                frames[f + 3 + axis] = step;
+            }
+            int link = stride * wide;
+            nodes[link] = n;
+            for (int i = 0; i < n; ++i) {
+                int child = children[i];
+                for (int axis = 0; axis < 3; ++axis) {
+                    double origin = frames[f + axis], step = frames[f + 3 + axis];
+                    boxes[6 * width * wide + axis * width + i] =
+                            (byte) quantizeMin(bounds[6 * child + axis], origin, step);
+                    boxes[6 * width * wide + (3 + axis) * width + i] =
+                            (byte) quantizeMax(bounds[6 * child + 3 + axis], origin, step);
+                }
+                if (binary[2 * child + 1] > 0) {
+                    nodes[link + 1 + 2 * i] = binary[2 * child];
+                    nodes[link + 2 + 2 * i] = binary[2 * child + 1];
+                } else {
+                    nodes[link + 1 + 2 * i] = count;
+                    nodes[link + 2 + 2 * i] = 0;
+                    if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    stack[top++] = count++;
+                    stack[top++] = child;
+                }
+            }
+        }
+        return new WideTree(Arrays.copyOf(frames, 6 * count), Arrays.copyOf(boxes, 6 * width * count),
+                Arrays.copyOf(nodes, stride * count), width, count);
+    }
+
+    /**
+     * Quantizes a minimal coordinate of a child box, rounding it down
+     *
+     * @param value  the coordinate
+     * @param origin the origin of the parent box
+     * @param step   the quantization step of the parent box
+     * @return the largest level whose coordinate is not above the value
+     */
+    private static int quantizeMin(double value, double origin, double step) {
+        if (step == 0) return 0;
+        int q = (int) Math.max(0, Math.min(LEVELS, Math.floor((value - origin) / step)));
+        // the levels are checked by the same expression that decodes them
+        while (q > 0 && origin + q * step > value) --q;
+        return q;
+    }
+
+    /**
+     * Quantizes a maximal coordinate of a child box, rounding it up
+     *
+     * @param value  the coordinate
+     * @param origin the origin of the parent box
+     * @param step   the quantization step of the parent box
+     * @return the smallest level whose coordinate is not below the value
+     */
+    private static int quantizeMax(double value, double origin, double step) {
+        if (step == 0) return 0;
+        int q = (int) Math.max(0, Math.min(LEVELS, Math.ceil((value - origin) / step)));
+        while (q < LEVELS && origin + q * step < value) ++q;
+        return q;
+    }
+
+    /**
+     * Gathers the bounding boxes of geometries into a flat array
+     *
+     * @param geometries the bounded geometries
+     * @return the boxes, 6 values per geometry
+     */
+    static double[] boxes(List<Intersectable> geometries) {
+        double[] boxes = new double[6 * geometries.size()];
+        for (int i = 0; i < geometries.size(); ++i) {
+            BoundingBox box = geometries.get(i).getBoundingBox();
+            boxes[6 * i] = box.minX();
+            boxes[6 * i + 1] = box.minY();
+            boxes[6 * i + 2] = box.minZ();
+            boxes[6 * i + 3] = box.maxX();
+            boxes[6 * i + 4] = box.maxY();
+            boxes[6 * i + 5] = box.maxZ();
+        }
+        return boxes;
+    }
+
+    /**
+     * Splits the geometries of a collection into bounded and unbounded ones. Plain nested
+     * collections are flattened so that their members are placed in the tree separately.
+     *
+     * @param geometries the collection to flatten
+     * @param bounded    the list of bounded geometries to fill
+     * @param unbounded  the list of unbounded geometries to fill
+     */
+    static void flatten(Geometries geometries, List<Intersectable> bounded, List<Intersectable> unbounded) {
+        for (Intersectable geometry : geometries.getGeometries()) {
+            if (geometry.getClass() == Geometries.class)
+                flatten((Geometries) geometry, bounded, unbounded);
+            else if (geometry.getBoundingBox() == null)
+                unbounded.add(geometry);
+            else
+                bounded.add(geometry);
+        }
+    }
+
+    /**
+     * Recursively builds the subtree over a range of the primitives. A subtree over {@code n}
+     * primitives occupies at most {@code 2n - 1} node slots starting at its root slot, so the
+     * second child of a node with {@code m} primitives in its first child is placed
+     * {@code 2m} slots after it.
+     *
+     * @param node  the slot of the subtree root node
+     * @param begin first index of the range in {@link #order}
+     * @param end   index after the last one of the range
+     */
+    private void build(int node, int begin, int end) {
+        int count = end - begin;
+        double[] range = reduce(begin, end, boundsCells, this::gatherBounds);
+        int b = 6 * node;
+        System.arraycopy(range, 1, bounds, b, 6);
+        if (count == 1) {
+            leaf(node, begin, count);
+            return;
+        }
+        double[] cMin = { range[CELL + 1], range[CELL + 2], range[CELL + 3] };
+        double[] extent = { range[CELL + 4] - cMin[0], range[CELL + 5] - cMin[1], range[CELL + 6] - cMin[2] };
+        // scale of the centroid coordinates to the bin indices, zero for an axis without extent
+        double[] scale = new double[3];
+        for (int axis = 0; axis < 3; ++axis)
+            scale[axis] = extent[axis] > 0 ? BINS / extent[axis] : 0;
+
+        // Find the cheapest split among the bin borders of all the axes
+        double[] bins = reduce(begin, end, binCells, (from, to, cells) -> gatherBins(from, to, cMin, scale, cells));
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestBin = 0;
+        double[] rightArea = new double[BINS];
+        int[] rightCount = new int[BINS];
+        double[] acc = new double[CELL];
+        for (int axis = 0; axis < 3; ++axis) {
+            if (scale[axis] == 0) continue;
+            int first = axis * BINS * CELL;
+            // Sweep from the right to collect the areas of the right sides
+            empty(acc, 0);
+            for (int k = BINS - 1; k > 0; --k) {
+                merge(acc, 0, bins, first + k * CELL);
+                rightArea[k] = acc[0] == 0 ? 0 : area(acc, 1);
+                rightCount[k] = (int) acc[0];
+            }
+            empty(acc, 0);
+            for (int k = 0; k < BINS - 1; ++k) {
+                merge(acc, 0, bins, first + k * CELL);
+                if (acc[0] == 0 || rightCount[k + 1] == 0) continue;
+                double cost = area(acc, 1) * acc[0] + rightArea[k + 1] * rightCount[k + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = k;
+                }
+            }
+        }
+
+        double nodeArea = area(bounds, b);
+        double splitCost = traversalCost + (nodeArea > 0 ? bestCost / nodeArea : count);
+        if (bestAxis < 0 || (splitCost >= count && count <= MAX_LEAF_SIZE)) {
+            leaf(node, begin, count);
+            return;
+        }
+
+        // Partition the range according to the chosen bin border
+        int mid = begin;
+        for (int i = begin; i < end; ++i)
+            if (bin(centers[3 * i + bestAxis], cMin[bestAxis], scale[bestAxis]) <= bestBin)
+                swap(i, mid++);
+        int second = node + 2 * (mid - begin);
+        nodes[2 * node] = second;
+        nodes[2 * node + 1] = -1 - bestAxis;
+        int split = mid;
+        if (pool != null && count >= SUBTREE_TASK_SIZE)
+            ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> build(node + 1, begin, split)),
+                    ForkJoinTask.adapt(() -> build(second, split, end)));
+        else {
+            build(node + 1, begin, mid);
+            build(second, mid, end);
+        }
+    }
+
+    /**
+     * Swaps two primitives in the build order
+     *
+     * @param i index of one primitive in {@link #order}
+     * @param j index of the other primitive in {@link #order}
+     */
+    private void swap(int i, int j) {
+        int p = order[i];
+        order[i] = order[j];
+        order[j] = p;
+        for (int k = 0; k < 6; ++k) {
+            double v = boxes[6 * i + k];
+            boxes[6 * i + k] = boxes[6 * j + k];
+            boxes[6 * j + k] = v;
+        }
+        for (int k = 0; k < 3; ++k) {
+            double v = centers[3 * i + k];
+            centers[3 * i + k] = centers[3 * j + k];
+            centers[3 * j + k] = v;
+        }
+    }
+
+    /**
+     * Gathers statistics over a range of the primitives of a node, by a parallel reduction for
+     * large ranges of a parallel build. The returned cells are valid until the next gathering
+     * by the same thread.
+     *
+     * @param begin   first index of the range in {@link #order}
+     * @param end     index after the last one of the range
+     * @param scratch the per thread cells to gather into when there is no parallel reduction
+     * @param gather  the gathering of the statistics of a range
+     * @return the cells of the gathered statistics
+     */
+    private double[] reduce(int begin, int end, ThreadLocal<double[]> scratch, Gather gather) {
+        double[] cells = scratch.get();
+        return pool == null || end - begin <= REDUCE_CHUNK_SIZE
+                ? gather(begin, end, cells, gather)
+                : reduce(begin, end, cells.length, gather);
+    }
+
+    /**
+     * Gathers statistics over a range of the primitives by a parallel reduction
+     *
+     * @param begin  first index of the range in {@link #order}
+     * @param end    index after the last one of the range
+     * @param length amount of the values of the cells
+     * @param gather the gathering of the statistics of a range
+     * @return the cells of the gathered statistics
+     */
+    private double[] reduce(int begin, int end, int length, Gather gather) {
+        if (end - begin <= REDUCE_CHUNK_SIZE) return gather(begin, end, new double[length], gather);
+        int mid = (begin + end) >>> 1;
+        ForkJoinTask<double[]> left = ForkJoinTask.adapt(() -> reduce(begin, mid, length, gather)).fork();
+        double[] cells = reduce(mid, end, length, gather);
+        double[] other = left.join();
+        for (int c = 0; c < length; c += CELL) merge(cells, c, other, c);
+        return cells;
+    }
+
+    /**
+     * Gathers statistics over a range of the primitives into emptied cells
+     *
+     * @param begin  first index of the range in {@link #order}
+     * @param end    index after the last one of the range
+     * @param cells  the cells to gather into
+     * @param gather the gathering of the statistics of a range
+     * @return the cells
+     */
+    private static double[] gather(int begin, int end, double[] cells, Gather gather) {
+        for (int c = 0; c < cells.length; c += CELL) empty(cells, c);
+        gather.gather(begin, end, cells);
+        return cells;
+    }
+
+    /**
+     * Gathers the box of a range of the primitives into the first cell and the box of
+     * their centers into the second cell
+     *
+     * @param begin first index of the range in {@link #order}
+     * @param end   index after the last one of the range
+     * @param cells the cells to add to
+     */
+    private void gatherBounds(int begin, int end, double[] cells) {
+        for (int i = begin; i < end; ++i) {
+            for (int axis = 0; axis < 3; ++axis) {
+                double v = boxes[6 * i + axis];
+                if (v < cells[1 + axis]) cells[1 + axis] = v;
+                v = boxes[6 * i + 3 + axis];
+                if (v > cells[4 + axis]) cells[4 + axis] = v;
+                double c = centers[3 * i + axis];
+                if (c < cells[CELL + 1 + axis]) cells[CELL + 1 + axis] = c;
+                if (c > cells[CELL + 4 + axis]) cells[CELL + 4 + axis] = c;
+            }
+        }
+        cells[0] += end - begin;
+        cells[CELL] += end - begin;
+    }
+
+    /**
+     * Gathers the primitives of a range into the bins of all the axes
+     * ({@value #BINS} cells per axis)
+     *
+     * @param begin  first index of the range in {@link #order}
+     * @param end    index after the last one of the range
+     * @param min    the minimal centroid coordinates of the node
+     * @param scale  the scales of the centroid coordinates of the node to the bin indices
+     * @param cells  the cells to add to
+     */
+    private void gatherBins(int begin, int end, double[] min, double[] scale, double[] cells) {
+        for (int i = begin; i < end; ++i) {
+            for (int axis = 0; axis < 3; ++axis) {
+                if (scale[axis] == 0) continue;
+                int c = (axis * BINS + bin(centers[3 * i + axis], min[axis], scale[axis])) * CELL;
+                ++cells[c];
+                for (int a = 0; a < 3; ++a) {
+                    double v = boxes[6 * i + a];
+                    if (v < cells[c + 1 + a]) cells[c + 1 + a] = v;
+                    v = boxes[6 * i + 3 + a];
+                    if (v > cells[c + 4 + a]) cells[c + 4 + a] = v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the built nodes from their reserved slots into compact arrays, in depth-first order
+     *
+     * @return the flattened tree
+     */
+    private Tree compact() {
+        int count = 0;
+        int[] slots = new int[bounds.length / 6];
+        // depth-first walk over the reserved slots, assigning consecutive indices to the nodes
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            slots[count++] = node;
+            if (nodes[2 * node + 1] > 0) continue;
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = nodes[2 * node];
+            stack[top++] = node + 1;
+        }
+        int[] index = new int[slots.length];
+        for (int i = 0; i < count; ++i) index[slots[i]] = i;
+        double[] compactBounds = new double[6 * count];
+        int[] compactNodes = new int[2 * count];
+        for (int i = 0; i < count; ++i) {
+            int node = slots[i];
+            System.arraycopy(bounds, 6 * node, compactBounds, 6 * i, 6);
+            boolean leaf = nodes[2 * node + 1] > 0;
+            compactNodes[2 * i] = leaf ? nodes[2 * node] : index[nodes[2 * node]];
+            compactNodes[2 * i + 1] = nodes[2 * node + 1];
+        }
+        return new Tree(compactBounds, compactNodes, order, count);
+    }
+
+    /**
+     * Makes a node a leaf
+     *
+     * @param node  the node index
+     * @param begin offset of the first leaf primitive in {@link #order}
+     * @param count amount of the leaf primitives
+     */
+    private void leaf(int node, int begin, int count) {
+        nodes[2 * node] = begin;
+        nodes[2 * node + 1] = count;
+    }
+
+    /**
+     * Finds the bin of a centroid coordinate
+     *
+     * @param center the centroid coordinate
+     * @param min    the minimal centroid coordinate of the range
+     * @param scale  the scale of the centroid coordinates of the range to the bin indices
+     * @return the bin index
+     */
+    private static int bin(double center, double min, double scale) {
+        int k = (int) ((center - min) * scale);
+        return k >= BINS ? BINS - 1 : k;
+    }
+
+    /**
+     * Sets a cell to no primitives and the empty box (that grows into any box it is merged with)
+     *
+     * @param cells  the array holding the cell
+     * @param offset offset of the cell in the array
+     */
+    private static void empty(double[] cells, int offset) {
+        cells[offset] = 0;
+        for (int axis = 0; axis < 3; ++axis) {
+            cells[offset + 1 + axis] = Double.POSITIVE_INFINITY;
+            cells[offset + 4 + axis] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Merges a cell into another cell: adds the counts and grows the box
+     *
+     * @param cells       the array holding the cell to merge into
+     * @param offset      offset of the cell to merge into
+     * @param other       the array holding the other cell
+     * @param otherOffset offset of the other cell
+     */
+    private static void merge(double[] cells, int offset, double[] other, int otherOffset) {
+        cells[offset] += other[otherOffset];
+        for (int axis = 0; axis < 3; ++axis) {
+            cells[offset + 1 + axis] = Math.min(cells[offset + 1 + axis], other[otherOffset + 1 + axis]);
+            cells[offset + 4 + axis] = Math.max(cells[offset + 4 + axis], other[otherOffset + 4 + axis]);
+        }
+    }
+
+    /**
+     * Surface area of a box in an array
+     *
+     * @param box    the array holding the box
+     * @param offset offset of the box in the array
+     * @return the surface area
+     */
+    private static double area(double[] box, int offset) {
+        double dx = box[offset + 3] - box[offset];
+        double dy = box[offset + 4] - box[offset + 1];
+        double dz = box[offset + 5] - box[offset + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+}
@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -32,6 +33,14 @@ public class Circle extends RadialGeometry{
         }
         this.center = center;
         this.plane = new Plane(center, normal);
+
+        // A disc extends along each axis by the radius scaled by the sine of the angle between
+        // the axis and the normal
+        Vector n = plane.getNormal();
+        this.boundingBox = BoundingBox.around(center,
+                radius * Math.sqrt(Math.max(0, 1 - n.getX() * n.getX())),
+                radius * Math.sqrt(Math.max(0, 1 - n.getY() * n.getY())),
+                radius * Math.sqrt(Math.max(0, 1 - n.getZ() * n.getZ())));
     }
 
 
@@ -42,12 +51,22 @@ public class Circle extends RadialGeometry{
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-        List<Intersection> intersections = plane.calculateIntersections(ray, maxDistance);
-        if (intersections == null || intersections.isEmpty()) {
-            return null; // No intersection with the plane
+        double t = calculateClosestDistanceHelper(ray, maxDistance, null);
+        return t == Double.POSITIVE_INFINITY ? null : List.of(new Intersection(this, ray.getPoint(t), t));
+    }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double t = plane.intersectionDistance(ray, maxDistance);
+        if (t == 0) {
+            return Double.POSITIVE_INFINITY; // No intersection with the plane
         }
 
-        return intersections.getFirst().point.distance(center) < radius ?
-                List.of(new Intersection(this, intersections.getFirst().point)) : null;
+        double dx = ray.ox + t * ray.dx - center.getX();
+        double dy = ray.oy + t * ray.dy - center.getY();
+        double dz = ray.oz + t * ray.dz - center.getZ();
+        if (dx * dx + dy * dy + dz * dz >= radius * radius) return Double.POSITIVE_INFINITY;
+        if (hit != null) hit.set(this, Hit.WHOLE, t);
+        return t;
     }
 }
@@ -42,6 +42,7 @@ public class Cylinder extends Tube {
 
         this.topCap = new Circle(radius, top, dir);
         this.bottomCap = new Circle(radius, base, dir.scale(-1));
+        this.boundingBox = topCap.getBoundingBox().union(bottomCap.getBoundingBox());
     }
 
     @Override
@@ -63,12 +64,12 @@ public class Cylinder extends Tube {
             }
         }
 
-        List<Intersection> topIntersections = topCap.calculateIntersections(ray);
+        List<Intersection> topIntersections = topCap.calculateIntersections(ray, maxDistance);
         if (topIntersections != null) {
             Point p = topIntersections.getFirst().point;
             intersections.add(new Intersection(this, p));
         }
-        List<Intersection> bottomIntersections = bottomCap.calculateIntersections(ray);
+        List<Intersection> bottomIntersections = bottomCap.calculateIntersections(ray, maxDistance);
         if (bottomIntersections != null) {
             Point p = bottomIntersections.getFirst().point;
             intersections.add(new Intersection(this, p));        }
@@ -76,6 +77,19 @@ public class Cylinder extends Tube {
         return intersections.isEmpty() ? null : intersections;
     }
 
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double t = sideDistance(ray, maxDistance, height);
+        if (t != Double.POSITIVE_INFINITY) maxDistance = t;
+        // every cap is tested only nearer than the hits found so far
+        double cap = topCap.calculateClosestDistanceHelper(ray, maxDistance, null);
+        if (cap != Double.POSITIVE_INFINITY) maxDistance = t = cap;
+        cap = bottomCap.calculateClosestDistanceHelper(ray, maxDistance, null);
+        if (cap != Double.POSITIVE_INFINITY) t = cap;
+        if (t != Double.POSITIVE_INFINITY && hit != null) hit.set(this, Hit.WHOLE, t);
+        return t;
+    }
+
     @Override
     public Vector getNormal(Point point) {
         if (point.equals(this.axis.getHead())) {
@@ -1,8 +1,12 @@
 package geometries;
 
+import primitives.BoundingBox;
+import primitives.Double3;
 import primitives.Ray;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -10,7 +14,9 @@ import java.util.List;
  * A composite geometry class that represents a collection of {@link Intersectable} objects.
  * <p>
  * Provides functionality to add multiple geometries and to find all intersection points
- * between a given {@link Ray} and the contained geometries.
+ * between a given {@link Ray} and the contained geometries. A ray that misses the union of
+ * the bounding boxes of the geometries is rejected without testing them, so nesting
+ * collections of nearby geometries gives hierarchical culling.
  */
 public class Geometries extends Intersectable {
     /**
@@ -21,6 +27,18 @@ public class Geometries extends Intersectable {
      */
     private final List<Intersectable> geometries = new LinkedList<>();
 
+    /**
+     * The collections this collection has been added to. They are notified when the
+     * geometries of this collection change, so that their cached bounds are recomputed.
+     * They are referenced weakly: a collection does not keep alive the collections
+     * wrapping it (such as the hierarchies built over the scene by every ray tracer),
+     * and the collected ones are dropped from the list.
+     */
+    private final List<WeakReference<Geometries>> parents = new LinkedList<>();
+
+    /** Whether the cached bounding box is up to date with the geometries */
+    private volatile boolean boundsValid = false;
+
     public Geometries() {}
 
     /**
@@ -39,10 +57,66 @@ public class Geometries extends Intersectable {
      */
     public void add(Intersectable... geometries) {
         this.geometries.addAll(Arrays.asList(geometries));
+        for (Intersectable geometry : geometries)
+            if (geometry instanceof Geometries nested)
+                nested.parents.add(new WeakReference<>(this));
+        invalidateBounds();
+    }
+
+    /**
+     * Marks the bounds of this collection and of all the collections containing it as out of date.
+     * Called whenever the geometries of the collection change.
+     */
+    protected void invalidateBounds() {
+        boundsValid = false;
+        parents.removeIf(reference -> {
+            Geometries parent = reference.get();
+            if (parent == null) return true;
+            parent.invalidateBounds();
+            return false;
+        });
+    }
+
+    /**
+     * Returns the union of the bounding boxes of the contained geometries.
+     * The box is recalculated only after the geometries have changed.
+     *
+     * @return the bounding box, or {@code null} if the collection is empty or contains an unbounded geometry
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        if (!boundsValid) {
+            BoundingBox box = null;
+            for (Intersectable geometry : geometries) {
+                BoundingBox geometryBox = geometry.getBoundingBox();
+                if (geometryBox == null) {
+                    box = null;
+                    break;
+                }
+                box = box == null ? geometryBox : box.union(geometryBox);
+            }
+            boundingBox = box;
+            boundsValid = true;
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Returns the geometries contained in the collection.
+     *
+     * @return an unmodifiable view of the contained geometries
+     */
+    public List<Intersectable> getGeometries() {
+        return Collections.unmodifiableList(geometries);
     }
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        // Cheap rejection of the whole collection by its bounding box
+        BoundingBox box = getBoundingBox();
+        if (box != null && !box.intersects(ray, maxDistance)) {
+            return null;
+        }
         List<Intersection> intersections = null;
         for (Intersectable geometry : geometries) {
             var intersectionsByGeometry = geometry.calculateIntersections(ray, maxDistance);
@@ -55,4 +129,37 @@ public class Geometries extends Intersectable {
         }
         return intersections;
     }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        BoundingBox box = getBoundingBox();
+        if (box != null && !box.intersects(ray, maxDistance)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double closest = Double.POSITIVE_INFINITY;
+        for (Intersectable geometry : geometries) {
+            // every hit found shrinks the distance the following geometries are tested up to
+            double distance = geometry.calculateClosestDistanceHelper(ray, maxDistance, hit);
+            if (distance != Double.POSITIVE_INFINITY) {
+                closest = distance;
+                maxDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        BoundingBox box = getBoundingBox();
+        if (box != null && !box.intersects(ray, maxDistance)) {
+            return ktr;
+        }
+        for (Intersectable geometry : geometries) {
+            ktr = geometry.calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+            if (ktr.lowerThan(minK)) {
+                return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
 }
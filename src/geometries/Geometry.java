@@ -1,8 +1,10 @@
 package geometries;
 
 import primitives.Color;
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
 /**
@@ -72,4 +74,18 @@ public abstract class Geometry extends Intersectable {
      * @return the normal vector at the specified point
      */
     public abstract Vector getNormal(Point point);
+
+    @Override
+    protected Intersection createIntersection(Ray ray, Hit hit) {
+        return new Intersection(this, ray.getPoint(hit.distance), hit.distance);
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        // An opaque geometry blocks the ray at its first hit, no need to find all of them
+        if (material.kT.lowerThan(minK))
+            return calculateClosestDistanceHelper(ray, maxDistance, null) == Double.POSITIVE_INFINITY
+                    ? ktr : Double3.ZERO;
+        return super.calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+    }
 }
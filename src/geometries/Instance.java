@@ -0,0 +1,141 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Instance of a shared geometry placed in the scene by an affine transformation.
+ * <p>
+ * The referenced geometry (a single geometry, a collection, a {@link BVH} or a mesh) is not
+ * copied: the rays are transformed into its own (object) space instead, so the same geometry
+ * may be placed any number of times at the memory cost of one transformation per instance.
+ * The instances of a scene are the leaves of its top-level acceleration structure, while a
+ * shared {@link BVH} is the bottom-level structure, built once in the object space and
+ * traversed by all its instances. The referenced geometry must be complete before its
+ * instances are created.
+ * <p>
+ * The intersections are reported in the world space, with the surface normal already set
+ * (in the world space) since the geometry itself knows only its object space normals. A hit
+ * found by the distance-only query keeps the object space hit in its inner record, so the
+ * intersection is built (and transformed) only for the winning hit.
+ */
+public class Instance extends Intersectable {
+    /** The shared geometry in its object space */
+    private final Intersectable geometry;
+    /** The transformation from the object space to the world space */
+    private final Transform transform;
+
+    /**
+     * Constructs an instance of a geometry
+     *
+     * @param geometry  the shared geometry
+     * @param transform the transformation from the geometry's object space to the world space
+     */
+    public Instance(Intersectable geometry, Transform transform) {
+        this.geometry = geometry;
+        this.transform = transform;
+        BoundingBox box = geometry.getBoundingBox();
+        boundingBox = box == null ? null : transform.apply(box);
+    }
+
+    /**
+     * Returns the shared geometry
+     *
+     * @return the geometry in its object space
+     */
+    public Intersectable getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the transformation of the instance
+     *
+     * @return the transformation from the object space to the world space
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Transforms a world space ray into the object space. The object space ray direction is
+     * normalized, so a distance along it is the world distance multiplied by the scale
+     * returned by {@link #scale(Ray)}.
+     *
+     * @param ray the world space ray
+     * @return the object space ray
+     */
+    private Ray toObject(Ray ray) {
+        return new Ray(transform.applyInverse(ray.getHead()), transform.applyInverse(ray.getDirection()));
+    }
+
+    /**
+     * Calculates the ratio of object space distances to world space distances along a ray
+     *
+     * @param ray the world space ray
+     * @return the ratio of the distances
+     */
+    private double scale(Ray ray) {
+        return transform.applyInverse(ray.getDirection()).length();
+    }
+
+    /**
+     * Transforms an object space intersection into the world space
+     *
+     * @param intersection the object space intersection
+     * @param scale        the ratio of object space distances to world space distances
+     * @return the world space intersection
+     */
+    private Intersection toWorld(Intersection intersection, double scale) {
+        Intersection world = new Intersection(intersection.geometry, transform.apply(intersection.point),
+                intersection.distance / scale);
+        Vector normal = intersection.normal != null ? intersection.normal
+                : intersection.geometry.getNormal(intersection.point);
+        world.normal = transform.applyNormal(normal);
+        return world;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        double scale = scale(ray);
+        List<Intersection> intersections = geometry.calculateIntersections(toObject(ray), maxDistance * scale);
+        if (intersections == null) return null;
+        List<Intersection> world = new LinkedList<>();
+        for (Intersection intersection : intersections)
+            world.add(toWorld(intersection, scale));
+        return world;
+    }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double scale = scale(ray);
+        // the object space hit is kept in the inner record until the winning hit is built
+        Hit inner = null;
+        if (hit != null) {
+            if (hit.inner == null) hit.inner = new Hit();
+            inner = hit.inner;
+        }
+        double distance = geometry.calculateClosestDistanceHelper(toObject(ray), maxDistance * scale, inner);
+        if (distance == Double.POSITIVE_INFINITY) return distance;
+        distance /= scale;
+        if (hit != null) hit.set(this, Hit.WHOLE, distance);
+        return distance;
+    }
+
+    @Override
+    protected Intersection createIntersection(Ray ray, Hit hit) {
+        Hit inner = hit.inner;
+        return toWorld(inner.owner.createIntersection(toObject(ray), inner), scale(ray));
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        return geometry.calculateTransmittanceHelper(toObject(ray), maxDistance * scale(ray), ktr, minK);
+    }
+}
@@ -1,6 +1,8 @@
 package geometries;
 
 import lighting.LightSource;
+import primitives.BoundingBox;
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
@@ -18,6 +20,21 @@ import java.util.List;
  */
 public abstract class Intersectable {
 
+    /**
+     * Axis-aligned box bounding the geometry, computed once at construction.
+     * It is {@code null} for unbounded geometries (e.g. planes and tubes), which must always be tested.
+     */
+    protected BoundingBox boundingBox = null;
+
+    /**
+     * Returns the axis-aligned box bounding the geometry.
+     *
+     * @return the bounding box, or {@code null} if the geometry is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+
     /**
      * Finds the intersection point(s) between the given {@link Ray} and the geometry.
      * <p>
@@ -40,6 +57,235 @@ public abstract class Intersectable {
     }
     protected abstract List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * Finds the closest intersection of the ray with the geometry.
+     *
+     * @param ray the ray to test for intersection
+     * @return the closest intersection, or {@code null} if there is none
+     */
+    public final Intersection calculateClosestIntersection(Ray ray) {
+        return calculateClosestIntersection(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the closest intersection of the ray with the geometry that is nearer than a given distance.
+     * <p>
+     * The search is done by the distance-only query, and only the winning hit is turned into an
+     * {@link Intersection} with its point.
+     *
+     * @param ray         the ray to test for intersection
+     * @param maxDistance the distance along the ray beyond which intersections are ignored
+     * @return the closest intersection (with its {@link Intersection#distance} set),
+     *         or {@code null} if there is none
+     */
+    public final Intersection calculateClosestIntersection(Ray ray, double maxDistance) {
+        Hit hit = new Hit();
+        return calculateClosestDistanceHelper(ray, maxDistance, hit) == Double.POSITIVE_INFINITY ? null
+                : hit.owner.createIntersection(ray, hit);
+    }
+
+    /**
+     * Finds the distance to the closest intersection of the ray with the geometry that is nearer
+     * than a given distance, without building any intersection object.
+     *
+     * @param ray         the ray to test for intersection
+     * @param maxDistance the distance along the ray beyond which intersections are ignored
+     * @param hit         the record of the closest hit, updated only if a nearer hit is found
+     *                    ({@code null} if only the distance is needed)
+     * @return the distance to the closest intersection, or {@link Double#POSITIVE_INFINITY} if there is none
+     */
+    public final double calculateClosestDistance(Ray ray, double maxDistance, Hit hit) {
+        return calculateClosestDistanceHelper(ray, maxDistance, hit);
+    }
+
+    /**
+     * Finds the distance to the closest intersection of the ray with the geometry that is nearer
+     * than a given distance, and records the hit.
+     * <p>
+     * Composite geometries pass the distance of the best hit found so far down to their members,
+     * so each member can reject farther hits. The default implementation picks the closest one of
+     * all the intersections; geometries override it with kernels that work on the coordinates
+     * only, without allocating any objects.
+     *
+     * @param ray         the ray to test for intersection
+     * @param maxDistance the distance along the ray beyond which intersections are ignored
+     * @param hit         the record of the closest hit, updated only if a nearer hit is found
+     *                    ({@code null} if only the distance is needed)
+     * @return the distance to the closest intersection, or {@link Double#POSITIVE_INFINITY} if there is none
+     */
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        List<Intersection> intersections = calculateIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) return Double.POSITIVE_INFINITY;
+        Point head = ray.getHead();
+        Intersection closest = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (Intersection intersection : intersections) {
+            double distance = intersection.point.distanceSquared(head);
+            if (distance < closestDistance) {
+                closest = intersection;
+                closestDistance = distance;
+            }
+        }
+        closestDistance = Math.sqrt(closestDistance);
+        if (hit != null) hit.set(closest.geometry, Hit.WHOLE, closestDistance);
+        return closestDistance;
+    }
+
+    /**
+     * Finds the closest intersections of a packet of rays with the geometry at once.
+     * <p>
+     * The rays are meant to be coherent (e.g. the primary rays of a tile of neighbouring pixels):
+     * acceleration structures then traverse their nodes once for the whole packet, skipping the
+     * nodes that no ray of the packet can hit. The intersections are the same as by
+     * {@link #calculateClosestIntersection(Ray)} for every ray.
+     *
+     * @param rays          the rays of the packet
+     * @param count         the amount of the rays in the packet (from the beginning of the array)
+     * @param intersections the array for the closest intersection of every ray ({@code null} if there is none)
+     */
+    public final void calculateClosestIntersections(Ray[] rays, int count, Intersection[] intersections) {
+        double[] distances = new double[count];
+        Hit[] hits = new Hit[count];
+        for (int r = 0; r < count; ++r) {
+            distances[r] = Double.POSITIVE_INFINITY;
+            hits[r] = new Hit();
+        }
+        calculateClosestDistancesHelper(rays, count, distances, hits);
+        for (int r = 0; r < count; ++r)
+            intersections[r] = distances[r] == Double.POSITIVE_INFINITY ? null
+                    : hits[r].owner.createIntersection(rays[r], hits[r]);
+    }
+
+    /**
+     * Finds the distances to the closest intersections of a packet of rays with the geometry that
+     * are nearer than the given distances, and records the hits.
+     * <p>
+     * The default implementation queries the rays one by one; acceleration structures override
+     * it with a traversal of the whole packet.
+     *
+     * @param rays      the rays of the packet
+     * @param count     the amount of the rays in the packet
+     * @param distances the distances along the rays beyond which intersections are ignored,
+     *                  replaced by the distances to the nearer hits found
+     * @param hits      the records of the closest hits of the rays, updated only if a nearer hit is found
+     */
+    protected void calculateClosestDistancesHelper(Ray[] rays, int count, double[] distances, Hit[] hits) {
+        for (int r = 0; r < count; ++r) {
+            double distance = calculateClosestDistanceHelper(rays[r], distances[r], hits[r]);
+            if (distance != Double.POSITIVE_INFINITY) distances[r] = distance;
+        }
+    }
+
+    /**
+     * Builds the intersection of a hit found by the distance-only query, whose owner is this geometry.
+     *
+     * @param ray the ray of the query
+     * @param hit the hit
+     * @return the intersection (with its {@link Intersection#distance} set)
+     * @throws UnsupportedOperationException if the geometry cannot own hits (e.g. a collection)
+     */
+    protected Intersection createIntersection(Ray ray, Hit hit) {
+        throw new UnsupportedOperationException("Hits are owned by the geometries, not by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Calculates the transmittance of the geometry along a ray up to a given distance
+     * (e.g. toward a light source): the product of the transparency coefficients of all
+     * the intersected surfaces.
+     * <p>
+     * Unlike the intersections queries it does not find all the intersections - the query
+     * stops as soon as an opaque surface is hit or the transmittance drops below the threshold.
+     *
+     * @param ray         the ray (e.g. a shadow ray)
+     * @param maxDistance the distance along the ray beyond which intersections are ignored
+     * @param minK        the transmittance threshold under which the ray is considered fully blocked
+     * @return the transmittance, or {@link Double3#ZERO} if the ray is blocked
+     */
+    public final Double3 calculateTransmittance(Ray ray, double maxDistance, double minK) {
+        return calculateTransmittanceHelper(ray, maxDistance, Double3.ONE, minK);
+    }
+
+    /**
+     * Multiplies the transmittance accumulated so far by the transmittance of the geometry along a ray.
+     * <p>
+     * The default implementation multiplies the transparency coefficients of all the intersections;
+     * geometries override it to stop the query early.
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance along the ray beyond which intersections are ignored
+     * @param ktr         the transmittance accumulated so far
+     * @param minK        the transmittance threshold under which the ray is considered fully blocked
+     * @return the accumulated transmittance, or {@link Double3#ZERO} if the ray is blocked
+     */
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        List<Intersection> intersections = calculateIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) return ktr;
+        for (Intersection intersection : intersections) {
+            ktr = ktr.product(intersection.material.kT);
+            if (ktr.lowerThan(minK)) return Double3.ZERO;
+        }
+        return ktr;
+    }
+
+    /**
+     * Record of the closest hit found by the distance-only query: the distance and the ids of the
+     * hit primitive, kept as plain fields so that the query builds no objects per tested geometry.
+     * A record may be reused for another query.
+     */
+    public static final class Hit {
+        /** Primitive id of a hit on a whole geometry (which is not made of primitives) */
+        public static final int WHOLE = -1;
+
+        /** The distance of the hit along the ray of the query */
+        public double distance = Double.POSITIVE_INFINITY;
+
+        /**
+         * The geometry that builds the intersection of the hit: the hit geometry itself, or the
+         * transformed instance containing it
+         */
+        Intersectable owner;
+
+        /** The id of the hit primitive within the owner (e.g. a triangle of a mesh), or {@link #WHOLE} */
+        int primitive = WHOLE;
+
+        /**
+         * The hit in the object space of the instance owning it, {@code null} until a hit on an
+         * instance is recorded (then it is kept for reuse)
+         */
+        Hit inner;
+
+        /**
+         * Records a hit
+         *
+         * @param owner     the geometry that builds the intersection of the hit
+         * @param primitive the id of the hit primitive within the owner, or {@link #WHOLE}
+         * @param distance  the distance of the hit along the ray
+         */
+        void set(Intersectable owner, int primitive, double distance) {
+            this.owner = owner;
+            this.primitive = primitive;
+            this.distance = distance;
+        }
+
+        /**
+         * Returns the geometry that builds the intersection of the hit
+         *
+         * @return the owner, or {@code null} if no hit has been recorded
+         */
+        public Intersectable getOwner() {
+            return owner;
+        }
+
+        /**
+         * Returns the id of the hit primitive within its owner
+         *
+         * @return the primitive id, or {@link #WHOLE}
+         */
+        public int getPrimitive() {
+            return primitive;
+        }
+    }
+
     /**
      * Encapsulates detailed information about a ray-geometry intersection.
      * This includes the intersected geometry, the intersection point, material,
@@ -55,6 +301,12 @@ public abstract class Intersectable {
         /** The material at the intersection point. */
         public final Material material;
 
+        /**
+         * The distance of the point from the ray head, {@code NaN} if it was not calculated.
+         * It is always set by the closest intersection queries.
+         */
+        public double distance = Double.NaN;
+
         /** The surface normal at the intersection point. */
         public Vector normal;
 
@@ -85,6 +337,19 @@ public abstract class Intersectable {
             this.material = geometry != null ? geometry.getMaterial() : null;
         }
 
+        /**
+         * Constructs an intersection data structure with a point, its distance from the ray head
+         * and its corresponding geometry.
+         *
+         * @param geometry the intersected geometry
+         * @param point    the intersection point
+         * @param distance the distance of the point from the ray head
+         */
+        public Intersection(Geometry geometry, Point point, double distance) {
+            this(geometry, point);
+            this.distance = distance;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -30,6 +30,12 @@ public class Plane extends Geometry {
      */
     private final Vector normal;
 
+    /** Coordinates of the normal, for the intersection kernel */
+    private final double nx, ny, nz;
+
+    /** The dot product of the normal and the reference point (the plane equation constant) */
+    private final double nq;
+
     /**
      * Constructs a {@code Plane} object using a point on the plane and a normal vector.
      * The provided normal vector is normalized upon construction to ensure it has a unit length.
@@ -40,6 +46,10 @@ public class Plane extends Geometry {
     public Plane(Point q, Vector normal) {
         this.q = q;
         this.normal = normal.normalize();
+        nx = this.normal.getX();
+        ny = this.normal.getY();
+        nz = this.normal.getZ();
+        nq = nx * q.getX() + ny * q.getY() + nz * q.getZ();
     }
 
     /**
@@ -56,32 +66,47 @@ public class Plane extends Geometry {
         Vector v1 = p2.subtract(p1);
         Vector v2 = p3.subtract(p1);
         this.normal = v1.crossProduct(v2).normalize();
+        nx = this.normal.getX();
+        ny = this.normal.getY();
+        nz = this.normal.getZ();
+        nq = nx * p1.getX() + ny * p1.getY() + nz * p1.getZ();
     }
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper (Ray ray, double maxDistance) {
-        Vector n = this.normal;
-        Point Q = this.q;
-        Point P0 = ray.getHead();
-        Vector v = ray.getDirection();
+        double t = intersectionDistance(ray, maxDistance);
+        return t == 0 ? null : List.of(new Intersection(this, ray.getPoint(t), t));
+    }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double t = intersectionDistance(ray, maxDistance);
+        if (t == 0) return Double.POSITIVE_INFINITY;
+        if (hit != null) hit.set(this, Hit.WHOLE, t);
+        return t;
+    }
 
-        double nv = n.dotProduct(v);
+    /**
+     * Calculates the distance along the ray to its intersection with the plane
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance beyond which the intersection is ignored
+     * @return the distance, or 0 if there is no intersection nearer than the maximal distance
+     */
+    double intersectionDistance(Ray ray, double maxDistance) {
+
+        double nv = nx * ray.dx + ny * ray.dy + nz * ray.dz;
         if (Util.isZero(nv)) {
-            return null;
+            return 0;
         }
 
-        if (P0.equals(Q))
-            return null;
-
-        Vector QminusP0 = Q.subtract(P0);
-        double nQminusP0 = n.dotProduct(QminusP0);
-        double t = Util.alignZero(nQminusP0 / nv);
+        // a ray starting at the reference point gives zero distance
+        double t = Util.alignZero((nq - nx * ray.ox - ny * ray.oy - nz * ray.oz) / nv);
 
         if (t <= 0 || Util.alignZero(t - maxDistance) >= 0) {
-            return null;
+            return 0;
         }
-
-        return List.of(new Intersection(this,ray.getPoint(t)));
+        return t;
     }
 
     /**
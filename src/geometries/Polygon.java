@@ -1,7 +1,6 @@
 package geometries;
 
 
-import java.util.ArrayList;
 import java.util.List;
 import static primitives.Util.*;
 import primitives.*;
@@ -18,6 +17,8 @@ public class Polygon extends Geometry {
    protected final Plane       plane;
    /** The size of the polygon - the amount of the vertices in the polygon */
    private final int           size;
+   /** Coordinates of the vertices (3 values per vertex), for the intersection kernel */
+   protected final double[]    coordinates;
 
    /**
     * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -45,11 +46,18 @@ public class Polygon extends Geometry {
          throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
       this.vertices = List.of(vertices);
       size          = vertices.length;
+      coordinates   = new double[3 * size];
+      for (int i = 0; i < size; ++i) {
+         coordinates[3 * i]     = vertices[i].getX();
+         coordinates[3 * i + 1] = vertices[i].getY();
+         coordinates[3 * i + 2] = vertices[i].getZ();
+      }
 
       // Generate the plane according to the first three vertices and associate the
       // polygon with this plane.
       // The plane holds the invariant normal (orthogonal unit) vector to the polygon
       plane         = new Plane(vertices[0], vertices[1], vertices[2]);
+      boundingBox   = BoundingBox.of(vertices);
       if (size == 3) return; // no need for more tests for a Triangle
 
       Vector  n        = plane.getNormal(vertices[0]);
@@ -83,46 +91,37 @@ public class Polygon extends Geometry {
 
    @Override
    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
-      List<Intersection> intersections = this.plane.calculateIntersections(ray, maxDistance);
-
-      if (intersections == null) {
-         return null;
-      }
-
-      Point p0 = ray.getHead();
-
-      Vector v = ray.getDirection();
-      List<Vector> vectors = new ArrayList<>();
-       for (Point vertex : vertices) {
-           vectors.add(vertex.subtract(p0));
-       }
+      double t = calculateClosestDistanceHelper(ray, maxDistance, null);
+      return t == Double.POSITIVE_INFINITY ? null : List.of(new Intersection(this, ray.getPoint(t), t));
+   }
 
-      List<Vector> normals = new ArrayList<>();
-      for (int i = 0; i < vectors.size() - 1; ++i) {
-         normals.add(vectors.get(i).crossProduct(vectors.get(i + 1)));
-      }
-      normals.add(vectors.getLast().crossProduct(vectors.getFirst()));
+   @Override
+   protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+      double t = this.plane.intersectionDistance(ray, maxDistance);
 
-      double[] doubles = new double[normals.size()];
-      for (int i = 0; i < normals.size(); ++i) {
-         doubles[i] = v.dotProduct(normals.get(i));
+      if (t == 0) {
+         return Double.POSITIVE_INFINITY;
       }
 
-      boolean flag1 = true;
-      boolean flag2 = true;
-       for (double aDouble : doubles) {
-           if (aDouble <= 0) {
-               flag1 = false;
-           }
-           if (aDouble >= 0) {
-               flag2 = false;
-           }
-       }
-
-      if (flag1 || flag2) {
-         return List.of(new Intersection(this, intersections.getFirst().point));
+      double ox = ray.ox, oy = ray.oy, oz = ray.oz;
+      double vx = ray.dx, vy = ray.dy, vz = ray.dz;
+
+      // The ray crosses the polygon if it passes on the same side of all the planes
+      // through the ray head and the edges
+      boolean positive = true;
+      boolean negative = true;
+      for (int i = 0; i < size; ++i) {
+         int    a  = 3 * i;
+         int    b  = i == size - 1 ? 0 : a + 3;
+         double ax = coordinates[a] - ox, ay = coordinates[a + 1] - oy, az = coordinates[a + 2] - oz;
+         double bx = coordinates[b] - ox, by = coordinates[b + 1] - oy, bz = coordinates[b + 2] - oz;
+         double sign = vx * (ay * bz - az * by) + vy * (az * bx - ax * bz) + vz * (ax * by - ay * bx);
+         if (sign <= 0) positive = false;
+         if (sign >= 0) negative = false;
+         if (!positive && !negative) return Double.POSITIVE_INFINITY;
       }
 
-      return null;
+      if (hit != null) hit.set(this, Hit.WHOLE, t);
+      return t;
    }
 }
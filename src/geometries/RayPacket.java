@@ -0,0 +1,174 @@
+package geometries;
+
+import primitives.Ray;
+
+/**
+ * A packet of coherent rays traversing a hierarchy of boxes together (ranged traversal).
+ * <p>
+ * A subtree is visited with the index of the first active ray of the packet: the rays before it
+ * miss the box of the subtree and are not tested in it any more. The box of a node is tested
+ * for the first active ray only, and only if it misses the box the next rays are tested. Before
+ * that, when all the rays go to the same octant, the box is tested against the whole packet by
+ * interval arithmetic: the ranges of the ray origins and of the inverse directions bound the
+ * distances at which any ray of the packet can enter and leave the box, so a box that none of
+ * them hits is skipped by one test.
+ * <p>
+ * The boxes are stored as in {@link BvhBuilder} - 6 values per box.
+ */
+final class RayPacket {
+    /** The rays of the packet */
+    final Ray[] rays;
+    /** The amount of the rays */
+    final int count;
+    /** The distances beyond which the hits of the rays are ignored (the closest hits found so far) */
+    final double[] distances;
+    /** The entry distance of the ray found by the last {@link #first(double[], int, int)} */
+    double entry;
+
+    /** Whether all the rays go to the same octant - the interval test is used only then */
+    private final boolean coherent;
+    /** The sign bits of the rays when they are coherent */
+    private final int signX, signY, signZ;
+    /** The ranges of the origins of the rays */
+    private double minOX, maxOX, minOY, maxOY, minOZ, maxOZ;
+    /** The ranges of the inverse directions of the rays */
+    private double minIX, maxIX, minIY, maxIY, minIZ, maxIZ;
+    /** The largest distance of the rays */
+    private double farthest;
+
+    /**
+     * Constructs a packet of rays
+     *
+     * @param rays      the rays
+     * @param count     the amount of the rays (from the beginning of the array)
+     * @param distances the distances beyond which the hits of the rays are ignored, updated by the
+     *                  traversal ({@link #update()} must be called after they change)
+     */
+    RayPacket(Ray[] rays, int count, double[] distances) {
+        this.rays = rays;
+        this.count = count;
+        this.distances = distances;
+        Ray ray = rays[0];
+        signX = ray.signX;
+        signY = ray.signY;
+        signZ = ray.signZ;
+        minOX = maxOX = ray.ox;
+        minOY = maxOY = ray.oy;
+        minOZ = maxOZ = ray.oz;
+        minIX = maxIX = ray.ix;
+        minIY = maxIY = ray.iy;
+        minIZ = maxIZ = ray.iz;
+        boolean same = true;
+        for (int r = 1; r < count; ++r) {
+            ray = rays[r];
+            same = same && ray.signX == signX && ray.signY == signY && ray.signZ == signZ;
+            minOX = Math.min(minOX, ray.ox);
+            maxOX = Math.max(maxOX, ray.ox);
+            minOY = Math.min(minOY, ray.oy);
+            maxOY = Math.max(maxOY, ray.oy);
+            minOZ = Math.min(minOZ, ray.oz);
+            maxOZ = Math.max(maxOZ, ray.oz);
+            minIX = Math.min(minIX, ray.ix);
+            maxIX = Math.max(maxIX, ray.ix);
+            minIY = Math.min(minIY, ray.iy);
+            maxIY = Math.max(maxIY, ray.iy);
+            minIZ = Math.min(minIZ, ray.iz);
+            maxIZ = Math.max(maxIZ, ray.iz);
+        }
+        coherent = same;
+        update();
+    }
+
+    /**
+     * Updates the packet after the distances of the rays have changed
+     */
+    void update() {
+        double max = 0;
+        for (int r = 0; r < count; ++r)
+            if (distances[r] > max) max = distances[r];
+        farthest = max;
+    }
+
+    /**
+     * Finds the first ray of the packet from a given one that enters a box within its distance,
+     * and sets its entry distance to {@link #entry}
+     *
+     * @param bounds the boxes
+     * @param box    the box index
+     * @param first  the index of the first ray to test
+     * @return the index of the ray, or {@link #count} if no ray from the first one enters the box
+     */
+    int first(double[] bounds, int box, int first) {
+        if (first >= count) return count;
+        entry = BVH.entry(bounds, box, rays[first], distances[first]);
+        if (entry != Double.POSITIVE_INFINITY) return first;
+        if (misses(bounds, box)) return count;
+        for (int r = first + 1; r < count; ++r) {
+            entry = BVH.entry(bounds, box, rays[r], distances[r]);
+            if (entry != Double.POSITIVE_INFINITY) return r;
+        }
+        return count;
+    }
+
+    /**
+     * Tests whether no ray of the packet can enter a box, by interval arithmetic over the ranges
+     * of the rays. The test is conservative: it may fail to reject a box that all the rays miss.
+     *
+     * @param bounds the boxes
+     * @param box    the box index
+     * @return true if the box is surely missed by all the rays
+     */
+    boolean misses(double[] bounds, int box) {
+        if (!coherent) return false;
+        int b = 6 * box;
+        double tMin = 0;
+        double tMax = farthest;
+        // NaN bounds (infinite inverse times zero) fail the comparisons - they are ignored
+        double near = bounds[b + 3 * signX], far = bounds[b + 3 - 3 * signX];
+        double t0 = lowest(near - maxOX, near - minOX, minIX, maxIX);
+        double t1 = highest(far - maxOX, far - minOX, minIX, maxIX);
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        if (tMin > tMax) return true;
+        near = bounds[b + 1 + 3 * signY];
+        far = bounds[b + 4 - 3 * signY];
+        t0 = lowest(near - maxOY, near - minOY, minIY, maxIY);
+        t1 = highest(far - maxOY, far - minOY, minIY, maxIY);
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        if (tMin > tMax) return true;
+        near = bounds[b + 2 + 3 * signZ];
+        far = bounds[b + 5 - 3 * signZ];
+        t0 = lowest(near - maxOZ, near - minOZ, minIZ, maxIZ);
+        t1 = highest(far - maxOZ, far - minOZ, minIZ, maxIZ);
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        return tMin > tMax;
+    }
+
+    /**
+     * Calculates the lower bound of the product of two ranges
+     *
+     * @param a0 the lower bound of the first range
+     * @param a1 the upper bound of the first range
+     * @param b0 the lower bound of the second range
+     * @param b1 the upper bound of the second range
+     * @return the lower bound, NaN if a product of the bounds is undefined
+     */
+    private static double lowest(double a0, double a1, double b0, double b1) {
+        return Math.min(Math.min(a0 * b0, a0 * b1), Math.min(a1 * b0, a1 * b1));
+    }
+
+    /**
+     * Calculates the upper bound of the product of two ranges
+     *
+     * @param a0 the lower bound of the first range
+     * @param a1 the upper bound of the first range
+     * @param b0 the lower bound of the second range
+     * @param b1 the upper bound of the second range
+     * @return the upper bound, NaN if a product of the bounds is undefined
+     */
+    private static double highest(double a0, double a1, double b0, double b1) {
+        return Math.max(Math.max(a0 * b0, a0 * b1), Math.max(a1 * b0, a1 * b1));
+    }
+}
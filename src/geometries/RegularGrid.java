@@ -0,0 +1,392 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Uniform voxel grid acceleration structure over a collection of geometries.
+ * <p>
+ * The bounding box of all the finite geometries is divided into equal cells, and every
+ * geometry is registered in each cell its bounding box overlaps. A ray visits only the
+ * cells it passes through, in order along the ray (3D-DDA traversal), so the closest hit
+ * is usually found after testing a handful of geometries instead of all of them.
+ * Unbounded geometries (planes, tubes) cannot be placed in cells - they are kept in a
+ * separate list and are tested for every ray.
+ * <p>
+ * The grid is built once from the geometries given at construction and must be rebuilt
+ * if the geometries change.
+ */
+public class RegularGrid extends Intersectable {
+    /** Desired average amount of geometries per cell */
+    private static final double DENSITY = 3;
+    /** Maximal amount of cells along a single axis */
+    private static final int MAX_RESOLUTION = 128;
+
+    /** Finite geometries placed in the grid cells */
+    private final Intersectable[] objects;
+    /** Unbounded geometries that are tested for every ray */
+    private final Intersectable[] infinite;
+
+    /** Grid bounds */
+    private final double minX, minY, minZ, maxX, maxY, maxZ;
+    /** Amount of cells along each axis */
+    private final int nx, ny, nz;
+    /** Cell sizes along each axis */
+    private final double cellX, cellY, cellZ;
+    /** Indices of the objects registered in each cell ({@code null} for an empty cell) */
+    private final int[][] cells;
+
+    /**
+     * Per-thread mailbox preventing repeated tests of a geometry spanning several cells
+     * during a single ray query
+     */
+    private final ThreadLocal<Mailbox> mailboxes;
+
+    /**
+     * Mailbox of the ray queries of a single thread: the last query id each object was tested in
+     */
+    private static final class Mailbox {
+        /** Query id per object */
+        final int[] stamps;
+        /** Current query id */
+        int query = 0;
+
+        /**
+         * Constructs a mailbox for the given amount of objects
+         *
+         * @param size amount of objects
+         */
+        Mailbox(int size) {
+            stamps = new int[size];
+        }
+
+        /**
+         * Starts a new ray query
+         */
+        void next() {
+            if (++query == 0) {
+                Arrays.fill(stamps, 0);
+                query = 1;
+            }
+        }
+
+        /**
+         * Marks an object as tested in the current query
+         *
+         * @param index the object index
+         * @return true if the object has not been tested yet in the current query
+         */
+        boolean mark(int index) {
+            if (stamps[index] == query) return false;
+            stamps[index] = query;
+            return true;
+        }
+    }
+
+    /**
+     * Builds a grid over the geometries of the collection. Nested collections are flattened
+     * so that their members are distributed into the cells separately.
+     *
+     * @param geometries the geometries to put into the grid
+     */
+    public RegularGrid(Geometries geometries) {
+        List<Intersectable> finite = new ArrayList<>();
+        List<Intersectable> unbounded = new ArrayList<>();
+        flatten(geometries, finite, unbounded);
+        objects = finite.toArray(new Intersectable[0]);
+        infinite = unbounded.toArray(new Intersectable[0]);
+        mailboxes = ThreadLocal.withInitial(() -> new Mailbox(objects.length));
+
+        if (objects.length == 0) {
+            minX = minY = minZ = maxX = maxY = maxZ = 0;
+            nx = ny = nz = 0;
+            cellX = cellY = cellZ = 0;
+            cells = new int[0][];
+            return;
+        }
+
+        BoundingBox box = objects[0].getBoundingBox();
+        for (Intersectable object : objects)
+            box = box.union(object.getBoundingBox());
+        boundingBox = infinite.length == 0 ? box : null;
+        minX = box.minX();
+        minY = box.minY();
+        minZ = box.minZ();
+        maxX = box.maxX();
+        maxY = box.maxY();
+        maxZ = box.maxZ();
+
+        // Choose the resolution so that there are about DENSITY objects per cell;
+        // thin dimensions are inflated for the volume estimate to keep flat scenes reasonable
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        double minDim = Math.max(dx, Math.max(dy, dz)) * 0.01;
+        double volume = Math.max(dx, minDim) * Math.max(dy, minDim) * Math.max(dz, minDim);
+        double cellsPerUnit = Math.cbrt(DENSITY * objects.length / volume);
+        nx = resolution(dx, cellsPerUnit);
+        ny = resolution(dy, cellsPerUnit);
+        nz = resolution(dz, cellsPerUnit);
+        cellX = dx / nx;
+        cellY = dy / ny;
+        cellZ = dz / nz;
+
+        // the cells are filled in two passes - counting the objects of every cell, then storing them
+        int[] counts = new int[nx * ny * nz];
+        cells = new int[counts.length][];
+        for (int pass = 0; pass < 2; ++pass) {
+            if (pass == 1) {
+                for (int c = 0; c < counts.length; ++c)
+                    if (counts[c] > 0) cells[c] = new int[counts[c]];
+                Arrays.fill(counts, 0);
+            }
+            for (int i = 0; i < objects.length; ++i) {
+                BoundingBox b = objects[i].getBoundingBox();
+                int x0 = cellIndex(b.minX(), minX, cellX, nx), x1 = cellIndex(b.maxX(), minX, cellX, nx);
+                int y0 = cellIndex(b.minY(), minY, cellY, ny), y1 = cellIndex(b.maxY(), minY, cellY, ny);
+                int z0 = cellIndex(b.minZ(), minZ, cellZ, nz), z1 = cellIndex(b.maxZ(), minZ, cellZ, nz);
+                for (int z = z0; z <= z1; ++z)
+                    for (int y = y0; y <= y1; ++y)
+                        for (int x = x0; x <= x1; ++x) {
+                            int c = (z * ny + y) * nx + x;
+                            if (pass == 1) cells[c][counts[c]] = i;
+                            ++counts[c];
+                        }
+            }
+        }
+    }
+
+    /**
+     * Splits the geometries into finite and unbounded ones, flattening nested collections
+     *
+     * @param geometries the collection to flatten
+     * @param finite     the list of bounded geometries to fill
+     * @param unbounded  the list of unbounded geometries to fill
+     */
+    private static void flatten(Geometries geometries, List<Intersectable> finite, List<Intersectable> unbounded) {
+        for (Intersectable geometry : geometries.getGeometries()) {
+            if (geometry instanceof Geometries nested)
+                flatten(nested, finite, unbounded);
+            else if (geometry.getBoundingBox() == null)
+                unbounded.add(geometry);
+            else
+                finite.add(geometry);
+        }
+    }
+
+    /**
+     * Calculates the amount of cells along an axis
+     *
+     * @param size         the grid size along the axis
+     * @param cellsPerUnit desired amount of cells per unit of length
+     * @return amount of cells
+     */
+    private static int resolution(double size, double cellsPerUnit) {
+        return (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.round(size * cellsPerUnit)));
+    }
+
+    /**
+     * Finds the cell index of a coordinate along an axis (clamped into the grid)
+     *
+     * @param value the coordinate
+     * @param min   the grid minimal coordinate along the axis
+     * @param cell  the cell size along the axis
+     * @param n     the amount of cells along the axis
+     * @return the cell index
+     */
+    private static int cellIndex(double value, double min, double cell, int n) {
+        int i = (int) ((value - min) / cell);
+        return i < 0 ? 0 : i >= n ? n - 1 : i;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        List<Intersection> intersections = null;
+        for (Intersectable geometry : infinite) {
+            var list = geometry.calculateIntersections(ray, maxDistance);
+            if (list != null) {
+                if (intersections == null) intersections = new LinkedList<>();
+                intersections.addAll(list);
+            }
+        }
+        Traversal traversal = new Traversal(ray, maxDistance);
+        while (traversal.hasCell()) {
+            int[] cell = traversal.cell();
+            if (cell != null)
+                for (int index : cell) {
+                    if (!traversal.mailbox.mark(index)) continue;
+                    var list = objects[index].calculateIntersections(ray, maxDistance);
+                    if (list != null) {
+                        if (intersections == null) intersections = new LinkedList<>();
+                        intersections.addAll(list);
+                    }
+                }
+            traversal.advance();
+        }
+        return intersections;
+    }
+
+    /**
+     * Finds the closest intersection of the ray with the geometries in the grid.
+     * <p>
+     * The cells are visited in order along the ray, and the traversal stops as soon as the
+     * closest hit found so far lies before the exit from the current cell - no geometry in the
+     * following cells can be hit closer.
+     */
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double closest = Double.POSITIVE_INFINITY;
+        for (Intersectable geometry : infinite) {
+            double distance = geometry.calculateClosestDistanceHelper(ray, maxDistance, hit);
+            if (distance != Double.POSITIVE_INFINITY) {
+                closest = distance;
+                maxDistance = distance;
+            }
+        }
+
+        Traversal traversal = new Traversal(ray, maxDistance);
+        while (traversal.hasCell()) {
+            int[] cell = traversal.cell();
+            if (cell != null)
+                for (int index : cell) {
+                    if (!traversal.mailbox.mark(index)) continue;
+                    double distance = objects[index].calculateClosestDistanceHelper(ray, maxDistance, hit);
+                    if (distance != Double.POSITIVE_INFINITY) {
+                        closest = distance;
+                        maxDistance = distance;
+                    }
+                }
+            // all the geometries that can be hit before the cell exit have been tested already
+            if (maxDistance <= traversal.cellExit()) break;
+            traversal.advance();
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        for (Intersectable geometry : infinite) {
+            ktr = geometry.calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+            if (ktr.lowerThan(minK)) return Double3.ZERO;
+        }
+        Traversal traversal = new Traversal(ray, maxDistance);
+        while (traversal.hasCell()) {
+            int[] cell = traversal.cell();
+            if (cell != null)
+                for (int index : cell) {
+                    if (!traversal.mailbox.mark(index)) continue;
+                    ktr = objects[index].calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+                    if (ktr.lowerThan(minK)) return Double3.ZERO;
+                }
+            traversal.advance();
+        }
+        return ktr;
+    }
+
+    /**
+     * 3D-DDA walk of a ray through the grid cells
+     */
+    private final class Traversal {
+        /** Mailbox of the current thread (already advanced to the new query) */
+        final Mailbox mailbox = mailboxes.get();
+        /** Current cell coordinates */
+        private int ix, iy, iz;
+        /** Cell step per axis */
+        private int stepX, stepY, stepZ;
+        /** Distance along the ray to the next cell border per axis */
+        private double nextX, nextY, nextZ;
+        /** Distance along the ray between cell borders per axis */
+        private double deltaX, deltaY, deltaZ;
+        /** Distance along the ray of the exit from the grid */
+        private double exit;
+        /** Whether there is a current cell */
+        private boolean inside;
+
+        /**
+         * Initializes the walk by finding the cell where the ray enters the grid
+         *
+         * @param ray         the ray
+         * @param maxDistance maximal distance along the ray
+         */
+        Traversal(Ray ray, double maxDistance) {
+            mailbox.next();
+            if (cells.length == 0) return;
+
+            double ox = ray.ox, oy = ray.oy, oz = ray.oz;
+            double dx = ray.dx, dy = ray.dy, dz = ray.dz;
+
+            // Slab test against the grid bounds, the sign bits of the ray select the near bounds
+            double enter = 0;
+            exit = maxDistance;
+            double t0 = ((ray.signX == 0 ? minX : maxX) - ox) * ray.ix;
+            double t1 = ((ray.signX == 0 ? maxX : minX) - ox) * ray.ix;
+            if (t0 > enter) enter = t0;
+            if (t1 < exit) exit = t1;
+            t0 = ((ray.signY == 0 ? minY : maxY) - oy) * ray.iy;
+            t1 = ((ray.signY == 0 ? maxY : minY) - oy) * ray.iy;
+            if (t0 > enter) enter = t0;
+            if (t1 < exit) exit = t1;
+            t0 = ((ray.signZ == 0 ? minZ : maxZ) - oz) * ray.iz;
+            t1 = ((ray.signZ == 0 ? maxZ : minZ) - oz) * ray.iz;
+            if (t0 > enter) enter = t0;
+            if (t1 < exit) exit = t1;
+            if (enter > exit) return;
+
+            ix = cellIndex(ox + dx * enter, minX, cellX, nx);
+            iy = cellIndex(oy + dy * enter, minY, cellY, ny);
+            iz = cellIndex(oz + dz * enter, minZ, cellZ, nz);
+
+            stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+            stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+            stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+            nextX = stepX == 0 ? Double.POSITIVE_INFINITY : (minX + (ix + (stepX > 0 ? 1 : 0)) * cellX - ox) * ray.ix;
+            nextY = stepY == 0 ? Double.POSITIVE_INFINITY : (minY + (iy + (stepY > 0 ? 1 : 0)) * cellY - oy) * ray.iy;
+            nextZ = stepZ == 0 ? Double.POSITIVE_INFINITY : (minZ + (iz + (stepZ > 0 ? 1 : 0)) * cellZ - oz) * ray.iz;
+            deltaX = cellX * Math.abs(ray.ix);
+            deltaY = cellY * Math.abs(ray.iy);
+            deltaZ = cellZ * Math.abs(ray.iz);
+            inside = true;
+        }
+
+        /**
+         * @return true if the walk has not left the grid yet
+         */
+        boolean hasCell() {
+            return inside;
+        }
+
+        /**
+         * @return the object indices of the current cell, or {@code null} if it is empty
+         */
+        int[] cell() {
+            return cells[(iz * ny + iy) * nx + ix];
+        }
+
+        /**
+         * @return distance along the ray where it leaves the current cell
+         */
+        double cellExit() {
+            return Math.min(Math.min(nextX, nextY), Math.min(nextZ, exit));
+        }
+
+        /**
+         * Steps into the next cell along the ray
+         */
+        void advance() {
+            if (nextX <= nextY && nextX <= nextZ) {
+                if (nextX >= exit || (ix += stepX) < 0 || ix >= nx) inside = false;
+                nextX += deltaX;
+            } else if (nextY <= nextZ) {
+                if (nextY >= exit || (iy += stepY) < 0 || iy >= ny) inside = false;
+                nextY += deltaY;
+            } else {
+                if (nextZ >= exit || (iz += stepZ) < 0 || iz >= nz) inside = false;
+                nextZ += deltaZ;
+            }
+        }
+    }
+}
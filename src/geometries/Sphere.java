@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.BoundingBox;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Util;
@@ -19,6 +20,9 @@ public class Sphere extends RadialGeometry {
      */
     private final Point center;
 
+    /** Coordinates of the center, for the intersection kernels */
+    private final double cx, cy, cz;
+
     /**
      * Constructs a {@code Sphere} with a given radius and center.
      * A sphere is defined by a single point (its center) and a radius extending uniformly in all directions.
@@ -29,6 +33,10 @@ public class Sphere extends RadialGeometry {
     public Sphere(double radius, Point center) {
         super(radius);
         this.center = center;
+        cx = center.getX();
+        cy = center.getY();
+        cz = center.getZ();
+        this.boundingBox = BoundingBox.around(center, radius, radius, radius);
     }
 
     /**
@@ -41,31 +49,54 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center, double radius) {
         super(radius);
         this.center = center;
+        cx = center.getX();
+        cy = center.getY();
+        cz = center.getZ();
+        this.boundingBox = BoundingBox.around(center, radius, radius, radius);
     }
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper (Ray ray, double maxDistance) {
-        if (this.center.equals(ray.getHead()))
-            return List.of(new Intersection(this, ray.getPoint(this.radius)));
-        Vector u = this.center.subtract(ray.getHead());
-        double tm = ray.getDirection().dotProduct(u);
-        double d = Math.sqrt(u.lengthSquared() - tm * tm);
-        if (d >= this.radius) {
+        double ux = cx - ray.ox, uy = cy - ray.oy, uz = cz - ray.oz;
+        double tm = ray.dx * ux + ray.dy * uy + ray.dz * uz;
+        double d2 = ux * ux + uy * uy + uz * uz - tm * tm;
+        double r2 = this.radius * this.radius;
+        if (d2 >= r2) {
             return null; // No intersection
         }
-        double th = Math.sqrt(this.radius * this.radius - d * d);
+        double th = Math.sqrt(r2 - d2);
         double t1 = tm - th;
         double t2 = tm + th;
-        if (t1 > 0 && t2 > 0 && Util.alignZero(t1 - maxDistance) < 0 && Util.alignZero(t2 - maxDistance) < 0) {
-            return List.of(new Intersection(this, ray.getPoint(t1)),new Intersection(this,  ray.getPoint(t2)));
-        } else if (t1 > 0 && Util.alignZero(t1 - maxDistance) < 0) {
-            return List.of(new Intersection(this, ray.getPoint(t1)));
-        } else if (t2 > 0 && Util.alignZero(t2 - maxDistance) < 0) {
-            return List.of(new Intersection(this, ray.getPoint(t2)));
+        boolean hit1 = t1 > 0 && Util.alignZero(t1 - maxDistance) < 0;
+        boolean hit2 = t2 > 0 && Util.alignZero(t2 - maxDistance) < 0;
+        if (hit1 && hit2) {
+            return List.of(new Intersection(this, ray.getPoint(t1), t1), new Intersection(this, ray.getPoint(t2), t2));
+        } else if (hit1) {
+            return List.of(new Intersection(this, ray.getPoint(t1), t1));
+        } else if (hit2) {
+            return List.of(new Intersection(this, ray.getPoint(t2), t2));
         }
         return null;
     }
 
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        // a ray starting at the center gives tm = 0 and the hit at the radius
+        double ux = cx - ray.ox, uy = cy - ray.oy, uz = cz - ray.oz;
+        double tm = ray.dx * ux + ray.dy * uy + ray.dz * uz;
+        double d2 = ux * ux + uy * uy + uz * uz - tm * tm;
+        double r2 = this.radius * this.radius;
+        if (d2 >= r2) {
+            return Double.POSITIVE_INFINITY; // No intersection
+        }
+        double th = Math.sqrt(r2 - d2);
+        double t = tm - th;
+        if (t <= 0) t = tm + th;
+        if (t <= 0 || Util.alignZero(t - maxDistance) >= 0) return Double.POSITIVE_INFINITY;
+        if (hit != null) hit.set(this, Hit.WHOLE, t);
+        return t;
+    }
+
     /**
      * Returns the normal vector of the sphere at a given point.
      *
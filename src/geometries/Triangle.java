@@ -2,9 +2,6 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
-
-import java.util.List;
 
 /**
  * The {@code Triangle} class represents a two-dimensional triangle in a 3D Cartesian coordinate system.
@@ -29,39 +26,28 @@ public class Triangle extends Polygon {
     }
 
     @Override
-    protected List<Intersection> calculateIntersectionsHelper (Ray ray, double maxDistance) {
-        List<Intersection> intersections = this.plane.calculateIntersections(ray, maxDistance);
-        if (intersections == null) {
-            return null;
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double t = this.plane.intersectionDistance(ray, maxDistance);
+        if (t == 0) {
+            return Double.POSITIVE_INFINITY;
         }
 
-        Point p0 = ray.getHead();
-        Point p1 = vertices.get(0);
-        Point p2 = vertices.get(1);
-        Point p3 = vertices.get(2);
-
-        Vector v = ray.getDirection();
-        Vector v1 = p1.subtract(p0);
-        Vector v2 = p2.subtract(p0);
-        Vector v3 = p3.subtract(p0);
+        double ox = ray.ox, oy = ray.oy, oz = ray.oz;
+        double vx = ray.dx, vy = ray.dy, vz = ray.dz;
+        double x1 = coordinates[0] - ox, y1 = coordinates[1] - oy, z1 = coordinates[2] - oz;
+        double x2 = coordinates[3] - ox, y2 = coordinates[4] - oy, z2 = coordinates[5] - oz;
+        double x3 = coordinates[6] - ox, y3 = coordinates[7] - oy, z3 = coordinates[8] - oz;
 
-        Vector n1 = v1.crossProduct(v2).normalize();
-        Vector n2 = v2.crossProduct(v3).normalize();
-        Vector n3 = v3.crossProduct(v1).normalize();
-
-        double sign1 = v.dotProduct(n1);
-        double sign2 = v.dotProduct(n2);
-        double sign3 = v.dotProduct(n3);
+        double sign1 = vx * (y1 * z2 - z1 * y2) + vy * (z1 * x2 - x1 * z2) + vz * (x1 * y2 - y1 * x2);
+        double sign2 = vx * (y2 * z3 - z2 * y3) + vy * (z2 * x3 - x2 * z3) + vz * (x2 * y3 - y2 * x3);
+        double sign3 = vx * (y3 * z1 - z3 * y1) + vy * (z3 * x1 - x3 * z1) + vz * (x3 * y1 - y3 * x1);
 
         if ((sign1 > 0 && sign2 > 0 && sign3 > 0) ||
                 (sign1 < 0 && sign2 < 0 && sign3 < 0)) {
-            return List.of(new Intersection(this, intersections.getFirst().point));
+            if (hit != null) hit.set(this, Hit.WHOLE, t);
+            return t;
         }
 
-        return null;
+        return Double.POSITIVE_INFINITY;
     }
-
-
-
 }
-
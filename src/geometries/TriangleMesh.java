@@ -0,0 +1,338 @@
+package geometries;
+
+import primitives.BoundingBox;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Indexed triangle mesh - many triangles sharing one material, stored in primitive arrays.
+ * <p>
+ * The vertices are kept in one {@code double[]} (3 coordinates per vertex) and the triangles
+ * in one {@code int[]} (3 vertex indices per triangle), so a triangle costs a few array slots
+ * instead of the objects of a {@link Triangle}. For the intersection tests every triangle is
+ * precomputed as its first vertex and its two edges from that vertex, and the triangles are
+ * intersected by the Möller–Trumbore algorithm through a bounding volume hierarchy built over
+ * them in the flat layout of {@link BvhBuilder}. The precomputed triangles are stored as planes of
+ * coordinates in the order of the leaves, so the triangles of a leaf are tested together by
+ * {@link BatchKernels}.
+ * <p>
+ * The normal of a triangle follows its vertex order (counterclockwise when looking against
+ * the normal). The intersections are reported with their normal already set; finding the
+ * normal by {@link #getNormal(Point)} requires searching the triangles. Unlike
+ * {@link Triangle}, hits on the edges of the triangles are reported, so the mesh has no
+ * cracks between its adjacent triangles. Degenerate (zero area) triangles are ignored.
+ */
+public class TriangleMesh extends Geometry {
+    /** Padding added around the boxes of the triangles, as in {@link BoundingBox} */
+    private static final double PADDING = 1e-6;
+    /** Initial size of the traversal stack (it grows for unusually deep trees) */
+    private static final int STACK_SIZE = 64;
+    /**
+     * Cost of traversing a node of the hierarchy relatively to intersecting one triangle -
+     * a triangle test costs about as much as a box test, so the leaves hold a few triangles
+     */
+    private static final double TRAVERSAL_COST = 1.5;
+    /**
+     * Threshold of the squared sine of the angle between the edges of a triangle under which it
+     * is degenerate - relative to the edges, so the triangles of small scanned meshes are kept
+     */
+    private static final double DEGENERATE = 0x1p-80;
+    /** Amount of precomputed values per triangle: the first vertex and two edges */
+    private static final int TRIANGLE = 9;
+    /** The kernels intersecting the triangles of the leaves */
+    private static final BatchKernels KERNELS = BatchKernels.INSTANCE;
+
+    /** Vertex coordinates, 3 values per vertex */
+    private final double[] vertices;
+    /** Vertex indices of the triangles, 3 values per triangle */
+    private final int[] indices;
+    /**
+     * Precomputed triangles in the order of the hierarchy leaves, {@value #TRIANGLE} planes of
+     * {@link #size} values (a plane per coordinate of the first vertex and the edges)
+     */
+    private final double[] triangles;
+    /** Amount of the precomputed (non-degenerate) triangles */
+    private final int size;
+    /** Boxes of the hierarchy nodes, 6 values per node */
+    private final double[] bounds;
+    /** Links of the hierarchy nodes, 2 values per node */
+    private final int[] nodes;
+
+    /**
+     * Constructs a mesh. The arrays are used as they are (not copied) and must not be changed later.
+     *
+     * @param vertices vertex coordinates, 3 values per vertex
+     * @param indices  vertex indices of the triangles, 3 values per triangle
+     * @throws IllegalArgumentException if the arrays are malformed or there is no non-degenerate triangle
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        this(vertices, indices, null);
+    }
+
+    /**
+     * Constructs a mesh, building its hierarchy in parallel on the given pool.
+     * The arrays are used as they are (not copied) and must not be changed later.
+     *
+     * @param vertices vertex coordinates, 3 values per vertex
+     * @param indices  vertex indices of the triangles, 3 values per triangle
+     * @param pool     the pool to build the hierarchy on, {@code null} for a sequential build
+     * @throws IllegalArgumentException if the arrays are malformed or there is no non-degenerate triangle
+     */
+    public TriangleMesh(double[] vertices, int[] indices, ForkJoinPool pool) {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("Vertices array must hold 3 coordinates per vertex");
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("Indices array must hold 3 vertex indices per triangle");
+        int vertexCount = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Vertex index out of range: " + index);
+        this.vertices = vertices;
+        this.indices = indices;
+
+        // Precompute the non-degenerate triangles and their boxes
+        int total = indices.length / 3;
+        double[] data = new double[TRIANGLE * total];
+        double[] boxes = new double[6 * total];
+        int count = 0;
+        for (int i = 0; i < total; ++i) {
+            int a = 3 * indices[3 * i], b = 3 * indices[3 * i + 1], c = 3 * indices[3 * i + 2];
+            int o = TRIANGLE * count;
+            for (int axis = 0; axis < 3; ++axis) {
+                data[o + axis] = vertices[a + axis];
+                data[o + 3 + axis] = vertices[b + axis] - vertices[a + axis];
+                data[o + 6 + axis] = vertices[c + axis] - vertices[a + axis];
+            }
+            double nx = data[o + 4] * data[o + 8] - data[o + 5] * data[o + 7];
+            double ny = data[o + 5] * data[o + 6] - data[o + 3] * data[o + 8];
+            double nz = data[o + 3] * data[o + 7] - data[o + 4] * data[o + 6];
+            double e1 = data[o + 3] * data[o + 3] + data[o + 4] * data[o + 4] + data[o + 5] * data[o + 5];
+            double e2 = data[o + 6] * data[o + 6] + data[o + 7] * data[o + 7] + data[o + 8] * data[o + 8];
+            if (nx * nx + ny * ny + nz * nz <= DEGENERATE * e1 * e2) continue;
+            for (int axis = 0; axis < 3; ++axis) {
+                double va = vertices[a + axis], vb = vertices[b + axis], vc = vertices[c + axis];
+                boxes[6 * count + axis] = Math.min(va, Math.min(vb, vc)) - PADDING;
+                boxes[6 * count + 3 + axis] = Math.max(va, Math.max(vb, vc)) + PADDING;
+            }
+            ++count;
+        }
+        if (count == 0)
+            throw new IllegalArgumentException("Mesh must have at least one non-degenerate triangle");
+
+        BvhBuilder.Tree tree = BvhBuilder.build(boxes, count, TRAVERSAL_COST, pool);
+        bounds = tree.bounds();
+        nodes = tree.nodes();
+        size = count;
+        triangles = new double[TRIANGLE * count];
+        int[] order = tree.order();
+        for (int i = 0; i < count; ++i)
+            for (int c = 0; c < TRIANGLE; ++c)
+                triangles[c * count + i] = data[TRIANGLE * order[i] + c];
+        boundingBox = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    /**
+     * Returns the amount of the triangles of the mesh (including the degenerate ones)
+     *
+     * @return the amount of the triangles
+     */
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * Returns the amount of the vertices of the mesh
+     *
+     * @return the amount of the vertices
+     */
+    public int getVertexCount() {
+        return vertices.length / 3;
+    }
+
+    /**
+     * Calculates the normal of a precomputed triangle
+     *
+     * @param k the precomputed triangle index
+     * @return the unit normal
+     */
+    private Vector normal(int k) {
+        double e1x = triangles[3 * size + k], e1y = triangles[4 * size + k], e1z = triangles[5 * size + k];
+        double e2x = triangles[6 * size + k], e2y = triangles[7 * size + k], e2z = triangles[8 * size + k];
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        // the cross product of tiny edges is scaled up first - the vector rejects near zero coordinates
+        double scale = 1 / Math.max(Math.abs(nx), Math.max(Math.abs(ny), Math.abs(nz)));
+        return new Vector(nx * scale, ny * scale, nz * scale).normalize();
+    }
+
+    /**
+     * Creates the intersection with a precomputed triangle, with its normal set
+     *
+     * @param ray the ray
+     * @param k   the precomputed triangle index
+     * @param t   the distance to the intersection
+     * @return the intersection
+     */
+    private Intersection intersection(Ray ray, int k, double t) {
+        Intersection intersection = new Intersection(this, ray.getPoint(t), t);
+        intersection.normal = normal(k);
+        return intersection;
+    }
+
+    @Override
+    public Vector getNormal(Point point) {
+        // Find the triangle the point lies on: the nearest plane among the triangles containing its projection
+        double px = point.getX(), py = point.getY(), pz = point.getZ();
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < size; ++k) {
+            double e1x = triangles[3 * size + k], e1y = triangles[4 * size + k], e1z = triangles[5 * size + k];
+            double e2x = triangles[6 * size + k], e2y = triangles[7 * size + k], e2z = triangles[8 * size + k];
+            double sx = px - triangles[k], sy = py - triangles[size + k], sz = pz - triangles[2 * size + k];
+            // barycentric coordinates of the projection of the point
+            double d11 = e1x * e1x + e1y * e1y + e1z * e1z;
+            double d12 = e1x * e2x + e1y * e2y + e1z * e2z;
+            double d22 = e2x * e2x + e2y * e2y + e2z * e2z;
+            double s1 = sx * e1x + sy * e1y + sz * e1z;
+            double s2 = sx * e2x + sy * e2y + sz * e2z;
+            double denominator = d11 * d22 - d12 * d12;
+            double u = (d22 * s1 - d12 * s2) / denominator;
+            double v = (d11 * s2 - d12 * s1) / denominator;
+            if (u < -PADDING || v < -PADDING || u + v > 1 + PADDING) continue;
+            double dx = sx - u * e1x - v * e2x, dy = sy - u * e1y - v * e2y, dz = sz - u * e1z - v * e2z;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = k;
+            }
+        }
+        if (best < 0)
+            throw new IllegalArgumentException("Point is not on the mesh");
+        return normal(best);
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        List<Intersection> intersections = new LinkedList<>();
+        traverse(ray, maxDistance, Integer.MAX_VALUE, intersections);
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+
+        // Front-to-back traversal: the nearer child is visited first and nodes entered
+        // beyond the closest hit found so far are skipped
+        int closest = -1;
+        int[] stack = new int[STACK_SIZE];
+        double[] entries = new double[STACK_SIZE];
+        double[] distances = new double[BvhBuilder.MAX_LEAF_SIZE];
+        int top = 0;
+        double rootEntry = BVH.entry(bounds, 0, ray, maxDistance);
+        if (rootEntry == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+        stack[0] = 0;
+        entries[0] = rootEntry;
+        ++top;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entries[top] >= maxDistance) continue;
+            int link = nodes[2 * node];
+            int count = nodes[2 * node + 1];
+            if (count > 0) {
+                if (count > distances.length) distances = new double[count];
+                KERNELS.triangles(triangles, size, link, count, ray, maxDistance, distances);
+                for (int i = 0; i < count; ++i) {
+                    if (distances[i] < maxDistance) {
+                        closest = link + i;
+                        maxDistance = distances[i];
+                    }
+                }
+                continue;
+            }
+            double first = BVH.entry(bounds, node + 1, ray, maxDistance);
+            double second = BVH.entry(bounds, link, ray, maxDistance);
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            // push the farther child first so that the nearer one is popped first
+            boolean firstNear = first <= second;
+            double farEntry = firstNear ? second : first;
+            double nearEntry = firstNear ? first : second;
+            if (farEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = firstNear ? link : node + 1;
+                entries[top++] = farEntry;
+            }
+            if (nearEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = firstNear ? node + 1 : link;
+                entries[top++] = nearEntry;
+            }
+        }
+        if (closest < 0) return Double.POSITIVE_INFINITY;
+        if (hit != null) hit.set(this, closest, maxDistance);
+        return maxDistance;
+    }
+
+    @Override
+    protected Intersection createIntersection(Ray ray, Hit hit) {
+        return intersection(ray, hit.primitive, hit.distance);
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        Double3 kT = getMaterial().kT;
+        // Amount of hits that block the ray - unlimited if some color component is not attenuated
+        int limit = Integer.MAX_VALUE;
+        if (kT.lowerThan(1)) {
+            limit = 1;
+            for (Double3 k = ktr.product(kT); !k.lowerThan(minK); k = k.product(kT)) ++limit;
+        }
+        int hits = traverse(ray, maxDistance, limit, null);
+        if (hits >= limit) return Double3.ZERO;
+        for (int i = 0; i < hits; ++i) ktr = ktr.product(kT);
+        return ktr;
+    }
+
+    /**
+     * Finds the intersections of a ray with the triangles, in any order
+     *
+     * @param ray           the ray
+     * @param maxDistance   the distance beyond which the intersections are ignored
+     * @param limit         the amount of intersections after which the search stops
+     * @param intersections the list to add the intersections to, {@code null} if only their amount is needed
+     * @return the amount of the intersections found (at most the limit)
+     */
+    private int traverse(Ray ray, double maxDistance, int limit, List<Intersection> intersections) {
+        int hits = 0;
+        int[] stack = new int[STACK_SIZE];
+        double[] distances = new double[BvhBuilder.MAX_LEAF_SIZE];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (BVH.entry(bounds, node, ray, maxDistance) == Double.POSITIVE_INFINITY) continue;
+            int link = nodes[2 * node];
+            int count = nodes[2 * node + 1];
+            if (count > 0) {
+                if (count > distances.length) distances = new double[count];
+                KERNELS.triangles(triangles, size, link, count, ray, maxDistance, distances);
+                for (int i = 0; i < count; ++i) {
+                    if (distances[i] == Double.POSITIVE_INFINITY) continue;
+                    if (intersections != null) intersections.add(intersection(ray, link + i, distances[i]));
+                    if (++hits >= limit) return hits;
+                }
+                continue;
+            }
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = link;
+            stack[top++] = node + 1;
+        }
+        return hits;
+    }
+}
@@ -79,6 +79,63 @@ public class Tube extends RadialGeometry {
     }
 
 
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        double t = sideDistance(ray, maxDistance, Double.POSITIVE_INFINITY);
+        if (t != Double.POSITIVE_INFINITY && hit != null) hit.set(this, Hit.WHOLE, t);
+        return t;
+    }
+
+    /**
+     * Finds the distance to the nearest intersection of a ray with the side surface of the tube
+     * along a part of its axis, working on the coordinates only
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance beyond which the intersections are ignored
+     * @param height      the length of the part of the axis from its head
+     *                    ({@link Double#POSITIVE_INFINITY} for the whole tube)
+     * @return the distance, or {@link Double#POSITIVE_INFINITY} if there is no intersection
+     */
+    protected double sideDistance(Ray ray, double maxDistance, double height) {
+        double vx = ray.dx, vy = ray.dy, vz = ray.dz;
+        double wx = axis.dx, wy = axis.dy, wz = axis.dz;
+        double dx = ray.ox - axis.ox, dy = ray.oy - axis.oy, dz = ray.oz - axis.oz;
+
+        double vDotAxis = vx * wx + vy * wy + vz * wz;
+        double a = 1 - vDotAxis * vDotAxis;
+        if (Util.isZero(a)) return Double.POSITIVE_INFINITY;
+
+        double dPV = dx * vx + dy * vy + dz * vz;
+        double dPVA = dx * wx + dy * wy + dz * wz;
+        double b = 2 * (dPV - vDotAxis * dPVA);
+        double c = dx * dx + dy * dy + dz * dz - dPVA * dPVA - radius * radius;
+        double discriminant = b * b - 4 * a * c;
+        if (Util.isZero(discriminant) || discriminant < 0) return Double.POSITIVE_INFINITY;
+
+        double sqrtDisc = Math.sqrt(discriminant);
+        double t1 = (-b - sqrtDisc) / (2 * a);
+        if (sideHit(t1, maxDistance, dPVA + t1 * vDotAxis, height)) return t1;
+        double t2 = (-b + sqrtDisc) / (2 * a);
+        if (sideHit(t2, maxDistance, dPVA + t2 * vDotAxis, height)) return t2;
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks whether a root of the intersection equation is a hit on the side surface
+     *
+     * @param t           the distance along the ray
+     * @param maxDistance the distance beyond which the intersections are ignored
+     * @param along       the position of the point along the axis (from its head)
+     * @param height      the length of the part of the axis from its head
+     * @return true if the point is a hit
+     */
+    private static boolean sideHit(double t, double maxDistance, double along, double height) {
+        if (t <= 0 || Util.alignZero(t - maxDistance) >= 0) return false;
+        if (height == Double.POSITIVE_INFINITY) return true;
+        along = Util.alignZero(along);
+        return along > 0 && along < height;
+    }
+
     /**
      * Returns the normal vector of the tube at a given point.
      *
@@ -0,0 +1,168 @@
+package geometries;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import primitives.Ray;
+
+/**
+ * Intersection kernels by the Vector API: the boxes or triangles of a batch are tested in groups
+ * of the lanes of the preferred vector species, the conditional branches of the scalar kernels
+ * becoming lane masks. The operations are the same as the scalar ones in the same order (without
+ * fused multiply-add), so the results are exactly the same.
+ * <p>
+ * The class can only be loaded when the {@code jdk.incubator.vector} module is enabled, it is
+ * created by {@link BatchKernels#INSTANCE} only.
+ */
+final class VectorBatchKernels extends BatchKernels {
+    /** The vector shape of the platform */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    /** The vector shape of the quantized coordinates, 8 bytes */
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    /** Threshold of {@link primitives.Util#isZero(double)} (exponent below -40) */
+    private static final double ZERO = 0x1p-40;
+
+    /**
+     * Constructs the kernels
+     *
+     * @throws UnsupportedOperationException if the vector unit holds less than 2 values
+     */
+    VectorBatchKernels() {
+        if (SPECIES.length() < 2)
+            throw new UnsupportedOperationException("No vector unit for double values");
+    }
+
+    @Override
+    boolean isVector() {
+        return true;
+    }
+
+    @Override
+    void boxes(double[] boxes, int offset, int width, int count, Ray ray, double maxDistance, double[] entries) {
+        int nearX = offset + 3 * width * ray.signX, farX = offset + 3 * width * (1 - ray.signX);
+        int nearY = offset + width + 3 * width * ray.signY, farY = offset + width + 3 * width * (1 - ray.signY);
+        int nearZ = offset + 2 * width + 3 * width * ray.signZ;
+        int farZ = offset + 2 * width + 3 * width * (1 - ray.signZ);
+        DoubleVector infinity = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, count);
+            DoubleVector tMin = DoubleVector.zero(SPECIES);
+            DoubleVector tMax = DoubleVector.broadcast(SPECIES, maxDistance);
+            // a slab narrows the range by compare and blend rather than min/max, so that NaN is ignored
+            DoubleVector t0 = DoubleVector.fromArray(SPECIES, boxes, nearX + i, lanes).sub(ray.ox).mul(ray.ix);
+            DoubleVector t1 = DoubleVector.fromArray(SPECIES, boxes, farX + i, lanes).sub(ray.ox).mul(ray.ix);
+            tMin = tMin.blend(t0, t0.compare(VectorOperators.GT, tMin));
+            tMax = tMax.blend(t1, t1.compare(VectorOperators.LT, tMax));
+            t0 = DoubleVector.fromArray(SPECIES, boxes, nearY + i, lanes).sub(ray.oy).mul(ray.iy);
+            t1 = DoubleVector.fromArray(SPECIES, boxes, farY + i, lanes).sub(ray.oy).mul(ray.iy);
+            tMin = tMin.blend(t0, t0.compare(VectorOperators.GT, tMin));
+            tMax = tMax.blend(t1, t1.compare(VectorOperators.LT, tMax));
+            t0 = DoubleVector.fromArray(SPECIES, boxes, nearZ + i, lanes).sub(ray.oz).mul(ray.iz);
+            t1 = DoubleVector.fromArray(SPECIES, boxes, farZ + i, lanes).sub(ray.oz).mul(ray.iz);
+            tMin = tMin.blend(t0, t0.compare(VectorOperators.GT, tMin));
+            tMax = tMax.blend(t1, t1.compare(VectorOperators.LT, tMax));
+            tMin.blend(infinity, tMin.compare(VectorOperators.LE, tMax).not()).intoArray(entries, i, lanes);
+        }
+    }
+
+    @Override
+    void quantizedBoxes(double[] frames, byte[] boxes, int node, int width, int count, Ray ray, double maxDistance,
+                        double[] entries) {
+        int f = 6 * node;
+        double originX = frames[f], originY = frames[f + 1], originZ = frames[f + 2];
+        double stepX = frames[f + 3], stepY = frames[f + 4], stepZ = frames[f + 5];
+        int offset = 6 * width * node;
+        int nearX = offset + 3 * width * ray.signX, farX = offset + 3 * width * (1 - ray.signX);
+        int nearY = offset + width + 3 * width * ray.signY, farY = offset + width + 3 * width * (1 - ray.signY);
+        int nearZ = offset + 2 * width + 3 * width * ray.signZ;
+        int farZ = offset + 2 * width + 3 * width * (1 - ray.signZ);
+        DoubleVector infinity = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, count);
+            DoubleVector tMin = DoubleVector.zero(SPECIES);
+            DoubleVector tMax = DoubleVector.broadcast(SPECIES, maxDistance);
+            DoubleVector t0 = decode(boxes, nearX, i, count, originX, stepX).sub(ray.ox).mul(ray.ix);
+            DoubleVector t1 = decode(boxes, farX, i, count, originX, stepX).sub(ray.ox).mul(ray.ix);
+            tMin = tMin.blend(t0, t0.compare(VectorOperators.GT, tMin));
+            tMax = tMax.blend(t1, t1.compare(VectorOperators.LT, tMax));
+            t0 = decode(boxes, nearY, i, count, originY, stepY).sub(ray.oy).mul(ray.iy);
+            t1 = decode(boxes, farY, i, count, originY, stepY).sub(ray.oy).mul(ray.iy);
+            tMin = tMin.blend(t0, t0.compare(VectorOperators.GT, tMin));
+            tMax = tMax.blend(t1, t1.compare(VectorOperators.LT, tMax));
+            t0 = decode(boxes, nearZ, i, count, originZ, stepZ).sub(ray.oz).mul(ray.iz);
+            t1 = decode(boxes, farZ, i, count, originZ, stepZ).sub(ray.oz).mul(ray.iz);
+            tMin = tMin.blend(t0, t0.compare(VectorOperators.GT, tMin));
+            tMax = tMax.blend(t1, t1.compare(VectorOperators.LT, tMax));
+            tMin.blend(infinity, tMin.compare(VectorOperators.LE, tMax).not()).intoArray(entries, i, lanes);
+        }
+    }
+
+    /**
+     * Decodes the quantized coordinates of a group of lanes of a plane: the bytes are loaded
+     * 8 at a time and widened to the lanes of the double species
+     *
+     * @param boxes  the quantized boxes
+     * @param plane  the offset of the plane
+     * @param first  the index of the first lane in the plane
+     * @param count  the amount of the values of the plane
+     * @param origin the origin of the quantization frame
+     * @param step   the quantization step of the frame
+     * @return the coordinates
+     */
+    private static DoubleVector decode(byte[] boxes, int plane, int first, int count, double origin, double step) {
+        int base = first & -BYTES.length();
+        ByteVector bytes = ByteVector.fromArray(BYTES, boxes, plane + base, BYTES.indexInRange(base, count));
+        DoubleVector q = (DoubleVector) bytes.convertShape(VectorOperators.B2D, SPECIES,
+                                                           (first - base) / SPECIES.length());
+        // the bytes are unsigned
+        q = q.add(256, q.compare(VectorOperators.LT, 0));
+        return q.mul(step).add(origin);
+    }
+
+    @Override
+    void triangles(double[] triangles, int stride, int begin, int count, Ray ray, double maxDistance,
+                   double[] distances) {
+        double dx = ray.dx, dy = ray.dy, dz = ray.dz;
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        DoubleVector infinity = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, count);
+            int k = begin + i;
+            DoubleVector e1x = DoubleVector.fromArray(SPECIES, triangles, 3 * stride + k, lanes);
+            DoubleVector e1y = DoubleVector.fromArray(SPECIES, triangles, 4 * stride + k, lanes);
+            DoubleVector e1z = DoubleVector.fromArray(SPECIES, triangles, 5 * stride + k, lanes);
+            DoubleVector e2x = DoubleVector.fromArray(SPECIES, triangles, 6 * stride + k, lanes);
+            DoubleVector e2y = DoubleVector.fromArray(SPECIES, triangles, 7 * stride + k, lanes);
+            DoubleVector e2z = DoubleVector.fromArray(SPECIES, triangles, 8 * stride + k, lanes);
+            DoubleVector px = e2z.mul(dy).sub(e2y.mul(dz));
+            DoubleVector py = e2x.mul(dz).sub(e2z.mul(dx));
+            DoubleVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+            DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+            // the ray is parallel to the triangle plane
+            DoubleVector lengths = e1x.mul(e1x).add(e1y.mul(e1y)).add(e1z.mul(e1z))
+                    .mul(e2x.mul(e2x).add(e2y.mul(e2y)).add(e2z.mul(e2z)));
+            VectorMask<Double> miss = det.mul(det).compare(VectorOperators.LE, lengths.mul(PARALLEL));
+            DoubleVector inv = one.div(det);
+            DoubleVector sx = DoubleVector.broadcast(SPECIES, ray.ox).sub(DoubleVector.fromArray(SPECIES, triangles, k, lanes));
+            DoubleVector sy = DoubleVector.broadcast(SPECIES, ray.oy)
+                    .sub(DoubleVector.fromArray(SPECIES, triangles, stride + k, lanes));
+            DoubleVector sz = DoubleVector.broadcast(SPECIES, ray.oz)
+                    .sub(DoubleVector.fromArray(SPECIES, triangles, 2 * stride + k, lanes));
+            DoubleVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).mul(inv);
+            miss = miss.or(u.compare(VectorOperators.LT, 0)).or(u.compare(VectorOperators.GT, 1));
+            DoubleVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            DoubleVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            DoubleVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            DoubleVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(inv);
+            miss = miss.or(v.compare(VectorOperators.LT, 0)).or(u.add(v).compare(VectorOperators.GT, 1));
+            DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inv);
+            // t <= 0 and t >= maxDistance, both aligned to zero
+            miss = miss.or(t.abs().compare(VectorOperators.LT, ZERO)).or(t.compare(VectorOperators.LE, 0));
+            DoubleVector beyond = t.sub(maxDistance);
+            miss = miss.or(beyond.abs().compare(VectorOperators.LT, ZERO)).or(beyond.compare(VectorOperators.GE, 0));
+            t.blend(infinity, miss).intoArray(distances, i, lanes);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Wide bounding volume hierarchy (BVH4 / BVH8) - a collection of geometries that is queried
+ * through a tree of 4 or 8 children per node.
+ * <p>
+ * It is used like {@link BVH}: the geometries are added as to {@link Geometries} and the tree is
+ * built lazily on the first query after they have changed, or in advance by
+ * {@link #build(ForkJoinPool)}. The tree is the binary SAH tree of {@link BvhBuilder} collapsed
+ * into wide nodes (see {@link BvhBuilder#widen(BvhBuilder.Tree, int)}).
+ * <p>
+ * A node keeps its own box as a quantization frame and the boxes of its children as unsigned
+ * bytes relatively to it, rounded outwards, so the tree takes about a third of the memory of
+ * the binary one (6 doubles and 2 integers per node), and the traversal reads that much less.
+ * The boxes of all the children of a node are tested together by
+ * {@link BatchKernels#quantizedBoxes}, in one vector operation when the vector unit is enabled.
+ * The quantized boxes are slightly larger than the exact ones, so the hits are the same as with
+ * {@link BVH}, only a few more leaves may be visited.
+ * <p>
+ * A packet of coherent rays ({@link #calculateClosestIntersections(Ray[], int, Intersection[])})
+ * traverses the tree together as in {@link BVH}: the child boxes of a node are decoded once for
+ * the whole packet.
+ */
+public class WideBVH extends BoxHierarchy<BvhBuilder.WideTree> {
+    /** The kernels testing the child boxes of a node */
+    private static final BatchKernels KERNELS = BatchKernels.INSTANCE;
+
+    /** The maximal amount of children of a node */
+    private final int width;
+
+    /**
+     * Constructs a hierarchy containing the given geometries.
+     *
+     * @param width      the amount of children of a node - 4 or 8
+     * @param geometries the geometries to add
+     * @throws IllegalArgumentException if the width is neither 4 nor 8
+     */
+    public WideBVH(int width, Intersectable... geometries) {
+        super(geometries);
+        if (width != 4 && width != 8)
+            throw new IllegalArgumentException("Width of the hierarchy must be 4 or 8");
+        this.width = width;
+    }
+
+    @Override
+    protected BvhBuilder.WideTree layout(BvhBuilder.Tree built) {
+        return BvhBuilder.widen(built, width);
+    }
+
+    @Override
+    public WideBVH build(ForkJoinPool pool) {
+        super.build(pool);
+        return this;
+    }
+
+    @Override
+    protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        Tree<BvhBuilder.WideTree> t = tree();
+        List<Intersection> intersections = null;
+        for (Intersectable geometry : t.unbounded())
+            intersections = BVH.collect(intersections, geometry.calculateIntersections(ray, maxDistance));
+        if (t.layout() == null) return intersections;
+
+        int[] nodes = t.layout().nodes();
+        int stride = 1 + 2 * width;
+        double[] entries = new double[width];
+        int[] stack = new int[STACK_SIZE];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int children = nodes[stride * node];
+            KERNELS.quantizedBoxes(t.layout().frames(), t.layout().boxes(), node, width, children, ray, maxDistance, entries);
+            if (top + children > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            for (int i = 0; i < children; ++i) {
+                if (entries[i] == Double.POSITIVE_INFINITY) continue;
+                int link = nodes[stride * node + 1 + 2 * i];
+                int count = nodes[stride * node + 2 + 2 * i];
+                if (count == 0) {
+                    stack[top++] = link;
+                    continue;
+                }
+                for (int k = link; k < link + count; ++k)
+                    intersections = BVH.collect(intersections, t.objects()[k].calculateIntersections(ray, maxDistance));
+            }
+        }
+        return intersections;
+    }
+
+    @Override
+    protected double calculateClosestDistanceHelper(Ray ray, double maxDistance, Hit hit) {
+        Tree<BvhBuilder.WideTree> t = tree();
+        double closest = Double.POSITIVE_INFINITY;
+        for (Intersectable geometry : t.unbounded()) {
+            double distance = geometry.calculateClosestDistanceHelper(ray, maxDistance, hit);
+            if (distance != Double.POSITIVE_INFINITY) {
+                closest = distance;
+                maxDistance = distance;
+            }
+        }
+        if (t.layout() == null) return closest;
+
+        int[] nodes = t.layout().nodes();
+        int stride = 1 + 2 * width;
+        double[] childEntries = new double[width];
+        int[] near = new int[width];
+
+        // Front-to-back traversal: the children of a node are pushed farthest first, a leaf is
+        // pushed as the complement of its child slot, and items entered beyond the closest hit
+        // found so far are skipped
+        int[] stack = new int[STACK_SIZE];
+        double[] entries = new double[STACK_SIZE];
+        int top = 0;
+        stack[top] = 0;
+        entries[top++] = 0;
+        while (top > 0) {
+            int item = stack[--top];
+            if (entries[top] >= maxDistance) continue;
+            if (item < 0) {
+                int slot = stride * (~item / width) + 1 + 2 * (~item % width);
+                int link = nodes[slot];
+                for (int k = link; k < link + nodes[slot + 1]; ++k) {
+                    double distance = t.objects()[k].calculateClosestDistanceHelper(ray, maxDistance, hit);
+                    if (distance != Double.POSITIVE_INFINITY) {
+                        closest = distance;
+                        maxDistance = distance;
+                    }
+                }
+                continue;
+            }
+            int children = nodes[stride * item];
+            KERNELS.quantizedBoxes(t.layout().frames(), t.layout().boxes(), item, width, children, ray, maxDistance,
+                                   childEntries);
+            // sort the children that are entered by the descending entry distance
+            int hits = 0;
+            for (int i = 0; i < children; ++i) {
+                double entry = childEntries[i];
+                if (entry == Double.POSITIVE_INFINITY) continue;
+                int j = hits++;
+                for (; j > 0 && childEntries[near[j - 1]] < entry; --j) near[j] = near[j - 1];
+                near[j] = i;
+            }
+            if (top + hits > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            for (int j = 0; j < hits; ++j) {
+                int i = near[j];
+                int slot = stride * item + 1 + 2 * i;
+                stack[top] = nodes[slot + 1] == 0 ? nodes[slot] : ~(width * item + i);
+                entries[top++] = childEntries[i];
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected void calculateClosestDistancesHelper(Ray[] rays, int count, double[] distances, Hit[] hits) {
+        Tree<BvhBuilder.WideTree> t = tree();
+        for (Intersectable geometry : t.unbounded())
+            geometry.calculateClosestDistancesHelper(rays, count, distances, hits);
+        if (t.layout() == null || count == 0) return;
+
+        int[] nodes = t.layout().nodes();
+        int stride = 1 + 2 * width;
+        RayPacket packet = new RayPacket(rays, count, distances);
+        double[] boxes = new double[6 * width];
+        int[] childFirsts = new int[width];
+        double[] childEntries = new double[width];
+        int[] near = new int[width];
+
+        // Ranged traversal: a node is pushed with the first ray of the packet that enters it, the
+        // children entered by the packet are ordered by their first rays and entry distances, the
+        // leaves are visited right away and the inner nodes are pushed farthest first
+        int[] stack = new int[STACK_SIZE];
+        int[] firsts = new int[STACK_SIZE];
+        int top = 0;
+        stack[top] = 0;
+        firsts[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int first = firsts[top];
+            int children = nodes[stride * node];
+            decode(t.layout(), node, children, boxes);
+            int entered = 0;
+            for (int i = 0; i < children; ++i) {
+                int childFirst = packet.first(boxes, i, first);
+                if (childFirst == count) continue;
+                childFirsts[i] = childFirst;
+                childEntries[i] = packet.entry;
+                int j = entered++;
+                for (; j > 0 && (childFirsts[near[j - 1]] > childFirst
+                        || childFirsts[near[j - 1]] == childFirst && childEntries[near[j - 1]] > packet.entry); --j)
+                    near[j] = near[j - 1];
+                near[j] = i;
+            }
+            for (int j = 0; j < entered; ++j) {
+                int i = near[j];
+                int link = nodes[stride * node + 1 + 2 * i];
+                int leafCount = nodes[stride * node + 2 + 2 * i];
+                if (leafCount == 0) continue;
+                for (int r = childFirsts[i]; r < count; ++r) {
+                    if (BVH.entry(boxes, i, rays[r], distances[r]) == Double.POSITIVE_INFINITY) continue;
+                    for (int k = link; k < link + leafCount; ++k) {
+                        double distance = t.objects()[k].calculateClosestDistanceHelper(rays[r], distances[r], hits[r]);
+                        if (distance != Double.POSITIVE_INFINITY) distances[r] = distance;
+                    }
+                }
+                packet.update();
+            }
+            if (top + entered > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                firsts = Arrays.copyOf(firsts, firsts.length * 2);
+            }
+            for (int j = entered - 1; j >= 0; --j) {
+                int i = near[j];
+                if (nodes[stride * node + 2 + 2 * i] != 0) continue;
+                stack[top] = nodes[stride * node + 1 + 2 * i];
+                firsts[top++] = childFirsts[i];
+            }
+        }
+    }
+
+    /**
+     * Decodes the quantized boxes of the children of a node, as in
+     * {@link BatchKernels#quantizedBoxes}
+     *
+     * @param wide     the wide tree
+     * @param node     the node index
+     * @param children the amount of the children of the node
+     * @param boxes    the array for the boxes, 6 values per child
+     */
+    private void decode(BvhBuilder.WideTree wide, int node, int children, double[] boxes) {
+        double[] frames = wide.frames();
+        byte[] quantized = wide.boxes();
+        int f = 6 * node;
+        int offset = 6 * width * node;
+        for (int c = 0; c < 6; ++c) {
+            double origin = frames[f + c % 3], step = frames[f + 3 + c % 3];
+            for (int i = 0; i < children; ++i)
+                boxes[6 * i + c] = origin + (quantized[offset + width * c + i] & 0xFF) * step;
+        }
+    }
+
+    @Override
+    protected Double3 calculateTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        Tree<BvhBuilder.WideTree> t = tree();
+        for (Intersectable geometry : t.unbounded()) {
+            ktr = geometry.calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+            if (ktr.lowerThan(minK)) return Double3.ZERO;
+        }
+        if (t.layout() == null) return ktr;
+
+        int[] nodes = t.layout().nodes();
+        int stride = 1 + 2 * width;
+        double[] entries = new double[width];
+
+        // Any order of the nodes will do - the query stops at the first blocking hit
+        int[] stack = new int[STACK_SIZE];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int children = nodes[stride * node];
+            KERNELS.quantizedBoxes(t.layout().frames(), t.layout().boxes(), node, width, children, ray, maxDistance, entries);
+            if (top + children > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            for (int i = 0; i < children; ++i) {
+                if (entries[i] == Double.POSITIVE_INFINITY) continue;
+                int link = nodes[stride * node + 1 + 2 * i];
+                int count = nodes[stride * node + 2 + 2 * i];
+                if (count == 0) {
+                    stack[top++] = link;
+                    continue;
+                }
+                for (int k = link; k < link + count; ++k) {
+                    ktr = t.objects()[k].calculateTransmittanceHelper(ray, maxDistance, ktr, minK);
+                    if (ktr.lowerThan(minK)) return Double3.ZERO;
+                }
+            }
+        }
+        return ktr;
+    }
+}
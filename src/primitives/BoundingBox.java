@@ -0,0 +1,161 @@
+package primitives;
+
+/**
+ * Axis-aligned bounding box (AABB) in 3D Cartesian coordinate system.
+ * <p>
+ * The box is used by the acceleration structures to quickly reject rays that cannot
+ * hit the geometry bounded by it. Boxes are immutable; every operation that combines
+ * boxes returns a new one.
+ *
+ * @param minX minimal x coordinate
+ * @param minY minimal y coordinate
+ * @param minZ minimal z coordinate
+ * @param maxX maximal x coordinate
+ * @param maxY maximal y coordinate
+ * @param maxZ maximal z coordinate
+ */
+public record BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+
+    /**
+     * Padding added around boxes built from points, so flat geometries (e.g. axis aligned
+     * polygons) do not get a box of zero thickness and hits on the surface are not lost
+     * because of rounding errors
+     */
+    private static final double PADDING = 1e-6;
+
+    /**
+     * Constructs a box that tightly bounds the given points (with a tiny padding).
+     *
+     * @param points the points to bound, at least one
+     * @return the bounding box
+     * @throws IllegalArgumentException if no points are given
+     */
+    public static BoundingBox of(Point... points) {
+        if (points.length == 0)
+            throw new IllegalArgumentException("A bounding box must bound at least one point");
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+        }
+        return new BoundingBox(minX - PADDING, minY - PADDING, minZ - PADDING,
+                maxX + PADDING, maxY + PADDING, maxZ + PADDING);
+    }
+
+    /**
+     * Constructs a box around a center point with the given half sizes per axis
+     *
+     * @param center the center of the box
+     * @param halfX  half of the box size along x axis
+     * @param halfY  half of the box size along y axis
+     * @param halfZ  half of the box size along z axis
+     * @return the bounding box
+     */
+    public static BoundingBox around(Point center, double halfX, double halfY, double halfZ) {
+        return new BoundingBox(center.getX() - halfX - PADDING, center.getY() - halfY - PADDING,
+                center.getZ() - halfZ - PADDING, center.getX() + halfX + PADDING,
+                center.getY() + halfY + PADDING, center.getZ() + halfZ + PADDING);
+    }
+
+    /**
+     * Builds the smallest box containing both this box and the other one
+     *
+     * @param other the other box
+     * @return the union box
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Minimal coordinate of the box along an axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return the minimal coordinate
+     */
+    public double min(int axis) {
+        return axis == 0 ? minX : axis == 1 ? minY : minZ;
+    }
+
+    /**
+     * Maximal coordinate of the box along an axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return the maximal coordinate
+     */
+    public double max(int axis) {
+        return axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+    }
+
+    /**
+     * Center coordinate of the box along an axis
+     *
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return the center coordinate
+     */
+    public double center(int axis) {
+        return (min(axis) + max(axis)) / 2;
+    }
+
+    /**
+     * Surface area of the box (used by surface area heuristics)
+     *
+     * @return the surface area
+     */
+    public double surfaceArea() {
+        double dx = maxX - minX;
+        double dy = maxY - minY;
+        double dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Checks whether a ray enters the box before a given distance (slab test)
+     *
+     * @param ray         the ray
+     * @param maxDistance maximal distance along the ray
+     * @return true if the ray passes through the box within the distance
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        return entryDistance(ray, maxDistance) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the distance along a ray to the point where it enters the box (slab test)
+     *
+     * @param ray         the ray
+     * @param maxDistance maximal distance along the ray
+     * @return the entry distance (0 if the ray head is inside the box), or
+     *         {@link Double#POSITIVE_INFINITY} if the ray does not pass through the box within the distance
+     */
+    public double entryDistance(Ray ray, double maxDistance) {
+        double tMin = 0;
+        double tMax = maxDistance;
+
+        // the sign bits of the ray select the near and the far bound of each slab
+        double t0 = ((ray.signX == 0 ? minX : maxX) - ray.ox) * ray.ix;
+        double t1 = ((ray.signX == 0 ? maxX : minX) - ray.ox) * ray.ix;
+        // NaN (when the head is on a slab border of a parallel ray) fails the comparisons - it is ignored
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+
+        t0 = ((ray.signY == 0 ? minY : maxY) - ray.oy) * ray.iy;
+        t1 = ((ray.signY == 0 ? maxY : minY) - ray.oy) * ray.iy;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+
+        t0 = ((ray.signZ == 0 ? minZ : maxZ) - ray.oz) * ray.iz;
+        t1 = ((ray.signZ == 0 ? maxZ : minZ) - ray.oz) * ray.iz;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+        return tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
+    }
+}
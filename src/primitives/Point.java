@@ -98,11 +98,28 @@ public class Point {
      * @return A random point within the circle.
      */
     public Point getRandomRadialPoint(Vector vx, Vector vy, double radius) {
-        double r = radius * Math.sqrt(Math.random());
-        double theta = 2 * Math.PI * Math.random();
+        return getRadialPoint(vx, vy, radius, Math.random(), Math.random());
+    }
+
+    /**
+     * Maps a sample of the unit square to a point on the circle (uniformly distributed
+     * over the circle area), using polar coordinates.
+     * @param vx the right vector of the circle representing the x-axis in the camera's local coordinate system
+     * @param vy the up vector of the circle
+     * @param radius the radius of the circle
+     * @param u the sample value in range [0,1) for the distance from the center
+     * @param v the sample value in range [0,1) for the angle
+     * @return The point within the circle.
+     */
+    public Point getRadialPoint(Vector vx, Vector vy, double radius, double u, double v) {
+        double r = radius * Math.sqrt(u);
+        double theta = 2 * Math.PI * v;
         double x = r * Math.cos(theta);
         double y = r * Math.sin(theta);
-        return this.add(vx.scale(x)).add(vy.scale(y));
+        Point point = this;
+        if (!Util.isZero(x)) point = point.add(vx.scale(x));
+        if (!Util.isZero(y)) point = point.add(vy.scale(y));
+        return point;
     }
 
     /**
@@ -10,6 +10,11 @@ import static primitives.Util.isZero;
  * The {@code Ray} class represents a ray in 3-dimensional space. It is defined by a starting point (head)
  * and a direction vector. The ray extends infinitely in the direction of the vector, and the direction vector
  * is normalized. The class provides methods for working with rays in geometric operations.
+ * <p>
+ * For the intersection kernels the ray also keeps its head and direction as plain coordinates
+ * together with the inverse of the direction and its per-axis signs, computed once on construction,
+ * so that the slab tests of the boxes and the grid traversal read them directly instead of unpacking
+ * the point and the vector. The point and vector API is a view on the same ray.
  */
 
 public class Ray {
@@ -26,6 +31,22 @@ public class Ray {
      */
     final Vector direction;
 
+    /** Coordinates of the ray head */
+    public final double ox, oy, oz;
+    /** Coordinates of the (normalized) ray direction */
+    public final double dx, dy, dz;
+    /**
+     * Inverses of the direction coordinates (infinite with the sign of the coordinate for a ray
+     * parallel to the axis plane)
+     */
+    public final double ix, iy, iz;
+    /**
+     * Sign bits of the direction coordinates: 1 when the inverse is negative, 0 otherwise.
+     * A slab of the axis is entered through its bound {@code 3 * sign} and exited through its bound
+     * {@code 3 * (1 - sign)} in a box stored as (minX, minY, minZ, maxX, maxY, maxZ).
+     */
+    public final int signX, signY, signZ;
+
     /**
      * Constructs a {@code Ray} object using a starting point (head) and a direction vector.
      * The direction vector is normalized to ensure consistency in calculations.
@@ -37,6 +58,18 @@ public class Ray {
     public Ray(Point head, Vector direction) {
         this.head = head;
         this.direction = direction.normalize();
+        ox = head.getX();
+        oy = head.getY();
+        oz = head.getZ();
+        dx = this.direction.getX();
+        dy = this.direction.getY();
+        dz = this.direction.getZ();
+        ix = 1 / dx;
+        iy = 1 / dy;
+        iz = 1 / dz;
+        signX = ix < 0 ? 1 : 0;
+        signY = iy < 0 ? 1 : 0;
+        signZ = iz < 0 ? 1 : 0;
     }
 
     /**
@@ -97,10 +130,13 @@ public class Ray {
         if (intersections.isEmpty())
             return null;
 
-        Intersection closestIntersection = intersections.getFirst();
+        Intersection closestIntersection = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
         for (Intersection intersection : intersections) {
-            if (intersection.point.distance(this.head) < closestIntersection.point.distance(this.head)) {
+            double distance = intersection.point.distanceSquared(this.head);
+            if (distance < closestDistance) {
                 closestIntersection = intersection;
+                closestDistance = distance;
             }
         }
         return closestIntersection;
@@ -0,0 +1,257 @@
+package primitives;
+
+/**
+ * Affine transformation of the 3D space: a linear transformation followed by a translation.
+ * <p>
+ * The transformation is kept as a 3x4 matrix together with the matrix of its inverse, so
+ * both directions are applied without solving anything. Transformations are immutable;
+ * they are created by the static factory methods and combined by {@link #then(Transform)}.
+ */
+public final class Transform {
+    /** The identity transformation */
+    public static final Transform IDENTITY = new Transform(
+            new double[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0 },
+            new double[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0 });
+
+    /** The matrix of the transformation, 3 rows of 4 values (the last column is the translation) */
+    private final double[] m;
+    /** The matrix of the inverse transformation, in the same layout */
+    private final double[] inv;
+
+    /**
+     * Constructs a transformation from its matrix and the matrix of its inverse
+     *
+     * @param m   the matrix, 3 rows of 4 values
+     * @param inv the inverse matrix, 3 rows of 4 values
+     */
+    private Transform(double[] m, double[] inv) {
+        this.m = m;
+        this.inv = inv;
+    }
+
+    /**
+     * Constructs a transformation from its matrix, calculating the inverse matrix
+     *
+     * @param m the matrix, 3 rows of 4 values
+     * @return the transformation
+     * @throws IllegalArgumentException if the matrix is singular
+     */
+    private static Transform of(double[] m) {
+        // inverse of the linear part by the adjugate matrix
+        double c00 = m[5] * m[10] - m[6] * m[9];
+        double c01 = m[6] * m[8] - m[4] * m[10];
+        double c02 = m[4] * m[9] - m[5] * m[8];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (Util.isZero(det))
+            throw new IllegalArgumentException("Transformation must not be singular");
+        double[] inv = new double[12];
+        inv[0] = c00 / det;
+        inv[1] = (m[2] * m[9] - m[1] * m[10]) / det;
+        inv[2] = (m[1] * m[6] - m[2] * m[5]) / det;
+        inv[4] = c01 / det;
+        inv[5] = (m[0] * m[10] - m[2] * m[8]) / det;
+        inv[6] = (m[2] * m[4] - m[0] * m[6]) / det;
+        inv[8] = c02 / det;
+        inv[9] = (m[1] * m[8] - m[0] * m[9]) / det;
+        inv[10] = (m[0] * m[5] - m[1] * m[4]) / det;
+        // the inverse translation is the inverse linear part applied to the negated translation
+        for (int row = 0; row < 3; ++row)
+            inv[4 * row + 3] = -(inv[4 * row] * m[3] + inv[4 * row + 1] * m[7] + inv[4 * row + 2] * m[11]);
+        return new Transform(m, inv);
+    }
+
+    /**
+     * Creates a translation
+     *
+     * @param offset the translation vector
+     * @return the transformation
+     */
+    public static Transform translation(Vector offset) {
+        return of(new double[] { 1, 0, 0, offset.getX(), 0, 1, 0, offset.getY(), 0, 0, 1, offset.getZ() });
+    }
+
+    /**
+     * Creates a scaling along the axes (around the origin)
+     *
+     * @param sx the scale along x axis
+     * @param sy the scale along y axis
+     * @param sz the scale along z axis
+     * @return the transformation
+     * @throws IllegalArgumentException if any of the scales is zero
+     */
+    public static Transform scaling(double sx, double sy, double sz) {
+        return of(new double[] { sx, 0, 0, 0, 0, sy, 0, 0, 0, 0, sz, 0 });
+    }
+
+    /**
+     * Creates a uniform scaling (around the origin)
+     *
+     * @param s the scale
+     * @return the transformation
+     * @throws IllegalArgumentException if the scale is zero
+     */
+    public static Transform scaling(double s) {
+        return scaling(s, s, s);
+    }
+
+    /**
+     * Creates a rotation around an axis through the origin (counterclockwise when looking
+     * against the axis direction)
+     *
+     * @param axis  the rotation axis direction
+     * @param angle the rotation angle in degrees
+     * @return the transformation
+     */
+    public static Transform rotation(Vector axis, double angle) {
+        Vector u = axis.normalize();
+        double x = u.getX(), y = u.getY(), z = u.getZ();
+        double rad = Math.toRadians(angle);
+        double c = Math.cos(rad), s = Math.sin(rad), t = 1 - c;
+        return of(new double[] {
+                t * x * x + c, t * x * y - s * z, t * x * z + s * y, 0,
+                t * x * y + s * z, t * y * y + c, t * y * z - s * x, 0,
+                t * x * z - s * y, t * y * z + s * x, t * z * z + c, 0 });
+    }
+
+    /**
+     * Combines this transformation with another one applied after it
+     *
+     * @param next the transformation to apply after this one
+     * @return the combined transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(multiply(next.m, m), multiply(inv, next.inv));
+    }
+
+    /**
+     * Returns the inverse transformation
+     *
+     * @return the inverse transformation
+     */
+    public Transform inverse() {
+        return new Transform(inv, m);
+    }
+
+    /**
+     * Multiplies two affine matrices
+     *
+     * @param a the left matrix
+     * @param b the right matrix (applied first)
+     * @return the product matrix
+     */
+    private static double[] multiply(double[] a, double[] b) {
+        double[] r = new double[12];
+        for (int row = 0; row < 3; ++row) {
+            for (int col = 0; col < 4; ++col)
+                r[4 * row + col] = a[4 * row] * b[col] + a[4 * row + 1] * b[4 + col] + a[4 * row + 2] * b[8 + col];
+            r[4 * row + 3] += a[4 * row + 3];
+        }
+        return r;
+    }
+
+    /**
+     * Transforms a point
+     *
+     * @param p the point
+     * @return the transformed point
+     */
+    public Point apply(Point p) {
+        return point(m, p);
+    }
+
+    /**
+     * Transforms a direction (without the translation)
+     *
+     * @param v the direction vector
+     * @return the transformed vector
+     */
+    public Vector apply(Vector v) {
+        return vector(m, v);
+    }
+
+    /**
+     * Transforms a point by the inverse transformation
+     *
+     * @param p the point
+     * @return the point before the transformation
+     */
+    public Point applyInverse(Point p) {
+        return point(inv, p);
+    }
+
+    /**
+     * Transforms a direction by the inverse transformation (without the translation)
+     *
+     * @param v the direction vector
+     * @return the vector before the transformation
+     */
+    public Vector applyInverse(Vector v) {
+        return vector(inv, v);
+    }
+
+    /**
+     * Transforms a surface normal: a normal is transformed by the transposed inverse matrix,
+     * so it stays orthogonal to the transformed surface
+     *
+     * @param n the normal
+     * @return the transformed normal, normalized
+     */
+    public Vector applyNormal(Vector n) {
+        double x = n.getX(), y = n.getY(), z = n.getZ();
+        return new Vector(inv[0] * x + inv[4] * y + inv[8] * z,
+                inv[1] * x + inv[5] * y + inv[9] * z,
+                inv[2] * x + inv[6] * y + inv[10] * z).normalize();
+    }
+
+    /**
+     * Transforms a box: the result bounds the transformed corners of the box
+     *
+     * @param box the box
+     * @return the box bounding the transformed box
+     */
+    public BoundingBox apply(BoundingBox box) {
+        double[] min = new double[3];
+        double[] max = new double[3];
+        for (int row = 0; row < 3; ++row) {
+            // the extreme of every coordinate is reached at the box corner selected by the signs
+            double lo = m[4 * row + 3], hi = lo;
+            for (int col = 0; col < 3; ++col) {
+                double a = m[4 * row + col] * box.min(col);
+                double b = m[4 * row + col] * box.max(col);
+                lo += Math.min(a, b);
+                hi += Math.max(a, b);
+            }
+            min[row] = lo;
+            max[row] = hi;
+        }
+        return new BoundingBox(min[0], min[1], min[2], max[0], max[1], max[2]);
+    }
+
+    /**
+     * Applies an affine matrix to a point
+     *
+     * @param a the matrix
+     * @param p the point
+     * @return the transformed point
+     */
+    private static Point point(double[] a, Point p) {
+        double x = p.getX(), y = p.getY(), z = p.getZ();
+        return new Point(a[0] * x + a[1] * y + a[2] * z + a[3],
+                a[4] * x + a[5] * y + a[6] * z + a[7],
+                a[8] * x + a[9] * y + a[10] * z + a[11]);
+    }
+
+    /**
+     * Applies the linear part of an affine matrix to a vector
+     *
+     * @param a the matrix
+     * @param v the vector
+     * @return the transformed vector
+     */
+    private static Vector vector(double[] a, Vector v) {
+        double x = v.getX(), y = v.getY(), z = v.getZ();
+        return new Vector(a[0] * x + a[1] * y + a[2] * z,
+                a[4] * x + a[5] * y + a[6] * z,
+                a[8] * x + a[9] * y + a[10] * z);
+    }
+}
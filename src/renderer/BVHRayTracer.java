@@ -0,0 +1,53 @@
+package renderer;
+
+import geometries.BVH;
+import geometries.WideBVH;
+import scene.Scene;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@code BVHRayTracer} is a ray tracer that accelerates the ray-scene queries with a
+ * {@link BVH} built over the scene's geometries.
+ * <p>
+ * The shading is the same as in {@link SimpleRayTracer}; only the intersection queries
+ * (closest hit and shadow rays) traverse the hierarchy instead of testing every geometry.
+ * The hierarchy is built when the ray tracer is created, so the scene's geometries must be
+ * complete at that time. It is either binary or a {@link WideBVH} of 4 or 8 children per node.
+ */
+public class BVHRayTracer extends SimpleRayTracer {
+
+    /**
+     * Constructs a {@code BVHRayTracer} for the given scene and builds the hierarchy over its geometries.
+     *
+     * @param scene the {@link Scene} to render
+     * @param pool  the pool to build the hierarchy on in parallel, {@code null} for a sequential build
+     */
+    public BVHRayTracer(Scene scene, ForkJoinPool pool) {
+        super(scene, new BVH(scene.geometries).build(pool));
+    }
+
+    /**
+     * Constructs a {@code BVHRayTracer} for the given scene and builds a hierarchy of the given
+     * width over its geometries.
+     *
+     * @param scene the {@link Scene} to render
+     * @param width the amount of children of a node - 2 for the binary {@link BVH}, 4 or 8 for a {@link WideBVH}
+     * @param pool  the pool to build the hierarchy on in parallel, {@code null} for a sequential build
+     * @throws IllegalArgumentException if the width is not 2, 4 or 8
+     */
+    public BVHRayTracer(Scene scene, int width, ForkJoinPool pool) {
+        super(scene, width == 2 ? new BVH(scene.geometries).build(pool)
+                : new WideBVH(width, scene.geometries).build(pool));
+    }
+
+    /**
+     * Constructs a {@code BVHRayTracer} for the given scene and builds the hierarchy over its
+     * geometries sequentially.
+     *
+     * @param scene the {@link Scene} to render
+     */
+    public BVHRayTracer(Scene scene) {
+        this(scene, null);
+    }
+}
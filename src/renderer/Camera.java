@@ -7,9 +7,17 @@ import primitives.Util;
 import primitives.Vector;
 import scene.Scene;
 
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.MissingResourceException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.*;
 
 
@@ -118,6 +126,33 @@ public class Camera implements Cloneable {
     */
     private int aSSdepth = 0;
 
+    /** Maximum standard error of the pixel color for adaptive sampling (in color units) */
+    private double maxPixelError = 0;
+    /** Amount of samples in every batch of adaptive sampling */
+    private int sampleBatch = 0;
+    /** Maximum amount of samples per pixel of adaptive sampling, 0 if it is not used */
+    private int maxPixelSamples = 0;
+
+    /** The current pass of progressive rendering, -1 if the rendering is not progressive */
+    private int progressivePass = -1;
+    /** Target amount of samples per pixel of progressive rendering */
+    private int progressiveSamples = 0;
+
+    /** Sampler dimension pair of the position in the pixel */
+    private static final int PIXEL_DIMENSION = 0;
+    /** Sampler dimension pair of the position on the aperture */
+    private static final int LENS_DIMENSION = 2;
+    /** The type of the samplers of the pixel and aperture positions */
+    private SamplerType samplerType = SamplerType.RANDOM;
+    /** The seed of the samplers */
+    private long samplerSeed = 0;
+    /** The sampler of every rendering thread (created anew for every rendering) */
+    private ThreadLocal<Sampler> samplers;
+    /** The cache of the adaptive super sampling lattice samples of every rendering thread's tile */
+    private ThreadLocal<SampleCache> pixelCaches;
+    /** The cache of the adaptive super sampling aperture samples of every rendering thread's pixel */
+    private ThreadLocal<SampleCache> apertureCaches;
+
 
     //MT
     /** Amount of threads to use fore rendering image by the camera */
@@ -132,6 +167,16 @@ public class Camera implements Cloneable {
      * if it is zero - there is no progress output
      */
     private double printInterval = 0;
+    /** Maximum amount of tiles rendered at the same time by virtual threads */
+    private int virtualThreads = Runtime.getRuntime().availableProcessors();
+    /** Size of the square tiles of pixels the threads take for rendering */
+    private int tileSize = PixelManager.DEFAULT_TILE_SIZE;
+    /** Default size of the square packets of primary rays traced together */
+    private static final int DEFAULT_PACKET_SIZE = 8;
+    /** Size of the square packets of primary rays traced together, 0 if every ray is traced alone */
+    private int packetSize = DEFAULT_PACKET_SIZE;
+    /** File of the out-of-core frame buffer, {@code null} for a frame buffer in the heap */
+    private Path frameBufferFile = null;
     /**
      * Pixel manager for supporting:
      * <ul>
@@ -141,6 +186,16 @@ public class Camera implements Cloneable {
      */
     private PixelManager pixelManager;
 
+    /** Rendering time of the pixels rendered so far by the fork-join mode, in nanoseconds */
+    private LongAdder renderedNanos;
+    /** Amount of the pixels rendered so far by the fork-join mode */
+    private LongAdder renderedPixels;
+
+    /** Time of building the ray tracer (including its acceleration structure) in milliseconds */
+    private long buildTime = 0;
+    /** Time of the last image rendering in milliseconds */
+    private long renderTime = 0;
+
 
     /**
      * Returns the width of the view plane.
@@ -162,6 +217,24 @@ public class Camera implements Cloneable {
     }
 
 
+    /**
+     * Returns the time of building the ray tracer, including its acceleration structure.
+     *
+     * @return the build time in milliseconds
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * Returns the time of the last image rendering (without building the ray tracer).
+     *
+     * @return the render time in milliseconds
+     */
+    public long getRenderTime() {
+        return renderTime;
+    }
+
     /**
      * Returns a new {@link Builder} instance for creating a {@code Camera} using a fluent API.
      *
@@ -173,13 +246,25 @@ public class Camera implements Cloneable {
 
 
     /**
-     * Render image using multi-threading by parallel streaming
+     * Creates a sampler of the camera's sampler type
+     * @return the sampler
+     */
+    private Sampler createSampler() {
+        return switch (samplerType) {
+            case RANDOM -> new RandomSampler(samplerSeed);
+            case STRATIFIED -> new StratifiedSampler(samplerSeed);
+            case HALTON -> new HaltonSampler(samplerSeed);
+            case SOBOL -> new SobolSampler(samplerSeed);
+        };
+    }
+
+    /**
+     * Render image using multi-threading by parallel streaming of the tiles
      * @return the camera object itself
      */
     private Camera renderImageStream() {
-        IntStream.range(0, nY).parallel()
-                .forEach(i -> IntStream.range(0, nX).parallel()
-                        .forEach(j -> castRay(j, i)));
+        IntStream.range(0, pixelManager.tiles()).parallel()
+                .forEach(this::renderTile);
         return this;
     }
     /**
@@ -187,9 +272,8 @@ public class Camera implements Cloneable {
      * @return the camera object itself
      */
     private Camera renderImageNoThreads() {
-        for (int i = 0; i < nY; ++i)
-            for (int j = 0; j < nX; ++j)
-                castRay(j, i);
+        for (int tile = 0; tile < pixelManager.tiles(); ++tile)
+            renderTile(tile);
         return this;
     }
     /**
@@ -198,11 +282,10 @@ public class Camera implements Cloneable {
      */
     private Camera renderImageRawThreads() {
         var threads = new LinkedList<Thread>();
-        while (threadsCount-- > 0)
+        for (int i = 0; i < threadsCount; ++i)
             threads.add(new Thread(() -> {
-                PixelManager.Pixel pixel;
-                while ((pixel = pixelManager.nextPixel()) != null)
-                    castRay(pixel.col(), pixel.row());
+                for (int tile = pixelManager.nextTile(); tile >= 0; tile = pixelManager.nextTile())
+                    renderTile(tile);
             }));
         for (var thread : threads) thread.start();
         try {
@@ -210,18 +293,247 @@ public class Camera implements Cloneable {
         } catch (InterruptedException ignored) {}
         return this;
     }
+    /**
+     * Render a tile of pixels and report it to the pixel manager. Out of progressive
+     * rendering, the tile is recorded in the resume marker of the frame buffer, and a
+     * tile already recorded there (by an interrupted rendering) is not rendered again
+     * @param tile the tile index
+     */
+    private void renderTile(int tile) {
+        boolean resumable = progressivePass < 0;
+        if (resumable && imageWriter.isTileDone(tile)) {
+            pixelManager.tileDone(tile);
+            return;
+        }
+        if (aSSdepth > 0) pixelCaches.get().clear();
+        castBlock(pixelManager.firstRow(tile), pixelManager.endRow(tile),
+                  pixelManager.firstCol(tile), pixelManager.endCol(tile));
+        if (resumable) imageWriter.tileDone(tile);
+        pixelManager.tileDone(tile);
+    }
+
+    /**
+     * Render image using work stealing of fork-join tasks over image regions
+     * @return the camera object itself
+     */
+    private Camera renderImageForkJoin() {
+        renderedNanos  = new LongAdder();
+        renderedPixels = new LongAdder();
+        ForkJoinPool.commonPool().invoke(new RegionTask(0, nY, 0, nX));
+        return this;
+    }
+    /**
+     * Fork-join task rendering a rectangular region of the image.<br>
+     * A region is split in halves while it is larger than a tile and there is
+     * not enough queued work for the idle threads to steal. While a region is
+     * rendered in bands of rows, the time of every band is measured, and when the
+     * queue runs empty the remaining rows are split off if their cost estimated at
+     * the pace of the last band exceeds the cost of a tile at the average pace of
+     * the image so far. So the regions that turn out to be expensive (edges with
+     * adaptive super sampling, depth of field) are shared by the idle threads, and
+     * the cheap remainders are finished without splitting.
+     */
+    private final class RegionTask extends RecursiveAction {
+        /** Serialization version of the task (the tasks are never serialized) */
+        private static final long serialVersionUID = 1L;
+        /** Queued tasks surplus allowing to stop splitting the regions */
+        private static final int SURPLUS = 2;
+        /** First pixel row of the region */
+        private final int firstRow;
+        /** Pixel row after the region */
+        private int endRow;
+        /** First pixel column of the region */
+        private final int firstCol;
+        /** Pixel column after the region */
+        private int endCol;
+
+        /**
+         * Constructs a task for a region of pixels
+         * @param firstRow first row
+         * @param endRow   row after the region
+         * @param firstCol first column
+         * @param endCol   column after the region
+         */
+        RegionTask(int firstRow, int endRow, int firstCol, int endCol) {
+            this.firstRow = firstRow;
+            this.endRow   = endRow;
+            this.firstCol = firstCol;
+            this.endCol   = endCol;
+        }
+
+        @Override
+        protected void compute() {
+            if (aSSdepth > 0) pixelCaches.get().clear();
+            var forked = new LinkedList<RegionTask>();
+            while ((endRow - firstRow > tileSize || endCol - firstCol > tileSize)
+                    && getSurplusQueuedTaskCount() < SURPLUS) {
+                RegionTask half;
+                if (endRow - firstRow >= endCol - firstCol) {
+                    int middle = (firstRow + endRow) >>> 1;
+                    half   = new RegionTask(middle, endRow, firstCol, endCol);
+                    endRow = middle;
+                } else {
+                    int middle = (firstCol + endCol) >>> 1;
+                    half   = new RegionTask(firstRow, endRow, middle, endCol);
+                    endCol = middle;
+                }
+                forked.addFirst(half);
+                half.fork();
+            }
+            // rows are rendered in bands of the height of the ray packets
+            int band = isPacketed() ? packetSize : 1;
+            for (int i = firstRow; i < endRow; i += band) {
+                int bandEnd = Math.min(i + band, endRow);
+                long start = System.nanoTime();
+                castBlock(i, bandEnd, firstCol, endCol);
+                long nanos  = System.nanoTime() - start;
+                int  pixels = (bandEnd - i) * (endCol - firstCol);
+                renderedNanos.add(nanos);
+                renderedPixels.add(pixels);
+                for (int row = i; row < bandEnd; ++row)
+                    pixelManager.pixelsDone(row, endCol - firstCol);
+                if (endRow - bandEnd > 1 && getSurplusQueuedTaskCount() == 0 && getPool().getQueuedTaskCount() == 0
+                        && isExpensive(nanos, pixels, (long) (endRow - bandEnd) * (endCol - firstCol))) {
+                    int middle = (bandEnd + endRow) >>> 1;
+                    RegionTask half = new RegionTask(middle, endRow, firstCol, endCol);
+                    endRow = middle;
+                    forked.addFirst(half);
+                    half.fork();
+                }
+            }
+            for (RegionTask task : forked) task.join();
+        }
+
+        /**
+         * Estimates whether the rest of the region is worth sharing with the idle threads
+         * @param nanos     time of the last band rendered
+         * @param pixels    amount of the pixels of the band
+         * @param remaining amount of the pixels left in the region
+         * @return true if the rest at the pace of the band costs more than a tile at the average pace
+         */
+        private boolean isExpensive(long nanos, int pixels, long remaining) {
+            double average = (double) renderedNanos.sum() / renderedPixels.sum();
+            return (double) nanos / pixels * remaining > average * tileSize * tileSize;
+        }
+    }
+
+    /**
+     * Render image using {@link #virtualThreads} virtual threads taking the tiles
+     * in turn. A thread renders many tiles, so its render state (the sampler, the
+     * sample caches, the mailbox of a grid ray tracer) is created once per thread
+     * rather than once per tile
+     * @return the camera object itself
+     */
+    private Camera renderImageVirtualThreads() {
+        int workers = Math.min(virtualThreads, pixelManager.tiles());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workers; ++i)
+                executor.execute(() -> {
+                    for (int tile = pixelManager.nextTile(); tile >= 0; tile = pixelManager.nextTile())
+                        renderTile(tile);
+                });
+        }
+        return this;
+    }
 
     /** This function renders image's pixel color map from the scene
      * included in the ray tracer object
      * @return the camera object itself
      */
     public Camera renderImage() {
-        pixelManager = new PixelManager(nY, nX, printInterval);
-        return switch (threadsCount) {
+        long start = System.currentTimeMillis();
+        progressivePass = -1;
+        renderPass(printInterval, null);
+        renderTime = System.currentTimeMillis() - start;
+        if (printInterval != 0)
+            System.out.printf("%nBuild time: %d ms, render time: %d ms%n", buildTime, renderTime);
+        return this;
+    }
+
+    /**
+     * Renders the image and writes it to a png file while rendering: the rows of
+     * the image are compressed and written as soon as all their pixels are
+     * rendered, so the file is complete right after the rendering. The result is
+     * the same as of {@link #renderImage()} followed by {@link #writeToImage(String)}.
+     * @param imageName the name of png file
+     * @return the camera object itself
+     */
+    public Camera renderToImage(String imageName) {
+        long start = System.currentTimeMillis();
+        progressivePass = -1;
+        try (PngWriter png = imageWriter.openImage(imageName)) {
+            renderPass(printInterval, png::rowsReady);
+        }
+        renderTime = System.currentTimeMillis() - start;
+        if (printInterval != 0)
+            System.out.printf("%nBuild time: %d ms, render and write time: %d ms%n", buildTime, renderTime);
+        return this;
+    }
+
+    /**
+     * Renders the image progressively: every pass adds one sample per pixel (with its
+     * depth of field rays) for the whole frame into the image's frame buffer, which
+     * keeps the mean of the samples so far, so a noisy image is
+     * available after the first pass and refines with every pass. The rendering stops
+     * after the target amount of samples or after the first pass that ends beyond the
+     * time budget.<br>
+     * The samples of the passes are consecutive samples of the camera's sampler, so
+     * the low discrepancy samplers keep their distribution at every pass.
+     * @param timeBudget    wall clock time budget in milliseconds, 0 for no limit
+     * @param targetSamples maximum amount of samples per pixel
+     * @param afterPass     action called after every pass with the camera (e.g. for
+     *                      writing the current image), or {@code null}
+     * @return the camera object itself
+     */
+    public Camera renderProgressive(long timeBudget, int targetSamples, Consumer<Camera> afterPass) {
+        if (timeBudget < 0) throw new IllegalArgumentException("Time budget must be non-negative");
+        if (targetSamples <= 0) throw new IllegalArgumentException("Target samples must be positive");
+        long start = System.currentTimeMillis();
+        imageWriter.clear();
+        progressiveSamples = targetSamples;
+        for (progressivePass = 0; progressivePass < targetSamples; ++progressivePass) {
+            renderPass(0, null);
+            renderTime = System.currentTimeMillis() - start;
+            if (printInterval != 0)
+                System.out.printf("Pass %d: %d ms%n", progressivePass + 1, renderTime);
+            if (afterPass != null) afterPass.accept(this);
+            if (timeBudget != 0 && renderTime >= timeBudget) break;
+        }
+        progressivePass = -1;
+        return this;
+    }
+
+    /**
+     * Renders a pass over all the pixels in the multi-threading mode of the camera
+     * @param interval     progress printing interval, 0 if printing is not required
+     * @param rowsListener listener of the complete rows of the image, or
+     *                     {@code null}
+     */
+    private void renderPass(double interval, IntConsumer rowsListener) {
+        pixelManager = new PixelManager(nY, nX, tileSize, interval);
+        if (rowsListener != null) pixelManager.setRowsListener(rowsListener);
+        samplers = ThreadLocal.withInitial(this::createSampler);
+        pixelCaches = ThreadLocal.withInitial(SampleCache::new);
+        apertureCaches = ThreadLocal.withInitial(SampleCache::new);
+        switch (threadsCount) {
             case 0 -> renderImageNoThreads();
             case -1 -> renderImageStream();
+            case -3 -> renderImageForkJoin();
+            case -4 -> renderImageVirtualThreads();
             default -> renderImageRawThreads();
-        };
+        }
+        // the image is complete - a later rendering to the frame buffer file starts anew
+        if (progressivePass < 0) imageWriter.clearTiles();
+        imageWriter.flush();
+    }
+
+    /**
+     * Releases the frame buffer of the image (unmaps the out-of-core frame buffer
+     * file after writing the pixels through to it). The camera cannot render or
+     * write the image any more.
+     */
+    public void close() {
+        imageWriter.close();
     }
 
 
@@ -236,7 +548,7 @@ public class Camera implements Cloneable {
         for (int i = 0; i < nX; i++) {
             for (int j = 0; j < nY; j++) {
                 if (i % interval == 0 || j % interval == 0) {
-                    imageWriter.writePixel(j, i, color);
+                    imageWriter.writePixel(i, j, color);
                 }
             }
         }
@@ -258,12 +570,16 @@ public class Camera implements Cloneable {
      * Constructs multiple rays from the aperture toward the focal point.
      *
      * @param focalPoint the point on the focal plane through which rays are aimed
-     * @return List of rays from random aperture positions toward the focal point.
+     * @param sampler the sampler of the aperture positions
+     * @param sample index of the pixel sample the rays belong to
+     * @param samples amount of the pixel samples
+     * @return List of rays from sampled aperture positions toward the focal point.
      */
-    private List<Ray> constructDofRays(Point focalPoint) {
+    private List<Ray> constructDofRays(Point focalPoint, Sampler sampler, int sample, int samples) {
         List<Ray> rays = new LinkedList<>();
         for (int i = 0; i < dofSamples; i++) {
-                Point aperturePoint = p0.getRandomRadialPoint(vRight,vUp,apertureRadius);
+            sampler.startSample(sample * dofSamples + i, samples * dofSamples, LENS_DIMENSION);
+            Point aperturePoint = p0.getRadialPoint(vRight, vUp, apertureRadius, sampler.get1D(), sampler.get1D());
             Vector dir = focalPoint.subtract(aperturePoint).normalize();
             rays.add(new Ray(aperturePoint, dir));
         }
@@ -290,34 +606,27 @@ public class Camera implements Cloneable {
 
         // Base case: maximum recursion depth reached – return the center ray's color
         if (depth == aSSdepthDOF) {
-            Point centerPoint = p0.getXYPoint(vRight, vUp, (minX + maxX) / 2, (minY + maxY) / 2);
-            return  rayTracer.traceRay(new Ray(centerPoint, focalPoint.subtract(centerPoint)));
+            return traceAperture((minX + maxX) / 2, (minY + maxY) / 2, focalPoint);
         }
 
-        // Points for the four corners
-        Point p1 = p0.getXYPoint(vRight, vUp, minX, minY); // left bottom
-        Point p2 = p0.getXYPoint(vRight, vUp, maxX, minY); // right bottom
-        Point p3 = p0.getXYPoint(vRight, vUp, minX, maxY); // left top
-        Point p4 = p0.getXYPoint(vRight, vUp, maxX, maxY); // right top
-
         // Get color from left bottom corner (initial color for comparison)
-        Color cLB = rayTracer.traceRay(new Ray(p1, focalPoint.subtract(p1)));
+        Color cLB = traceAperture(minX, minY, focalPoint);
 
 
         // Check right bottom only if needed
-        Color cRB = rayTracer.traceRay(new Ray(p2, focalPoint.subtract(p2)));
+        Color cRB = traceAperture(maxX, minY, focalPoint);
         if (!cRB.equals(cLB)) {
             return recurseAllDOF(depth, minX, maxX, minY, maxY, focalPoint);
         }
 
         // Check left top only if still equal
-        Color cLT = rayTracer.traceRay(new Ray(p3, focalPoint.subtract(p3)));
+        Color cLT = traceAperture(minX, maxY, focalPoint);
         if (!cLT.equals(cLB)) {
             return recurseAllDOF( depth, minX, maxX, minY, maxY, focalPoint);
         }
 
         // Check right top only if still equal
-        Color cRT = rayTracer.traceRay(new Ray(p4, focalPoint.subtract(p4)));
+        Color cRT = traceAperture(maxX, maxY, focalPoint);
         if (!cRT.equals(cLB)) {
             return recurseAllDOF( depth, minX, maxX, minY, maxY, focalPoint);
         }
@@ -326,6 +635,29 @@ public class Camera implements Cloneable {
         return cLB;
     }
 
+    /**
+     * Traces a ray from a point on the aperture lattice of adaptive super sampling
+     * toward the focal point. The lattice points are shared by neighbouring regions,
+     * so every point is traced once per focal point and then taken from the cache.
+     *
+     * @param x X coordinate of the aperture point
+     * @param y Y coordinate of the aperture point
+     * @param focalPoint the focal point
+     * @return the color of the ray
+     */
+    private Color traceAperture(double x, double y, Point focalPoint) {
+        double scale = (1L << (aSSdepthDOF + 1)) / (2 * apertureRadius);
+        long key = Math.round((x + apertureRadius) * scale) << 32 | Math.round((y + apertureRadius) * scale);
+        SampleCache cache = apertureCaches.get();
+        Color color = cache.get(key);
+        if (color == null) {
+            Point point = p0.getXYPoint(vRight, vUp, x, y);
+            color = rayTracer.traceRay(new Ray(point, focalPoint.subtract(point)));
+            cache.put(key, color);
+        }
+        return color;
+    }
+
     /**
      * Recursively subdivides the current pixel region into 4 quadrants and averages their colors with DOF.
      *
@@ -358,15 +690,19 @@ public class Camera implements Cloneable {
      * Calculates the color for a ray with depth of field effect.
      *
      * @param ray The primary ray through the view plane pixel.
+     * @param sampler the sampler of the aperture positions
+     * @param sample index of the pixel sample of the ray
+     * @param samples amount of the pixel samples
      * @return The averaged color from multiple rays through the aperture.
      */
-    private Color calcDOFcolor(Ray ray) {
+    private Color calcDOFcolor(Ray ray, Sampler sampler, int sample, int samples) {
         double t = focalDistance / vTo.dotProduct(ray.getDirection());
         Point focalPoint = ray.getPoint(t);
         if(aSSdepthDOF > 0) {
+            apertureCaches.get().clear();
             return adaptiveSuperSamplingDOF(0, -apertureRadius, apertureRadius , -apertureRadius, apertureRadius, focalPoint);
         }
-        List<Ray> rays = constructDofRays(focalPoint);
+        List<Ray> rays = constructDofRays(focalPoint, sampler, sample, samples);
         Color dofColor = Color.BLACK;
         for (Ray r : rays) {
             dofColor = dofColor.add(rayTracer.traceRay(r));
@@ -405,8 +741,6 @@ public class Camera implements Cloneable {
         double rX = width / nX;
         double xJ = (j + xOff - (nX - 1) / 2.0) * rX;
         double yI = -(i + yOff - (nY - 1) / 2.0) * rY;
-        xJ = xJ + Util.random(-0.5, 0.5) * rX;
-        yI = yI + Util.random(-0.5, 0.5) * rY;
         if (!Util.isZero(xJ))
             pij = pij.add(vRight.scale(xJ));
         if (!Util.isZero(yI))
@@ -415,51 +749,189 @@ public class Camera implements Cloneable {
     }
 
 
+    /**
+     * Traces a ray through a point of the adaptive super sampling lattice of the view
+     * plane. The lattice points are shared by neighbouring regions and by the edges of
+     * neighbouring pixels, so every point is traced once per tile and then taken from
+     * the cache.
+     *
+     * @param i pixel column index (0-based from left)
+     * @param j pixel row index (0-based from top)
+     * @param x X offset of the point within the pixel
+     * @param y Y offset of the point within the pixel
+     * @return the color of the ray
+     */
+    private Color traceLattice(int i, int j, double x, double y) {
+        long scale = 1L << (aSSdepth + 1);
+        long key = (i * scale + Math.round((x + 0.5) * scale)) << 32 | (j * scale + Math.round((y + 0.5) * scale));
+        SampleCache cache = pixelCaches.get();
+        Color color = cache.get(key);
+        if (color == null) {
+            color = rayTracer.traceRay(constructRay(nX, nY, i, j, x, y));
+            cache.put(key, color);
+        }
+        return color;
+    }
+
     /**
      * Constructs a ray from the camera through a specific pixel on the view plane,
      * using adaptive super sampling for antialiasing.
      *
-     * @param i pixel row index (0-based from top)
-     * @param j pixel column index (0-based from left)
+     * @param i pixel column index (0-based from left)
+     * @param j pixel row index (0-based from top)
      * @param depth current recursion depth
      * @param minX minimum X coordinate for adaptive sampling
      * @param maxX maximum X coordinate for adaptive sampling
      * @param minY minimum Y coordinate for adaptive sampling
      * @param maxY maximum Y coordinate for adaptive sampling
+     * @param regions the amount of the regions of the pixel traced so far (a single counter),
+     *                the index of the aperture sample of the region with depth of field
      * @return a {@link Color} representing the averaged color of the sampled rays
      */
-    private Color adaptiveSuperSampling(int i, int j, int depth, double minX, double maxX, double minY, double maxY) {
+    private Color adaptiveSuperSampling(int i, int j, int depth, double minX, double maxX, double minY, double maxY,
+                                        int[] regions) {
         double midX = (minX + maxX) / 2;
         double midY = (minY + maxY) / 2;
-        Ray r0 = constructRay(nX, nY, i, j, midX, midY);
-        Color c0 = rayTracer.traceRay(r0);
-        if(isDOF)
-            c0 = calcDOFcolor(r0);
+        // every region gets its own aperture sample of the series of all the regions the pixel may have
+        Color c0 = isDOF
+                ? calcDOFcolor(constructRay(nX, nY, i, j, midX, midY), samplers.get(), regions[0]++, maxRegions())
+                : traceLattice(i, j, midX, midY);
         if (depth >= aSSdepth) {
             return c0;
         }
 
-        Color c1 = rayTracer.traceRay(constructRay(nX, nY, i, j, minX, minY));
-        Color c2 = rayTracer.traceRay(constructRay(nX, nY, i, j, maxX, minY));
-        Color c3 = rayTracer.traceRay(constructRay(nX, nY, i, j, minX, maxY));
-        Color c4 = rayTracer.traceRay(constructRay(nX, nY, i, j, maxX, maxY));
+        Color c1 = traceLattice(i, j, minX, minY);
+        Color c2 = traceLattice(i, j, maxX, minY);
+        Color c3 = traceLattice(i, j, minX, maxY);
+        Color c4 = traceLattice(i, j, maxX, maxY);
 
         if (c1.equals(c0) && c2.equals(c0) && c3.equals(c0) && c4.equals(c0))
             return c0;
         else {
             if(!c1.equals(c0))
-                c1 = adaptiveSuperSampling(i, j, depth + 1, minX, midX, minY, midY);
+                c1 = adaptiveSuperSampling(i, j, depth + 1, minX, midX, minY, midY, regions);
             if(!c2.equals(c0))
-                c2 = adaptiveSuperSampling(i, j, depth + 1, midX, maxX, minY, midY);
+                c2 = adaptiveSuperSampling(i, j, depth + 1, midX, maxX, minY, midY, regions);
             if(!c3.equals(c0))
-                c3 = adaptiveSuperSampling(i, j, depth + 1, minX, midX, midY, maxY);
+                c3 = adaptiveSuperSampling(i, j, depth + 1, minX, midX, midY, maxY, regions);
             if(!c4.equals(c0))
-                c4 = adaptiveSuperSampling(i, j, depth + 1, midX, maxX, midY, maxY);
+                c4 = adaptiveSuperSampling(i, j, depth + 1, midX, maxX, midY, maxY, regions);
         }
 
         return c0.add(c1,c2, c3, c4).reduce(5);
     }
 
+    /**
+     * Calculates the largest amount of the regions adaptive super sampling may trace in a pixel
+     * (all the regions of the full subdivision down to the depth), limited so that their aperture
+     * samples can still be indexed
+     *
+     * @return the amount of the regions
+     */
+    private int maxRegions() {
+        long regions = ((1L << 2 * Math.min(aSSdepth + 1, 31)) - 1) / 3;
+        return (int) Math.min(regions, Integer.MAX_VALUE / Math.max(dofSamples, 1));
+    }
+
+
+    /**
+     * Calculates the color of a pixel by adaptive sampling: the samples are traced in
+     * batches, and the sampling stops as soon as the standard error of the mean color
+     * (estimated from the sample variance in each color channel) is within the allowed
+     * error or the maximum amount of samples is reached.
+     *
+     * @param column  pixel column
+     * @param row     pixel row
+     * @param sampler the sampler, started at the pixel
+     * @return the mean color of the samples
+     */
+    private Color adaptiveSampling(int column, int row, Sampler sampler) {
+        double r = 0, g = 0, b = 0, r2 = 0, g2 = 0, b2 = 0;
+        double maxVariance = maxPixelError * maxPixelError;
+        int n = 0;
+        while (n < maxPixelSamples) {
+            for (int end = Math.min(n + sampleBatch, maxPixelSamples); n < end; ++n) {
+                sampler.startSample(n, maxPixelSamples, PIXEL_DIMENSION);
+                Ray ray = constructRay(nX, nY, column, row, sampler.get1D() - 0.5, sampler.get1D() - 0.5);
+                Color color = isDOF ? calcDOFcolor(ray, sampler, n, maxPixelSamples) : rayTracer.traceRay(ray);
+                double cr = color.rgb.d1(), cg = color.rgb.d2(), cb = color.rgb.d3();
+                r += cr;
+                g += cg;
+                b += cb;
+                r2 += cr * cr;
+                g2 += cg * cg;
+                b2 += cb * cb;
+            }
+            // variance of the mean = sample variance / n
+            double variance = Math.max(r2 - r * r / n, Math.max(g2 - g * g / n, b2 - b * b / n)) / (n - 1);
+            if (variance / n <= maxVariance) break;
+        }
+        return new Color(r / n, g / n, b / n);
+    }
+
+    /**
+     * Traces the sample of the current progressive pass in a pixel
+     *
+     * @param column  pixel column
+     * @param row     pixel row
+     * @param sampler the sampler, started at the pixel
+     * @return the color of the sample
+     */
+    private Color progressiveSample(int column, int row, Sampler sampler) {
+        sampler.startSample(progressivePass, progressiveSamples, PIXEL_DIMENSION);
+        Ray ray = constructRay(nX, nY, column, row, sampler.get1D() - 0.5, sampler.get1D() - 0.5);
+        return isDOF
+                ? calcDOFcolor(ray, sampler, progressivePass, progressiveSamples)
+                : rayTracer.traceRay(ray);
+    }
+
+    /**
+     * Checks whether the pixels are rendered by packets of primary rays: it is so when the
+     * packets are enabled and every pixel is sampled by a single ray through its center
+     *
+     * @return true if the primary rays are traced in packets
+     */
+    private boolean isPacketed() {
+        return packetSize > 0 && progressivePass < 0 && maxPixelSamples == 0 && aSSdepth == 0
+                && aaSamples == 1 && !isDOF;
+    }
+
+    /**
+     * Renders a block of pixels. If the primary rays are traced in packets (see
+     * {@link #isPacketed()}), the rays of every square of neighbouring pixels are traced
+     * together by {@link RayTracerBase#traceRays(Ray[], int, Color[])}, otherwise the
+     * pixels are cast one by one.
+     *
+     * @param firstRow first row
+     * @param endRow   row after the block
+     * @param firstCol first column
+     * @param endCol   column after the block
+     */
+    private void castBlock(int firstRow, int endRow, int firstCol, int endCol) {
+        if (!isPacketed()) {
+            for (int i = firstRow; i < endRow; ++i)
+                for (int j = firstCol; j < endCol; ++j)
+                    castRay(j, i);
+            return;
+        }
+        Ray[] rays = new Ray[packetSize * packetSize];
+        Color[] colors = new Color[rays.length];
+        for (int i = firstRow; i < endRow; i += packetSize) {
+            int packetEndRow = Math.min(i + packetSize, endRow);
+            for (int j = firstCol; j < endCol; j += packetSize) {
+                int packetEndCol = Math.min(j + packetSize, endCol);
+                int count = 0;
+                for (int row = i; row < packetEndRow; ++row)
+                    for (int column = j; column < packetEndCol; ++column)
+                        rays[count++] = constructRay(nX, nY, column, row);
+                rayTracer.traceRays(rays, count, colors);
+                count = 0;
+                for (int row = i; row < packetEndRow; ++row)
+                    for (int column = j; column < packetEndCol; ++column)
+                        imageWriter.writePixel(column, row, colors[count++]);
+            }
+        }
+    }
 
     /**
      * Shoots a ray through a pixel, optionally applying depth of field.
@@ -469,26 +941,35 @@ public class Camera implements Cloneable {
      */
     private void castRay(int column, int row) {
         Color color = Color.BLACK;
-        if( aSSdepth > 0 ) {
-            color = adaptiveSuperSampling(row, column, 0, -0.5, 0.5, -0.5, 0.5);
+        Sampler sampler = samplers.get();
+        sampler.startPixel(column, row);
+        if (progressivePass >= 0) {
+            imageWriter.addSample(column, row, progressiveSample(column, row, sampler), 1);
+            return;
+        }
+        if (maxPixelSamples > 0) {
+            color = adaptiveSampling(column, row, sampler);
+        }
+        else if( aSSdepth > 0 ) {
+            color = adaptiveSuperSampling(column, row, 0, -0.5, 0.5, -0.5, 0.5, new int[1]);
         }
         else {
-            Ray ray = constructRay(this.nX, this.nY, row, column);
+            Ray ray = constructRay(this.nX, this.nY, column, row);
             for (int s = 0; s < aaSamples; s++) {
                 // Use jittered ray construction for AA
+                sampler.startSample(s, aaSamples, PIXEL_DIMENSION);
                 if (aaSamples > 1)
-                    ray = constructRay(this.nX, this.nY, row, column, Util.random(-0.5, 0.5), Util.random(-0.5, 0.5));
+                    ray = constructRay(this.nX, this.nY, column, row, sampler.get1D() - 0.5, sampler.get1D() - 0.5);
 
                 if (isDOF) {
-                    color = color.add(calcDOFcolor(ray));
+                    color = color.add(calcDOFcolor(ray, sampler, s, aaSamples));
                 } else {
                     color = color.add(rayTracer.traceRay(ray));
                 }
             }
             color = color.reduce(aaSamples);
         }
-        imageWriter.writePixel(row, column, color);
-        pixelManager.pixelDone();
+        imageWriter.writePixel(column, row, color);
     }
 
 
@@ -512,6 +993,10 @@ public class Camera implements Cloneable {
          * Internal camera being constructed
          */
         private final Camera camera = new Camera();
+        /** The scene to trace, the ray tracer is created for it when the camera is built */
+        private Scene scene = null;
+        /** The type of the ray tracer to create when the camera is built */
+        private RayTracerType rayTracerType = RayTracerType.SIMPLE;
 
         /**
          * Sets the camera's position in space.
@@ -665,10 +1150,67 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Set adaptive sampling of the pixels (instead of a fixed amount of
+         * anti-aliasing samples or adaptive super sampling): every pixel is sampled in
+         * batches until the estimated standard error of its color is within the
+         * allowed error, or the maximum amount of samples is reached. So the samples
+         * are spent on the noisy pixels (edges, glossy surfaces, depth of field) and
+         * not on the flat ones. With depth of field every sample traces its
+         * {@code dofSamples} aperture rays.
+         * @param maxError   allowed standard error of a pixel color (in color units,
+         *                   0-255 scale)
+         * @param batch      amount of samples in every batch (and the minimum amount
+         *                   of samples per pixel), at least 2
+         * @param maxSamples maximum amount of samples per pixel, 0 to turn adaptive
+         *                   sampling off
+         * @return builder object itself
+         */
+        public Builder setAdaptiveSampling(double maxError, int batch, int maxSamples) {
+            if (maxSamples == 0) {
+                camera.maxPixelSamples = 0;
+                return this;
+            }
+            if (maxError <= 0) throw new IllegalArgumentException("Allowed pixel error must be positive");
+            if (batch < 2) throw new IllegalArgumentException("Adaptive sampling batch must have at least 2 samples");
+            if (maxSamples < batch)
+                throw new IllegalArgumentException("Maximum samples must not be less than the batch size");
+            camera.maxPixelError   = maxError;
+            camera.sampleBatch     = batch;
+            camera.maxPixelSamples = maxSamples;
+            return this;
+        }
+        /**
+         * Set the sampler of the positions of the anti-aliasing samples in the pixel
+         * and of the depth of field samples on the aperture. The samples are
+         * determined by the seed and the pixel, so the image does not depend on the
+         * order of rendering the pixels.
+         * @param type the sampler type
+         * @param seed the sampler seed
+         * @return builder object itself
+         */
+        public Builder setSampler(SamplerType type, long seed) {
+            if (type == null) throw new IllegalArgumentException("Sampler type must not be null");
+            camera.samplerType = type;
+            camera.samplerSeed = seed;
+            return this;
+        }
+        /**
+         * Set the sampler of the positions of the anti-aliasing samples in the pixel
+         * and of the depth of field samples on the aperture (with seed 0).
+         * @param type the sampler type
+         * @return builder object itself
+         */
+        public Builder setSampler(SamplerType type) {
+            return setSampler(type, 0);
+        }
         /**
          * Set multi-threading <br>
          * Parameter value meaning:
          * <ul>
+         * <li>-4 - virtual threads taking the tiles in turn (see {@link #setVirtualThreads(int)})</li>
+         * <li>-3 - work stealing of recursively split image regions on the common
+         * fork-join pool (balances the load of regions of uneven cost)</li>
          * <li>-2 - number of threads is number of logical processors less 2</li>
          * <li>-1 - stream processing parallelization (implicit multi-threading) is used</li>
          * <li>0 - multi-threading is not activated</li>
@@ -678,8 +1220,8 @@ public class Camera implements Cloneable {
          * @return builder object itself
          */
         public Builder setMultithreading(int threads) {
-            if (threads < -3)
-                throw new IllegalArgumentException("Multithreading parameter must be -2 or higher");
+            if (threads < -4)
+                throw new IllegalArgumentException("Multithreading parameter must be -4 or higher");
             if (threads == -2) {
                 int cores = Runtime.getRuntime().availableProcessors() - SPARE_THREADS;
                 camera.threadsCount = cores <= 2 ? 1 : cores;
@@ -687,6 +1229,63 @@ public class Camera implements Cloneable {
                 camera.threadsCount = threads;
             return this;
         }
+        /**
+         * Set multi-threading by virtual threads: the tiles are rendered by virtual
+         * threads taking them in turn, so the rendering shares the virtual thread
+         * scheduler with the rest of the application. The amount of the threads is
+         * bounded, so the rendering occupies at most that many carrier threads.
+         * @param parallelism maximum amount of tiles rendered at the same time
+         * @return builder object itself
+         */
+        public Builder setVirtualThreads(int parallelism) {
+            if (parallelism <= 0) throw new IllegalArgumentException("Virtual threads parallelism must be positive");
+            camera.threadsCount   = -4;
+            camera.virtualThreads = parallelism;
+            return this;
+        }
+        /**
+         * Set the size of the square tiles of pixels the rendering threads take at
+         * a time. Small tiles balance the threads better, large tiles reduce the
+         * scheduling overhead and keep neighbouring pixels in the same thread.
+         * @param tileSize tile size in pixels along each side
+         * @return builder object itself
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize <= 0) throw new IllegalArgumentException("Tile size must be positive");
+            camera.tileSize = tileSize;
+            return this;
+        }
+        /**
+         * Set the size of the square packets of primary rays: the rays through a square of
+         * neighbouring pixels are traced together, so an acceleration structure is traversed
+         * once for the whole packet. The packets are used only when every pixel is sampled
+         * by a single ray (without anti-aliasing, adaptive sampling and depth of field).
+         * @param packetSize packet size in pixels along each side (4 or 8 work best),
+         *                   0 to trace every ray alone
+         * @return builder object itself
+         */
+        public Builder setPacketSize(int packetSize) {
+            if (packetSize < 0) throw new IllegalArgumentException("Packet size must not be negative");
+            camera.packetSize = packetSize;
+            return this;
+        }
+        /**
+         * Set an out-of-core frame buffer: the image is kept in a memory-mapped file
+         * instead of the heap, so its size is limited by the disk only. The file
+         * records the rendered tiles, so if it is left by an interrupted rendering
+         * of the same resolution, tile size, camera and scene settings, the rendering
+         * skips the tiles rendered before (except in the fork-join mode, which renders
+         * regions rather than tiles). Otherwise the file is started anew. The record
+         * is cleared when a rendering completes, so the next rendering renders all the
+         * tiles. The file is released by {@link Camera#close()}.
+         * @param file the frame buffer file
+         * @return builder object itself
+         */
+        public Builder setFrameBufferFile(Path file) {
+            if (file == null) throw new IllegalArgumentException("Frame buffer file must not be null");
+            camera.frameBufferFile = file;
+            return this;
+        }
         /**
          * Set debug printing interval. If it's zero - there won't be printing at all
          * @param interval printing interval in %
@@ -728,19 +1327,73 @@ public class Camera implements Cloneable {
 
         /**
          * Sets the {@link RayTracerBase} implementation for the camera.
+         * The ray tracer is created (and its acceleration structure is built) by {@link #build()},
+         * using the multi-threading of the camera.
          *
          * @param scene the scene to trace
          * @param type the ray tracer type to use
          * @return this builder instance for chaining
          */
         public Builder setRayTracer(Scene scene, RayTracerType type) {
-            if (type == RayTracerType.SIMPLE)
-                camera.rayTracer = new SimpleRayTracer(scene);
-            else
-                camera.rayTracer = null;
+            this.scene = scene;
+            this.rayTracerType = type;
             return this;
         }
 
+        /**
+         * Creates the ray tracer of the set type for the set scene
+         *
+         * @return the ray tracer
+         */
+        private RayTracerBase createRayTracer() {
+            return switch (rayTracerType) {
+                case SIMPLE -> new SimpleRayTracer(scene);
+                case GRID -> new GridRayTracer(scene);
+                case BVH, BVH4, BVH8 -> {
+                    int width = switch (rayTracerType) {
+                        case BVH4 -> 4;
+                        case BVH8 -> 8;
+                        default -> 2;
+                    };
+                    // the hierarchy is built with the same parallelism as the rendering
+                    if (camera.threadsCount == 0) yield new BVHRayTracer(scene, width, null);
+                    if (camera.threadsCount < 0) yield new BVHRayTracer(scene, width, ForkJoinPool.commonPool());
+                    ForkJoinPool pool = new ForkJoinPool(camera.threadsCount);
+                    try {
+                        yield new BVHRayTracer(scene, width, pool);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Calculates the fingerprint of the rendering of the camera: a hash of the view,
+         * the sampling settings and the scene (its name, background, amount of lights
+         * and extent of its geometries), which tells the frame buffer file of another
+         * rendering from an interrupted rendering of the same image
+         *
+         * @return the fingerprint
+         */
+        private long fingerprint() {
+            String text = String.join("|", String.valueOf(camera.p0), String.valueOf(camera.vTo),
+                    String.valueOf(camera.vUp), String.valueOf(camera.width), String.valueOf(camera.height),
+                    String.valueOf(camera.distance), String.valueOf(camera.focalDistance),
+                    String.valueOf(camera.apertureRadius), String.valueOf(camera.dofSamples),
+                    String.valueOf(camera.aSSdepthDOF), String.valueOf(camera.aaSamples),
+                    String.valueOf(camera.aSSdepth), String.valueOf(camera.maxPixelError),
+                    String.valueOf(camera.sampleBatch), String.valueOf(camera.maxPixelSamples),
+                    String.valueOf(camera.samplerType), String.valueOf(camera.samplerSeed),
+                    String.valueOf(rayTracerType));
+            if (scene != null)
+                text += "|" + scene.name + "|" + scene.background + "|" + scene.lights.size()
+                        + "|" + scene.geometries.getBoundingBox();
+            long hash = 1125899906842597L;
+            for (int i = 0; i < text.length(); ++i) hash = 31 * hash + text.charAt(i);
+            return hash;
+        }
+
         /**
          * Builds and returns the configured {@link Camera} object.
          *
@@ -766,10 +1419,14 @@ public class Camera implements Cloneable {
 
             if (camera.nX <= 0 || camera.nY <= 0)
                 throw new IllegalArgumentException("nX and nY must be positive");
-            camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
-
-            if (camera.rayTracer == null)
-                camera.rayTracer = new SimpleRayTracer(null);
+            camera.imageWriter = camera.frameBufferFile == null
+                    ? new ImageWriter(camera.nX, camera.nY)
+                    : new ImageWriter(new MappedFrameBuffer(camera.frameBufferFile, camera.nX, camera.nY,
+                                                            camera.tileSize, fingerprint()));
+
+            long start = System.currentTimeMillis();
+            camera.rayTracer = createRayTracer();
+            camera.buildTime = System.currentTimeMillis() - start;
 
             camera.pIJ = camera.p0.add(camera.vTo.scale(camera.distance));
 
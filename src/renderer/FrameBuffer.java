@@ -0,0 +1,148 @@
+package renderer;
+
+/**
+ * High dynamic range frame buffer: the pixel colors are accumulated together with the
+ * amount and the total weight of the samples of every pixel (without any object per
+ * pixel). The color of a pixel is the weighted mean of its samples, and it is quantized
+ * to 8 bits per channel only for the output.
+ * <p>
+ * The color channels are in the scale of {@link primitives.Color} (0-255 for the
+ * displayable range, but not limited to it).
+ * <p>
+ * Different pixels may be written by different threads at the same time. A buffer may
+ * also keep a resume marker of the tiles of the image that are already rendered, so an
+ * interrupted rendering may continue from where it stopped.
+ * @see HeapFrameBuffer
+ * @see MappedFrameBuffer
+ */
+abstract class FrameBuffer {
+   /** Horizontal resolution - number of pixels in row */
+   protected final int nX;
+   /** Vertical resolution - number of pixels in column */
+   protected final int nY;
+
+   // ***************** Constructors ********************** //
+   /**
+    * Constructs a frame buffer
+    * @param nX amount of pixels by width
+    * @param nY amount of pixels by height
+    */
+   protected FrameBuffer(int nX, int nY) {
+      if (nX <= 0 || nY <= 0) throw new IllegalArgumentException("nX and nY must be positive");
+      this.nX = nX;
+      this.nY = nY;
+   }
+
+   // ***************** Getters ********************** //
+   /**
+    * Horizontal resolution
+    * @return the amount of horizontal pixels
+    */
+   int nX() { return nX; }
+
+   /**
+    * Vertical resolution
+    * @return the amount of vertical pixels
+    */
+   int nY() { return nY; }
+
+   /**
+    * Returns the amount of the samples of a pixel
+    * @param x X axis index of the pixel
+    * @param y Y axis index of the pixel
+    * @return the amount of the samples
+    */
+   abstract int samples(int x, int y);
+
+   /**
+    * Returns the total weight of the samples of a pixel
+    * @param x X axis index of the pixel
+    * @param y Y axis index of the pixel
+    * @return the total weight
+    */
+   abstract double weight(int x, int y);
+
+   /**
+    * Returns a color channel of a pixel - the weighted mean of its samples
+    * @param x       X axis index of the pixel
+    * @param y       Y axis index of the pixel
+    * @param channel the channel (0 - red, 1 - green, 2 - blue)
+    * @return the channel value, 0 if the pixel has no samples
+    */
+   abstract double get(int x, int y, int channel);
+
+   /**
+    * Checks the resume marker of a tile of the image
+    * @param tile the tile index (see {@link PixelManager})
+    * @return true if the tile was marked as rendered, false by default
+    */
+   boolean isTileDone(int tile) { return false; }
+
+   // ***************** Operations ******************** //
+   /** Removes all the samples and the resume marker (the buffer becomes black) */
+   abstract void clear();
+
+   /**
+    * Sets the color of a pixel, replacing its samples by a single sample
+    * @param x X axis index of the pixel
+    * @param y Y axis index of the pixel
+    * @param r red channel
+    * @param g green channel
+    * @param b blue channel
+    */
+   abstract void set(int x, int y, double r, double g, double b);
+
+   /**
+    * Adds a weighted sample to a pixel
+    * @param x      X axis index of the pixel
+    * @param y      Y axis index of the pixel
+    * @param r      red channel
+    * @param g      green channel
+    * @param b      blue channel
+    * @param weight the sample weight
+    */
+   abstract void add(int x, int y, double r, double g, double b, double weight);
+
+   /**
+    * Marks a tile of the image as rendered in the resume marker, the buffer does not
+    * keep the marker by default
+    * @param tile the tile index (see {@link PixelManager})
+    */
+   void tileDone(int tile) { /* no resume marker */ }
+
+   /**
+    * Removes the resume marker (keeping the pixels) - the image is complete, so it
+    * is not taken for an interrupted rendering any more
+    */
+   void clearTiles() { /* no resume marker */ }
+
+   /** Writes the pixels and the resume marker through to their storage, if any */
+   void flush() { /* kept in memory only */ }
+
+   /**
+    * Releases the storage of the buffer after writing the pixels through to it - the
+    * buffer must not be used any more
+    */
+   void close() { /* kept in the heap, released when collected */ }
+
+   /**
+    * Quantizes the color of a pixel to 8 bits per channel (truncated and clamped to
+    * 0-255)
+    * @param x X axis index of the pixel
+    * @param y Y axis index of the pixel
+    * @return the color packed as 0xRRGGBB
+    */
+   int toRGB(int x, int y) {
+      return quantize(get(x, y, 0)) << 16 | quantize(get(x, y, 1)) << 8 | quantize(get(x, y, 2));
+   }
+
+   /**
+    * Quantizes a color channel to 8 bits
+    * @param value the channel value
+    * @return the value truncated and clamped to 0-255
+    */
+   private static int quantize(double value) {
+      int i = (int) value;
+      return i < 0 ? 0 : Math.min(i, 255);
+   }
+}
@@ -0,0 +1,25 @@
+package renderer;
+
+import geometries.RegularGrid;
+import scene.Scene;
+
+/**
+ * {@code GridRayTracer} is a ray tracer that accelerates the ray-scene queries with a
+ * {@link RegularGrid} built over the scene's geometries.
+ * <p>
+ * The shading is the same as in {@link SimpleRayTracer}; only the intersection queries
+ * (closest hit and shadow rays) traverse the grid instead of testing every geometry.
+ * The grid is built when the ray tracer is created, so the scene's geometries must be
+ * complete at that time.
+ */
+public class GridRayTracer extends SimpleRayTracer {
+
+    /**
+     * Constructs a {@code GridRayTracer} for the given scene and builds the grid over its geometries.
+     *
+     * @param scene the {@link Scene} to render
+     */
+    public GridRayTracer(Scene scene) {
+        super(scene, new RegularGrid(scene.geometries));
+    }
+}
@@ -0,0 +1,46 @@
+package renderer;
+
+/**
+ * Sampler of the Halton low discrepancy sequence: the value of the dimension d is the
+ * radical inverse of the sample index in the d-th prime base. Every pixel shifts the
+ * sequence by its own random offset modulo 1 (Cranley-Patterson rotation), so the
+ * pixels are not correlated. Dimensions beyond the prime table are independent random.
+ */
+public class HaltonSampler extends Sampler {
+    /** The prime bases of the dimensions */
+    private static final int[] PRIMES = {
+            2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53 };
+
+    /**
+     * Constructs a Halton sampler
+     *
+     * @param seed the seed
+     */
+    public HaltonSampler(long seed) {
+        super(seed);
+    }
+
+    @Override
+    protected double sample(int dimension) {
+        if (dimension >= PRIMES.length) return random(dimension);
+        double value = radicalInverse(index, PRIMES[dimension]) + toUnit(hash(dimension));
+        return value >= 1 ? value - 1 : value;
+    }
+
+    /**
+     * Calculates the radical inverse of an integer: its digits in a base mirrored
+     * around the radix point
+     *
+     * @param i    the integer
+     * @param base the base
+     * @return the radical inverse in the range [0,1)
+     */
+    private static double radicalInverse(int i, int base) {
+        double inverseBase = 1.0 / base;
+        double factor = inverseBase;
+        double value = 0;
+        for (; i > 0; i /= base, factor *= inverseBase)
+            value += (i % base) * factor;
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * Frame buffer held in the heap: the pixel colors are accumulated in flat float arrays,
+ * so the image is limited by the heap size (20 bytes per pixel). The buffer does not
+ * keep a resume marker.
+ */
+final class HeapFrameBuffer extends FrameBuffer {
+   /** Weighted sums of the samples, 3 color channels per pixel */
+   private final float[] rgb;
+   /** Total weights of the samples of every pixel */
+   private final float[] weights;
+   /** Amounts of the samples of every pixel */
+   private final int[]   counts;
+
+   // ***************** Constructors ********************** //
+   /**
+    * Constructs an empty (black) frame buffer
+    * @param nX amount of pixels by width
+    * @param nY amount of pixels by height
+    */
+   HeapFrameBuffer(int nX, int nY) {
+      super(nX, nY);
+      rgb     = new float[3 * nX * nY];
+      weights = new float[nX * nY];
+      counts  = new int[nX * nY];
+   }
+
+   // ***************** Getters ********************** //
+   @Override
+   int samples(int x, int y) { return counts[y * nX + x]; }
+
+   @Override
+   double weight(int x, int y) { return weights[y * nX + x]; }
+
+   @Override
+   double get(int x, int y, int channel) {
+      int   pixel  = y * nX + x;
+      float weight = weights[pixel];
+      return weight == 0 ? 0 : rgb[3 * pixel + channel] / weight;
+   }
+
+   // ***************** Operations ******************** //
+   @Override
+   void clear() {
+      Arrays.fill(rgb, 0);
+      Arrays.fill(weights, 0);
+      Arrays.fill(counts, 0);
+   }
+
+   @Override
+   void set(int x, int y, double r, double g, double b) {
+      int pixel = y * nX + x;
+      rgb[3 * pixel]     = (float) r;
+      rgb[3 * pixel + 1] = (float) g;
+      rgb[3 * pixel + 2] = (float) b;
+      weights[pixel]     = 1;
+      counts[pixel]      = 1;
+   }
+
+   @Override
+   void add(int x, int y, double r, double g, double b, double weight) {
+      int pixel = y * nX + x;
+      rgb[3 * pixel]     += (float) (r * weight);
+      rgb[3 * pixel + 1] += (float) (g * weight);
+      rgb[3 * pixel + 2] += (float) (b * weight);
+      weights[pixel]     += (float) weight;
+      ++counts[pixel];
+   }
+}
@@ -1,9 +1,6 @@
 package renderer;
 
-import java.awt.image.BufferedImage;
-import java.io.*;
-
-import javax.imageio.ImageIO;
+import java.io.File;
 
 import primitives.Color;
 
@@ -11,7 +8,10 @@ import primitives.Color;
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible for holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution.<br>
+ * The pixel colors are kept in a high dynamic range {@link FrameBuffer} (in the
+ * heap or in a memory-mapped file) and are quantized to 8 bits per channel only
+ * when the image is written
  * @author Dan
  */
 final class ImageWriter {
@@ -27,7 +27,7 @@ final class ImageWriter {
    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
    /** Image generation buffer (the matrix of the pixels) */
-   private final BufferedImage image;
+   private final FrameBuffer   buffer;
 
    // ***************** Constructors ********************** //
    /**
@@ -36,10 +36,18 @@ final class ImageWriter {
     * @param nY amount of pixels by height
     */
    ImageWriter(int nX, int nY) {
-      this.nX = nX;
-      this.nY = nY;
+      this(new HeapFrameBuffer(nX, nY));
+   }
 
-      image   = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+   /**
+    * Image Writer constructor accepting the frame buffer of the image (e.g. an
+    * out-of-core buffer), the View Plane parameters are of the buffer
+    * @param buffer the frame buffer
+    */
+   ImageWriter(FrameBuffer buffer) {
+      this.nX     = buffer.nX();
+      this.nY     = buffer.nY();
+      this.buffer = buffer;
    }
 
    // ***************** Getters ********************** //
@@ -58,19 +66,29 @@ final class ImageWriter {
    // ***************** Operations ******************** //
 
    /**
-    * Function writeToImage produces unoptimized png file of the image according
-    * to pixel color matrix in the directory of the project
+    * Function writeToImage produces png file of the image according to pixel
+    * color matrix in the directory of the project (the rows are compressed in
+    * parallel)
     * @param imageName the name of png file
     */
    void writeToImage(String imageName) {
-      try {
-         File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-         ImageIO.write(image, "png", file);
-      } catch (IOException e) {
-         throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+      try (PngWriter png = openImage(imageName)) {
+         png.rowsReady(nY);
       }
    }
 
+   /**
+    * Function openImage starts writing png file of the image in the directory of
+    * the project, its rows are written as soon as they are reported ready (e.g.
+    * while the image is rendered), and the file is completed when the writer is
+    * closed
+    * @param imageName the name of png file
+    * @return the png writer
+    */
+   PngWriter openImage(String imageName) {
+      return new PngWriter(new File(FOLDER_PATH + '/' + imageName + ".png"), buffer);
+   }
+
    /**
     * The function writePixel writes a color of a specific pixel into pixel color
     * matrix
@@ -78,6 +96,55 @@ final class ImageWriter {
     * @param yIndex Y axis index of the pixel
     * @param color  final color of the pixel
     */
-   void writePixel(int xIndex, int yIndex, Color color) { image.setRGB(xIndex, yIndex, color.getColor().getRGB()); }
+   void writePixel(int xIndex, int yIndex, Color color) {
+      buffer.set(xIndex, yIndex, color.rgb.d1(), color.rgb.d2(), color.rgb.d3());
+   }
+
+   /**
+    * The function addSample accumulates a weighted sample color of a specific
+    * pixel, the pixel color is the weighted mean of its samples
+    * @param xIndex X axis index of the pixel
+    * @param yIndex Y axis index of the pixel
+    * @param color  sample color
+    * @param weight sample weight
+    */
+   void addSample(int xIndex, int yIndex, Color color, double weight) {
+      buffer.add(xIndex, yIndex, color.rgb.d1(), color.rgb.d2(), color.rgb.d3(), weight);
+   }
+
+   /** Removes all the pixel colors and samples (the image becomes black) */
+   void clear() { buffer.clear(); }
+
+   /**
+    * Checks whether a tile of the image was rendered before (by the resume
+    * marker of the frame buffer)
+    * @param tile the tile index
+    * @return true if the tile is rendered
+    */
+   boolean isTileDone(int tile) { return buffer.isTileDone(tile); }
+
+   /**
+    * Records a rendered tile of the image in the resume marker of the frame
+    * buffer
+    * @param tile the tile index
+    */
+   void tileDone(int tile) { buffer.tileDone(tile); }
+
+   /**
+    * Removes the resume marker of the frame buffer after the image is complete
+    */
+   void clearTiles() { buffer.clearTiles(); }
+
+   /** Writes the pixel colors through to the storage of the frame buffer */
+   void flush() { buffer.flush(); }
+
+   /** Releases the storage of the frame buffer (the image cannot be used any more) */
+   void close() { buffer.close(); }
+
+   /**
+    * Returns the frame buffer of the pixel colors
+    * @return the frame buffer
+    */
+   FrameBuffer buffer() { return buffer; }
 
 }
@@ -0,0 +1,193 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Out-of-core frame buffer kept in a memory-mapped file, so the image is limited by the
+ * disk rather than by the heap, and the rendering threads write the pixels directly into
+ * the pages of the file.
+ * <p>
+ * The file starts with a header of the image layout followed by the resume marker - a
+ * byte per tile that is set when the tile is rendered. The pixels follow as records of
+ * 20 bytes (the weighted sums of the 3 channels, the total weight and the amount of the
+ * samples), row by row. The file is mapped in chunks of whole rows, since a single
+ * mapping is limited to 2 GB.
+ * <p>
+ * When an existing file of the same image and tile layout and of the same rendering
+ * fingerprint (of the camera and the scene) is opened, its pixels and its resume marker
+ * are kept, so a rendering interrupted by the end of the process continues from its
+ * rendered tiles. Otherwise the file is started anew. The marker is cleared when the
+ * rendering completes, so a complete image is never taken for a resumed one.
+ * <p>
+ * The mappings are released by {@link #close()} (when they are collected - a mapping
+ * cannot be unmapped explicitly).
+ */
+final class MappedFrameBuffer extends FrameBuffer {
+   /** File format identifier ("HDRF") */
+   private static final int  MAGIC        = 0x48445246;
+   /** File format version */
+   private static final int  VERSION      = 2;
+   /** Position of the rendering fingerprint in the file */
+   private static final int  FINGERPRINT  = 24;
+   /** Position of the resume marker in the file (after the header fields) */
+   private static final int  MARKER       = 32;
+   /** Alignment of the pixels in the file (a page) */
+   private static final int  ALIGNMENT    = 1 << 12;
+   /** Size of the record of a pixel in bytes */
+   private static final int  RECORD       = 20;
+   /** Target size of a mapped chunk of the pixels */
+   private static final int  CHUNK_SIZE   = 1 << 30;
+   /** Size of the block of zeros for clearing the file */
+   private static final int  ZEROS_SIZE   = 1 << 16;
+
+   /** The mapped header and resume marker, {@code null} after the buffer is closed */
+   private MappedByteBuffer         header;
+   /** The mapped chunks of the pixels */
+   private final MappedByteBuffer[] chunks;
+   /** The amount of the rows of a chunk */
+   private final int                chunkRows;
+   /** The amount of the tiles in the resume marker */
+   private final int                tiles;
+
+   // ***************** Constructors ********************** //
+   /**
+    * Opens (or creates) a frame buffer file. The pixels and the resume marker of an
+    * existing file are kept if it has the same resolution, tile size and fingerprint,
+    * otherwise the file is started anew (black).
+    * @param file        the file of the buffer
+    * @param nX          amount of pixels by width
+    * @param nY          amount of pixels by height
+    * @param tileSize    the size of the tiles of the resume marker (in pixels along
+    *                    each side)
+    * @param fingerprint the fingerprint of the rendering (e.g. a hash of the camera
+    *                    and the scene settings)
+    * @throws IllegalArgumentException if a row of the image is too wide for a mapping
+    * @throws IllegalStateException    if the file cannot be opened or mapped
+    */
+   MappedFrameBuffer(Path file, int nX, int nY, int tileSize, long fingerprint) {
+      super(nX, nY);
+      if (tileSize <= 0) throw new IllegalArgumentException("tile size must be positive");
+      if ((long) nX * RECORD > Integer.MAX_VALUE) throw new IllegalArgumentException("Image row is too wide");
+      tiles     = ((nX + tileSize - 1) / tileSize) * ((nY + tileSize - 1) / tileSize);
+      chunkRows = Math.max(1, CHUNK_SIZE / (nX * RECORD));
+      long pixelsStart = ((long) MARKER + tiles + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+      long fileSize    = pixelsStart + (long) nX * nY * RECORD;
+
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE)) {
+         boolean sameSize = channel.size() == fileSize;
+         // a file of another size is truncated, so its extension to the new size is zeros
+         if (!sameSize) channel.truncate(0);
+         header = channel.map(FileChannel.MapMode.READ_WRITE, 0, pixelsStart);
+         header.order(ByteOrder.LITTLE_ENDIAN);
+         boolean resume = sameSize && header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(8) == nX
+               && header.getInt(12) == nY && header.getInt(16) == tileSize && header.getInt(20) == tiles
+               && header.getLong(FINGERPRINT) == fingerprint;
+
+         int chunkCount = (nY + chunkRows - 1) / chunkRows;
+         chunks = new MappedByteBuffer[chunkCount];
+         for (int i = 0; i < chunkCount; ++i) {
+            long rows = Math.min(chunkRows, nY - (long) i * chunkRows);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                    pixelsStart + (long) i * chunkRows * nX * RECORD, rows * nX * RECORD);
+            chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+         }
+         if (!resume) {
+            if (sameSize) clear();
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nX).putInt(12, nY)
+                  .putInt(16, tileSize).putInt(20, tiles).putLong(FINGERPRINT, fingerprint);
+         }
+      } catch (IOException e) {
+         throw new IllegalStateException("I/O error - cannot map frame buffer file " + file, e);
+      }
+   }
+
+   // ***************** Getters ********************** //
+   /**
+    * Returns the mapped chunk of the pixels of a row
+    * @param y the row
+    * @return the chunk
+    */
+   private MappedByteBuffer chunk(int y) { return chunks[y / chunkRows]; }
+
+   /**
+    * Returns the position of the record of a pixel in its chunk
+    * @param x X axis index of the pixel
+    * @param y Y axis index of the pixel
+    * @return the position in bytes
+    */
+   private int offset(int x, int y) { return ((y % chunkRows) * nX + x) * RECORD; }
+
+   @Override
+   int samples(int x, int y) { return chunk(y).getInt(offset(x, y) + 16); }
+
+   @Override
+   double weight(int x, int y) { return chunk(y).getFloat(offset(x, y) + 12); }
+
+   @Override
+   double get(int x, int y, int channel) {
+      MappedByteBuffer chunk  = chunk(y);
+      int              offset = offset(x, y);
+      float            weight = chunk.getFloat(offset + 12);
+      return weight == 0 ? 0 : chunk.getFloat(offset + 4 * channel) / weight;
+   }
+
+   @Override
+   boolean isTileDone(int tile) { return header.get(MARKER + tile) != 0; }
+
+   // ***************** Operations ******************** //
+   @Override
+   void clear() {
+      byte[] zeros = new byte[ZEROS_SIZE];
+      for (MappedByteBuffer chunk : chunks)
+         for (int i = 0; i < chunk.capacity(); i += ZEROS_SIZE)
+            chunk.put(i, zeros, 0, Math.min(ZEROS_SIZE, chunk.capacity() - i));
+      header.put(MARKER, new byte[tiles]);
+   }
+
+   @Override
+   void set(int x, int y, double r, double g, double b) {
+      MappedByteBuffer chunk  = chunk(y);
+      int              offset = offset(x, y);
+      chunk.putFloat(offset, (float) r).putFloat(offset + 4, (float) g).putFloat(offset + 8, (float) b)
+           .putFloat(offset + 12, 1).putInt(offset + 16, 1);
+   }
+
+   @Override
+   void add(int x, int y, double r, double g, double b, double weight) {
+      MappedByteBuffer chunk  = chunk(y);
+      int              offset = offset(x, y);
+      chunk.putFloat(offset, chunk.getFloat(offset) + (float) (r * weight))
+           .putFloat(offset + 4, chunk.getFloat(offset + 4) + (float) (g * weight))
+           .putFloat(offset + 8, chunk.getFloat(offset + 8) + (float) (b * weight))
+           .putFloat(offset + 12, chunk.getFloat(offset + 12) + (float) weight)
+           .putInt(offset + 16, chunk.getInt(offset + 16) + 1);
+   }
+
+   @Override
+   void tileDone(int tile) { header.put(MARKER + tile, (byte) 1); }
+
+   @Override
+   void clearTiles() { header.put(MARKER, new byte[tiles]); }
+
+   @Override
+   void flush() {
+      for (MappedByteBuffer chunk : chunks) chunk.force();
+      header.force();
+   }
+
+   @Override
+   void close() {
+      if (header == null) return;
+      flush();
+      // the mappings are released when they are collected
+      Arrays.fill(chunks, null);
+      header = null;
+   }
+}
@@ -1,67 +1,77 @@
 package renderer;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * The image is divided into square tiles of pixels (the last row and column of
+ * tiles may be smaller), and the threads take whole tiles from an atomic tile
+ * cursor, so there is neither locking nor allocation per pixel. The progress is
+ * counted per tile in a striped counter that is summed only when printing is
+ * required. Optionally, the completion of the rows is tracked, and a listener is
+ * notified whenever more rows from the top of the image are complete (e.g. for
+ * writing them while the rest of the image is rendered).
  * @author Dan Zilberstein
  */
 class PixelManager {
-    /**
-     * Immutable class for object containing allocated pixel (with its row and
-     * column numbers)
-     * @param col pixel column number
-     * @param row pixel row number
-     */
-    record Pixel(int col, int row) {
-    }
+    /** Default tile size (in pixels along each side) */
+    static final int            DEFAULT_TILE_SIZE = 32;
 
     /** Maximum rows of pixels */
-    private int                 maxRows       = 0;
+    private final int           maxRows;
     /** Maximum columns of pixels */
-    private int                 maxCols       = 0;
+    private final int           maxCols;
+    /** Tile size in pixels along each side */
+    private final int           tileSize;
+    /** Amount of tiles in a row of tiles */
+    private final int           tileCols;
+    /** Total amount of tiles in the generated image */
+    private final int           totalTiles;
     /** Total amount of pixels in the generated image */
-    private long                totalPixels   = 0l;
+    private final long          totalPixels;
 
-    /** Currently processed row of pixels */
-    private volatile int        cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int        cCol          = -1;
+    /** Next tile to allocate */
+    private final AtomicInteger nextTile      = new AtomicInteger();
     /** Amount of pixels that have been processed */
-    private volatile long       pixels        = 0l;
+    private final LongAdder     pixels        = new LongAdder();
     /** Last printed progress update percentage */
-    private volatile int        lastPrinted   = 0;
+    private final AtomicInteger lastPrinted   = new AtomicInteger();
+
+    /** Amounts of the processed pixels of every row (if rows are tracked) */
+    private AtomicIntegerArray  rowPixels;
+    /** Amount of the complete rows from the top */
+    private int                 completeRows  = 0;
+    /** Listener of the complete rows, {@code null} if rows are not tracked */
+    private IntConsumer         rowsListener;
 
     /** Flag of debug printing of progress percentage */
-    private boolean             print         = false;
+    private final boolean       print;
     /** Progress percentage printing interval */
     private long                printInterval = 100l;
     /** Printing format */
     private static final String PRINT_FORMAT  = "%5.1f%%\n";
-    /**
-     * Mutual exclusion object for synchronizing next pixel allocation between
-     * threads
-     */
-    private Object              mutexNext     = new Object();
-    /**
-     * Mutual exclusion object for printing progress percentage in console window
-     * by different threads
-     */
-    private Object              mutexPixels   = new Object();
 
     /**
      * Initialize pixel manager data for multi-threading
      * @param maxRows  the amount of pixel rows
      * @param maxCols  the amount of pixel columns
+     * @param tileSize the tile size in pixels along each side
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required
      */
-    PixelManager(int maxRows, int maxCols, double... interval) {
+    PixelManager(int maxRows, int maxCols, int tileSize, double... interval) {
         if (interval.length > 1) throw new IllegalArgumentException("only up to one interval argument is allowed");
+        if (tileSize <= 0) throw new IllegalArgumentException("tile size must be positive");
         this.maxRows  = maxRows;
         this.maxCols  = maxCols;
+        this.tileSize = tileSize;
+        tileCols      = (maxCols + tileSize - 1) / tileSize;
+        totalTiles    = tileCols * ((maxRows + tileSize - 1) / tileSize);
         totalPixels   = (long) maxRows * maxCols;
         printInterval = interval.length == 0 ? printInterval : (long) (interval[0] * 10);
         print         = printInterval != 0;
@@ -69,42 +79,124 @@ class PixelManager {
     }
 
     /**
-     * Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
-     * @return true if next pixel is allocated, false if there are no more pixels
+     * Returns the total amount of tiles
+     * @return the amount of tiles
      */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
-
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cRow, cCol);
-
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
-        }
-        return null;
+    int tiles() {
+        return totalTiles;
+    }
+
+    /**
+     * Provides the next available tile - the only shared operation of the
+     * threads, a single atomic increment
+     * @return the tile index, or -1 if there are no more tiles
+     */
+    int nextTile() {
+        int tile = nextTile.getAndIncrement();
+        return tile < totalTiles ? tile : -1;
+    }
+
+    /**
+     * Returns the first pixel row of a tile
+     * @param tile the tile index
+     * @return the first row
+     */
+    int firstRow(int tile) {
+        return tile / tileCols * tileSize;
+    }
+
+    /**
+     * Returns the pixel row after the last row of a tile
+     * @param tile the tile index
+     * @return the end row (exclusive)
+     */
+    int endRow(int tile) {
+        return Math.min(firstRow(tile) + tileSize, maxRows);
+    }
+
+    /**
+     * Returns the first pixel column of a tile
+     * @param tile the tile index
+     * @return the first column
+     */
+    int firstCol(int tile) {
+        return tile % tileCols * tileSize;
+    }
+
+    /**
+     * Returns the pixel column after the last column of a tile
+     * @param tile the tile index
+     * @return the end column (exclusive)
+     */
+    int endCol(int tile) {
+        return Math.min(firstCol(tile) + tileSize, maxCols);
+    }
+
+    /**
+     * Set a listener of the complete rows: it is called (by one thread at a time)
+     * with the amount of the complete rows from the top of the image whenever the
+     * amount grows. Must be set before the processing starts.
+     * @param listener the listener
+     */
+    void setRowsListener(IntConsumer listener) {
+        rowPixels    = new AtomicIntegerArray(maxRows);
+        rowsListener = listener;
+    }
+
+    /**
+     * Finish tile processing by updating and printing of progress percentage
+     * @param tile the finished tile index
+     */
+    void tileDone(int tile) {
+        int firstCol = firstCol(tile), endCol = endCol(tile);
+        int firstRow = firstRow(tile), endRow = endRow(tile);
+        progress((long) (endRow - firstRow) * (endCol - firstCol));
+        if (rowsListener != null)
+            for (int row = firstRow; row < endRow; ++row)
+                rowDone(row, endCol - firstCol);
+    }
+
+    /**
+     * Finish processing of a run of pixels in a row by updating and printing of
+     * progress percentage
+     * @param row   the row of the pixels
+     * @param count the amount of the finished pixels
+     */
+    void pixelsDone(int row, int count) {
+        progress(count);
+        if (rowsListener != null) rowDone(row, count);
     }
 
-    /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
-        boolean flag       = false;
-        int     percentage = 0;
-        synchronized (mutexPixels) {
-            ++pixels;
-            if (print) {
-                percentage = (int) (1000l * pixels / totalPixels);
-                if (percentage - lastPrinted >= printInterval) {
-                    lastPrinted = percentage;
-                    flag        = true;
-                }
+    /**
+     * Count finished pixels of a row and notify the listener if the complete rows
+     * from the top grow
+     * @param row   the row of the pixels
+     * @param count the amount of the finished pixels
+     */
+    private void rowDone(int row, int count) {
+        if (rowPixels.addAndGet(row, count) < maxCols) return;
+        // a row completes once, so the lock is taken once per row
+        synchronized (rowPixels) {
+            int rows = completeRows;
+            while (rows < maxRows && rowPixels.get(rows) == maxCols) ++rows;
+            if (rows > completeRows) {
+                completeRows = rows;
+                rowsListener.accept(rows);
             }
-            if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Update and print the progress percentage
+     * @param count the amount of the finished pixels
+     */
+    private void progress(long count) {
+        pixels.add(count);
+        if (!print) return;
+        int percentage = (int) (1000l * pixels.sum() / totalPixels);
+        int last       = lastPrinted.get();
+        // only the thread that advances the printed percentage prints it
+        if (percentage - last >= printInterval && lastPrinted.compareAndSet(last, percentage))
+            System.out.printf(PRINT_FORMAT, percentage / 10d);
+    }
+}
@@ -0,0 +1,294 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming PNG encoder of a {@link FrameBuffer} (8 bit RGB).
+ * <p>
+ * The rows are encoded as soon as they are reported ready, so the image may be written
+ * while it is being rendered, and the 8 bit image is never held as a whole. The rows are
+ * grouped into blocks that are filtered and deflated in parallel by asynchronous tasks (on
+ * the common fork-join pool, waited for without running other tasks of the pool, so a
+ * rendering thread may report the rows): every block is an independent piece of the deflate stream (ended by a sync flush)
+ * primed with the preceding 32 KB of the image data as its dictionary, and the checksums
+ * of the blocks are combined into the checksum of the whole stream. The blocks are
+ * written in order, and only a bounded amount of them is in memory at a time.
+ * <p>
+ * A writer is used by one thread at a time.
+ */
+final class PngWriter implements AutoCloseable {
+    /** PNG file signature */
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    /** Target size of the image data of a block */
+    private static final int BLOCK_SIZE = 1 << 18;
+    /** Size of the deflate dictionary (the deflate window) */
+    private static final int DICTIONARY_SIZE = 1 << 15;
+    /** The modulus of Adler-32 checksum */
+    private static final int ADLER_BASE = 65521;
+    /** The Paeth filter type of a row */
+    private static final byte PAETH = 4;
+
+    /** The image to encode */
+    private final FrameBuffer buffer;
+    /** The output file stream */
+    private final DataOutputStream out;
+    /** The amount of the bytes of a filtered row (including the filter type) */
+    private final int rowBytes;
+    /** The amount of the rows of a block */
+    private final int blockRows;
+    /** Maximum amount of blocks being compressed or waiting for writing */
+    private final int maxPending;
+    /** The blocks being compressed, in the image order */
+    private final Deque<CompletableFuture<Block>> pending = new ArrayDeque<>();
+    /** The rows submitted for compression */
+    private int submittedRows = 0;
+    /** The checksum of the image data written so far */
+    private int adler = 1;
+
+    /**
+     * Compressed block of rows
+     *
+     * @param data   the compressed data
+     * @param length the length of the compressed data
+     * @param adler  the checksum of the uncompressed data
+     * @param raw    the length of the uncompressed data
+     */
+    private record Block(byte[] data, int length, int adler, long raw) {
+    }
+
+    /**
+     * Opens a PNG file and writes its header
+     *
+     * @param file   the file
+     * @param buffer the image to encode
+     * @throws IllegalStateException if the file cannot be written
+     */
+    PngWriter(File file, FrameBuffer buffer) {
+        this.buffer = buffer;
+        rowBytes    = 1 + 3 * buffer.nX();
+        blockRows   = Math.max(1, BLOCK_SIZE / rowBytes);
+        maxPending  = 2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            out.write(SIGNATURE);
+            byte[] header = new byte[13];
+            writeInt(header, 0, buffer.nX());
+            writeInt(header, 4, buffer.nY());
+            header[8] = 8; // bit depth
+            header[9] = 2; // RGB color type (compression, filter and interlace methods are 0)
+            writeChunk("IHDR", header, header.length);
+            // zlib header: deflate with 32 KB window, default compression
+            writeChunk("IDAT", new byte[] { 0x78, (byte) 0x9C }, 2);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + file.getParent(), e);
+        }
+    }
+
+    /**
+     * Reports that the rows of the image up to a row are final: they are compressed in
+     * parallel and written as soon as possible
+     *
+     * @param rows the amount of the final rows from the top
+     * @throws IllegalStateException if the file cannot be written
+     */
+    void rowsReady(int rows) {
+        int height = buffer.nY();
+        while (submittedRows < height && (submittedRows + blockRows <= rows || rows == height)) {
+            int first = submittedRows;
+            int end = Math.min(first + blockRows, height);
+            pending.addLast(CompletableFuture.supplyAsync(() -> compress(first, end)));
+            submittedRows = end;
+            // bound the memory of the blocks in flight
+            if (pending.size() > maxPending) write(pending.removeFirst().join());
+        }
+        while (!pending.isEmpty() && pending.peekFirst().isDone())
+            write(pending.removeFirst().join());
+    }
+
+    /**
+     * Writes all the remaining rows and finishes the file
+     *
+     * @throws IllegalStateException if the file cannot be written
+     */
+    @Override
+    public void close() {
+        try (out) {
+            rowsReady(buffer.nY());
+            while (!pending.isEmpty()) write(pending.removeFirst().join());
+            byte[] checksum = new byte[4];
+            writeInt(checksum, 0, adler);
+            writeChunk("IDAT", checksum, 4);
+            writeChunk("IEND", new byte[0], 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing image", e);
+        }
+    }
+
+    /**
+     * Writes a compressed block
+     *
+     * @param block the block
+     */
+    private void write(Block block) {
+        try {
+            writeChunk("IDAT", block.data(), block.length());
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing image", e);
+        }
+        adler = combineAdler(adler, block.adler(), block.raw());
+    }
+
+    /**
+     * Filters and compresses a block of rows
+     *
+     * @param first the first row of the block
+     * @param end   the row after the block
+     * @return the compressed block
+     */
+    private Block compress(int first, int end) {
+        // the rows before the block to prime the dictionary, and one more row for filtering
+        int dictionaryRows = Math.min(first, (DICTIONARY_SIZE + rowBytes - 1) / rowBytes);
+        int start = first - dictionaryRows;
+        byte[] raw = new byte[(end - start) * rowBytes];
+        byte[] previous = new byte[3 * buffer.nX()];
+        byte[] current = new byte[previous.length];
+        if (start > 0) quantize(start - 1, previous);
+        for (int y = start; y < end; ++y) {
+            quantize(y, current);
+            filter(current, previous, raw, (y - start) * rowBytes);
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int offset = dictionaryRows * rowBytes;
+        int length = raw.length - offset;
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (offset > 0) {
+                int size = Math.min(offset, DICTIONARY_SIZE);
+                deflater.setDictionary(raw, offset - size, size);
+            }
+            deflater.setInput(raw, offset, length);
+            boolean last = end == buffer.nY();
+            if (last) deflater.finish();
+            byte[] data = new byte[length / 2 + 64];
+            int size = 0;
+            while (true) {
+                size += last
+                        ? deflater.deflate(data, size, data.length - size)
+                        : deflater.deflate(data, size, data.length - size, Deflater.SYNC_FLUSH);
+                if (last ? deflater.finished() : size < data.length) break;
+                if (size == data.length) data = Arrays.copyOf(data, data.length * 2);
+            }
+            Adler32 checksum = new Adler32();
+            checksum.update(raw, offset, length);
+            return new Block(data, size, (int) checksum.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Quantizes a row of the image to 8 bit RGB
+     *
+     * @param y   the row
+     * @param row the row bytes to fill
+     */
+    private void quantize(int y, byte[] row) {
+        for (int x = 0, i = 0; x < buffer.nX(); ++x, i += 3) {
+            int rgb = buffer.toRGB(x, y);
+            row[i]     = (byte) (rgb >> 16);
+            row[i + 1] = (byte) (rgb >> 8);
+            row[i + 2] = (byte) rgb;
+        }
+    }
+
+    /**
+     * Applies the Paeth filter to a row
+     *
+     * @param row      the row bytes
+     * @param previous the bytes of the row above (zeros for the first row)
+     * @param out      the filtered data
+     * @param offset   the position of the filtered row in the data
+     */
+    private static void filter(byte[] row, byte[] previous, byte[] out, int offset) {
+        out[offset] = PAETH;
+        for (int i = 0; i < row.length; ++i) {
+            int a = i >= 3 ? row[i - 3] & 0xFF : 0;
+            int b = previous[i] & 0xFF;
+            int c = i >= 3 ? previous[i - 3] & 0xFF : 0;
+            int p = a + b - c;
+            int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+            int predictor = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+            out[offset + 1 + i] = (byte) (row[i] - predictor);
+        }
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive pieces of data
+     *
+     * @param adler1 the checksum of the first piece
+     * @param adler2 the checksum of the second piece
+     * @param length2 the length of the second piece
+     * @return the checksum of the whole data
+     */
+    private static int combineAdler(int adler1, int adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >>> 16) + (adler2 >>> 16) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return (int) (sum1 | sum2 << 16);
+    }
+
+    /**
+     * Writes a PNG chunk
+     *
+     * @param type   the chunk type
+     * @param data   the chunk data
+     * @param length the length of the chunk data
+     * @throws IOException if the file cannot be written
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes a big endian integer into bytes
+     *
+     * @param bytes  the bytes
+     * @param offset the position of the integer
+     * @param value  the integer
+     */
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset]     = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
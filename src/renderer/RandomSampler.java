@@ -0,0 +1,21 @@
+package renderer;
+
+/**
+ * Sampler of independent uniform random values (hashed from the pixel, the sample and
+ * the dimension, so there is no shared generator state)
+ */
+public class RandomSampler extends Sampler {
+    /**
+     * Constructs a random sampler
+     *
+     * @param seed the seed
+     */
+    public RandomSampler(long seed) {
+        super(seed);
+    }
+
+    @Override
+    protected double sample(int dimension) {
+        return random(dimension);
+    }
+}
@@ -32,4 +32,18 @@ public abstract class RayTracerBase {
      * @return the {@link Color} resulting from tracing the ray
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Traces a packet of coherent rays (e.g. the primary rays of a tile of neighbouring pixels)
+     * through the scene. The colors are the same as by {@link #traceRay(Ray)} for every ray;
+     * the default implementation traces the rays one by one.
+     *
+     * @param rays   the rays of the packet
+     * @param count  the amount of the rays in the packet (from the beginning of the array)
+     * @param colors the array for the resulting colors
+     */
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        for (int r = 0; r < count; ++r)
+            colors[r] = traceRay(rays[r]);
+    }
 }
@@ -7,5 +7,11 @@ public enum RayTracerType {
    /** Simple (basic) ray tracer */
    SIMPLE,
    /** Ray tracer using regular grid */
-   GRID
+   GRID,
+   /** Ray tracer using bounding volume hierarchy */
+   BVH,
+   /** Ray tracer using bounding volume hierarchy of 4 quantized children per node */
+   BVH4,
+   /** Ray tracer using bounding volume hierarchy of 8 quantized children per node */
+   BVH8
 }
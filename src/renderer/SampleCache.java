@@ -0,0 +1,95 @@
+package renderer;
+
+import primitives.Color;
+
+/**
+ * Cache of traced sample colors keyed by integer lattice coordinates, for reusing the
+ * samples shared by neighbouring regions of adaptive super sampling.<br>
+ * It is an open addressing hash table with linear probing. Every entry is stamped with
+ * the generation it was stored in, so clearing the cache only advances the generation.
+ * The cache is cleared when it gets full, so its memory stays bounded.
+ * A cache is used by a single thread.
+ */
+class SampleCache {
+    /** Maximum capacity of the table */
+    private static final int MAX_CAPACITY = 1 << 20;
+
+    /** The keys of the entries */
+    private long[] keys = new long[1 << 10];
+    /** The colors of the entries */
+    private Color[] colors = new Color[keys.length];
+    /** The generations of the entries */
+    private int[] stamps = new int[keys.length];
+    /** The current generation (valid entries are stamped with it) */
+    private int generation = 1;
+    /** The amount of the valid entries */
+    private int size = 0;
+
+    /** Removes all the entries */
+    void clear() {
+        ++generation;
+        size = 0;
+    }
+
+    /**
+     * Finds the slot of a key
+     *
+     * @param key the key
+     * @return the slot holding the key, or the empty slot where the key belongs
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = (int) Sampler.mix(key) & mask;
+        while (stamps[i] == generation && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Returns the color of a key
+     *
+     * @param key the key
+     * @return the color, or {@code null} if the key is not cached
+     */
+    Color get(long key) {
+        int i = slot(key);
+        return stamps[i] == generation ? colors[i] : null;
+    }
+
+    /**
+     * Stores the color of a key (that is not cached)
+     *
+     * @param key   the key
+     * @param color the color
+     */
+    void put(long key, Color color) {
+        // keep the load factor at most 1/2
+        if (2 * (size + 1) > keys.length) {
+            if (keys.length == MAX_CAPACITY) clear();
+            else grow();
+        }
+        int i = slot(key);
+        keys[i]   = key;
+        colors[i] = color;
+        stamps[i] = generation;
+        ++size;
+    }
+
+    /** Doubles the table capacity, keeping the valid entries */
+    private void grow() {
+        long[]  oldKeys   = keys;
+        Color[] oldColors = colors;
+        int[]   oldStamps = stamps;
+        keys   = new long[oldKeys.length * 2];
+        colors = new Color[keys.length];
+        stamps = new int[keys.length];
+        int oldGeneration = generation;
+        generation = 1;
+        for (int i = 0; i < oldKeys.length; ++i)
+            if (oldStamps[i] == oldGeneration) {
+                int slot = slot(oldKeys[i]);
+                keys[slot]   = oldKeys[i];
+                colors[slot] = oldColors[i];
+                stamps[slot] = generation;
+            }
+    }
+}
@@ -0,0 +1,119 @@
+package renderer;
+
+/**
+ * Generator of the sample positions used by the camera (anti-aliasing jitter in the
+ * pixel, points on the lens aperture).
+ * <p>
+ * A sampler is deterministic: every value depends only on the seed, the pixel, the
+ * sample index and the dimension, so an image is reproducible regardless of the order
+ * in which the threads render its pixels, and no random generator is shared between
+ * threads. A sampler keeps the current pixel and sample, so every thread uses its own
+ * instance.
+ * <p>
+ * The values are consumed in dimension pairs: a 2D sample is two successive
+ * {@link #get1D()} calls starting at an even dimension.
+ */
+public abstract class Sampler {
+    /** The seed of the sampler */
+    private final long seed;
+    /** The seed of the current pixel */
+    protected long pixelSeed;
+    /** The index of the current sample in its series */
+    protected int index;
+    /** The amount of the samples in the current series */
+    protected int count;
+    /** The next dimension */
+    private int dimension;
+
+    /**
+     * Constructs a sampler
+     *
+     * @param seed the seed (samplers with the same seed produce the same values)
+     */
+    protected Sampler(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Starts the samples of a pixel
+     *
+     * @param column the pixel column
+     * @param row    the pixel row
+     */
+    public void startPixel(int column, int row) {
+        pixelSeed = mix(seed ^ mix(((long) row << 32) | (column & 0xFFFFFFFFL)));
+    }
+
+    /**
+     * Starts a sample of a series of samples in the current pixel (e.g. the anti-aliasing
+     * samples of the pixel or the aperture samples of all of them)
+     *
+     * @param index     the sample index in the series, from 0 to count - 1
+     * @param count     the amount of the samples in the series
+     * @param dimension the first dimension of the series (even)
+     */
+    public void startSample(int index, int count, int dimension) {
+        this.index     = index;
+        this.count     = count;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Returns the next value of the current sample
+     *
+     * @return the value in the range [0,1)
+     */
+    public final double get1D() {
+        return sample(dimension++);
+    }
+
+    /**
+     * Calculates a value of the current sample
+     *
+     * @param dimension the dimension of the value
+     * @return the value in the range [0,1)
+     */
+    protected abstract double sample(int dimension);
+
+    /**
+     * Calculates a hash of the current pixel and a dimension
+     *
+     * @param dimension the dimension
+     * @return the hash
+     */
+    protected final long hash(int dimension) {
+        return mix(pixelSeed + 0x9E3779B97F4A7C15L * (dimension + 1));
+    }
+
+    /**
+     * Calculates an independent uniform value of the current pixel, sample and dimension
+     *
+     * @param dimension the dimension
+     * @return the value in the range [0,1)
+     */
+    protected final double random(int dimension) {
+        return toUnit(mix(hash(dimension) ^ 0xD1B54A32D192ED03L * (index + 1)));
+    }
+
+    /**
+     * Converts the high bits of a long to a uniform value
+     *
+     * @param bits the bits
+     * @return the value in the range [0,1)
+     */
+    protected static double toUnit(long bits) {
+        return (bits >>> 11) * 0x1p-53;
+    }
+
+    /**
+     * Mixes the bits of a long (the finalizer of the SplitMix64 generator)
+     *
+     * @param z the bits
+     * @return the mixed bits
+     */
+    protected static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,15 @@
+package renderer;
+
+/**
+ * Sampler types
+ */
+public enum SamplerType {
+   /** Independent random samples ({@link RandomSampler}) */
+   RANDOM,
+   /** Jittered strata ({@link StratifiedSampler}) */
+   STRATIFIED,
+   /** Halton sequence ({@link HaltonSampler}) */
+   HALTON,
+   /** Owen scrambled Sobol sequence ({@link SobolSampler}) */
+   SOBOL
+}
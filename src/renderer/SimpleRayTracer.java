@@ -1,12 +1,11 @@
 package renderer;
 
+import geometries.Intersectable;
 import geometries.Intersectable.Intersection;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
 
-import java.util.List;
-
 /**
  * {@code SimpleRayTracer} is a basic implementation of the {@link RayTracerBase} class.
  * <p>
@@ -36,13 +35,31 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private static final Double3 INITIAL_K = Double3.ONE;
 
+    /**
+     * The geometries the rays are traced against - either the scene's geometries
+     * or an acceleration structure built over them.
+     */
+    protected final Intersectable geometries;
+
     /**
      * Constructs a {@code SimpleRayTracer} for the given scene.
      *
      * @param scene the {@link Scene} to render
      */
     public SimpleRayTracer(Scene scene) {
+        this(scene, scene == null ? null : scene.geometries);
+    }
+
+    /**
+     * Constructs a {@code SimpleRayTracer} for the given scene that traces the rays
+     * against the given geometries instead of the scene's geometries.
+     *
+     * @param scene      the {@link Scene} to render
+     * @param geometries the geometries (e.g. an acceleration structure over the scene's geometries)
+     */
+    protected SimpleRayTracer(Scene scene, Intersectable geometries) {
         super(scene);
+        this.geometries = geometries;
     }
 
     /**
@@ -64,26 +81,18 @@ public class SimpleRayTracer extends RayTracerBase {
 
     /**
      * Computes the transparency coefficient for the light ray from the light source to the intersection point.
+     * <p>
+     * The shadow ray query stops at the first opaque occluder, or as soon as the accumulated
+     * coefficient becomes negligible.
      *
      * @param intersection the intersection containing the light and geometry information
      * @return the total transparency coefficient as a {@link Double3}
      */
     private Double3 transparency(Intersection intersection) {
-        List<Intersection> intersections = scene.geometries.calculateIntersections(
+        return geometries.calculateTransmittance(
                 newSecondaryRay(intersection, intersection.l.scale(-1)),
-                intersection.light.getDistance(intersection.point));
-        if (intersections == null || intersections.isEmpty()) {
-            return Double3.ONE;
-        }
-        Double3 ktr = Double3.ONE;
-        for (Intersection i : intersections) {
-            ktr = ktr.product(i.material.kT);
-
-            if (ktr.lowerThan(MIN_CALC_COLOR_K)) {
-                return Double3.ZERO;
-            }
-        }
-        return ktr;
+                intersection.light.getDistance(intersection.point),
+                MIN_CALC_COLOR_K);
     }
 
     /**
@@ -116,11 +125,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the closest {@link Intersection}, or null if none found
      */
     private Intersection findClosestIntersection(Ray ray) {
-        List<Intersection> intersections = scene.geometries.calculateIntersections(ray);
-        if (intersections == null || intersections.isEmpty()) {
-            return null;
-        }
-        return ray.findClosestIntersection(intersections);
+        return geometries.calculateClosestIntersection(ray);
     }
 
     /**
@@ -140,6 +145,22 @@ public class SimpleRayTracer extends RayTracerBase {
         return calcColor(intersection, ray);
     }
 
+    /**
+     * Traces a packet of rays: the closest intersections of all the rays are found by one
+     * packet query of the geometries, then every ray is shaded as by {@link #traceRay(Ray)}.
+     *
+     * @param rays   the rays of the packet
+     * @param count  the amount of the rays in the packet
+     * @param colors the array for the resulting colors
+     */
+    @Override
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        Intersection[] intersections = new Intersection[count];
+        geometries.calculateClosestIntersections(rays, count, intersections);
+        for (int r = 0; r < count; ++r)
+            colors[r] = intersections[r] == null ? scene.background : calcColor(intersections[r], rays[r]);
+    }
+
     /**
      * Computes the final color at a given intersection point.
      * <p>
@@ -177,6 +198,7 @@ public class SimpleRayTracer extends RayTracerBase {
     /**
      * Prepares the intersection for lighting calculations by computing
      * the normalized viewing vector, surface normal, and their dot product.
+     * A normal already set by the intersection query (e.g. by a transformed instance) is kept.
      *
      * @param intersection the intersection to preprocess
      * @param v the direction of the incoming ray
@@ -184,7 +206,8 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     public boolean preprocessIntersection(Intersection intersection, Vector v) {
         intersection.v = v.normalize();
-        intersection.normal = intersection.geometry.getNormal(intersection.point);
+        if (intersection.normal == null)
+            intersection.normal = intersection.geometry.getNormal(intersection.point);
         intersection.vNormal = intersection.normal.dotProduct(v);
         return !Util.isZero(intersection.vNormal);
     }
@@ -0,0 +1,88 @@
+package renderer;
+
+/**
+ * Sampler of the Owen scrambled Sobol sequence. Every dimension pair is an
+ * independently scrambled copy of the first two Sobol dimensions with its own shuffled
+ * sample order (B. Burley, "Practical Hash-based Owen Scrambling"), so every pair keeps
+ * the stratification of the Sobol points in all elementary intervals while the pairs and
+ * the pixels are not correlated. The best distribution is reached for a power of 2 of
+ * samples.
+ */
+public class SobolSampler extends Sampler {
+    /** The second value of the current dimension pair */
+    private double second;
+    /** The dimension of the second value */
+    private int secondDimension = -1;
+
+    /**
+     * Constructs a Sobol sampler
+     *
+     * @param seed the seed
+     */
+    public SobolSampler(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void startSample(int index, int count, int dimension) {
+        super.startSample(index, count, dimension);
+        secondDimension = -1;
+    }
+
+    @Override
+    protected double sample(int dimension) {
+        if (dimension == secondDimension) return second;
+        int pair = dimension & ~1;
+        long hash = hash(pair);
+        int shuffled = scramble(index, (int) hash);
+        double x = unit(scramble(Integer.reverse(shuffled), (int) (hash >>> 32)));
+        double y = unit(scramble(sobol(shuffled), (int) mix(hash)));
+        if (pair == dimension) {
+            second = y;
+            secondDimension = dimension + 1;
+            return x;
+        }
+        return y;
+    }
+
+    /**
+     * Calculates the second dimension of the Sobol sequence
+     *
+     * @param i the index
+     * @return the value bits, the most significant bit first
+     */
+    private static int sobol(int i) {
+        int value = 0;
+        for (int v = 1 << 31; i != 0; i >>>= 1, v ^= v >>> 1)
+            if ((i & 1) != 0) value ^= v;
+        return value;
+    }
+
+    /**
+     * Applies a nested uniform (Owen) scrambling to value bits
+     *
+     * @param x    the value bits, the most significant bit first
+     * @param seed the scrambling seed
+     * @return the scrambled bits
+     */
+    private static int scramble(int x, int seed) {
+        x = Integer.reverse(x);
+        // the Laine-Karras permutation: every bit is changed only by the bits below it
+        x ^= x * 0x3D20ADEA;
+        x += seed;
+        x *= (seed >>> 16) | 1;
+        x ^= x * 0x05526C56;
+        x ^= x * 0x53A22864;
+        return Integer.reverse(x);
+    }
+
+    /**
+     * Converts value bits to a value
+     *
+     * @param bits the value bits, the most significant bit first
+     * @return the value in the range [0,1)
+     */
+    private static double unit(int bits) {
+        return (bits & 0xFFFFFFFFL) * 0x1p-32;
+    }
+}
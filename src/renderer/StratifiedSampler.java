@@ -0,0 +1,82 @@
+package renderer;
+
+/**
+ * Sampler of jittered strata: the samples of a series are spread over a grid of
+ * strata of the unit square (one sample in a random position of every stratum), and
+ * the strata are assigned to the samples in a random order for every dimension pair,
+ * so the pairs are not correlated with each other.
+ */
+public class StratifiedSampler extends Sampler {
+    /** The second value of the current dimension pair */
+    private double second;
+    /** The dimension of the second value */
+    private int secondDimension = -1;
+
+    /**
+     * Constructs a stratified sampler
+     *
+     * @param seed the seed
+     */
+    public StratifiedSampler(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void startSample(int index, int count, int dimension) {
+        super.startSample(index, count, dimension);
+        secondDimension = -1;
+    }
+
+    @Override
+    protected double sample(int dimension) {
+        if (dimension == secondDimension) return second;
+        if ((dimension & 1) != 0) return random(dimension);
+        // one stratum per sample: the factorisation of the count nearest to a square (a prime count gives a row)
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        while (count % columns != 0) ++columns;
+        int rows = count / columns;
+        int stratum = permute(index, count, (int) hash(dimension));
+        second = (stratum / columns + random(dimension + 1)) / rows;
+        secondDimension = dimension + 1;
+        return (stratum % columns + random(dimension)) / columns;
+    }
+
+    /**
+     * Calculates an element of a random permutation without storing the permutation
+     * (the hashing permutation by A. Kensler, "Correlated Multi-Jittered Sampling")
+     *
+     * @param i    the index
+     * @param size the permutation size
+     * @param seed the permutation seed
+     * @return the element at the index
+     */
+    private static int permute(int i, int size, int seed) {
+        int w = size - 1;
+        w |= w >>> 1;
+        w |= w >>> 2;
+        w |= w >>> 4;
+        w |= w >>> 8;
+        w |= w >>> 16;
+        do {
+            i ^= seed;
+            i *= 0xE170893D;
+            i ^= seed >>> 16;
+            i ^= (i & w) >>> 4;
+            i ^= seed >>> 8;
+            i *= 0x0929EB3F;
+            i ^= seed >>> 23;
+            i ^= (i & w) >>> 1;
+            i *= 1 | seed >>> 27;
+            i *= 0x6935FA69;
+            i ^= (i & w) >>> 11;
+            i *= 0x74DCB303;
+            i ^= (i & w) >>> 2;
+            i *= 0x9E501CC3;
+            i ^= (i & w) >>> 2;
+            i *= 0xC860A3DF;
+            i &= w;
+            i ^= i >>> 5;
+        } while (i >= size);
+        return Integer.remainderUnsigned(i + seed, size);
+    }
+}
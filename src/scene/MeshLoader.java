@@ -0,0 +1,532 @@
+package scene;
+
+import geometries.TriangleMesh;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loader of triangle meshes from Wavefront OBJ and PLY (ASCII and binary) files.
+ * <p>
+ * The file is read through memory mapped windows, so files of any size are streamed without
+ * reading them into the heap, and the coordinates and indices are parsed straight into the
+ * primitive arrays of a {@link TriangleMesh} - no point or triangle objects are created.
+ * Only the vertex positions and the faces are read; polygonal faces are split into triangle
+ * fans. Normals, texture coordinates, materials and any other data are ignored.
+ */
+public final class MeshLoader {
+    /** Size of the memory mapped window of the file */
+    private static final int WINDOW = 1 << 26;
+    /** Exact powers of 10 that can be represented by double */
+    private static final double[] POWERS_OF_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /** Loader is a utility class */
+    private MeshLoader() {}
+
+    /**
+     * Loads a mesh from a file and adds it to the scene's geometries
+     *
+     * @param scene the scene to add the mesh to
+     * @param file  the OBJ or PLY file
+     * @return the loaded mesh (e.g. for setting its material)
+     * @throws IllegalArgumentException if the file format is not supported or the file is malformed
+     * @throws IllegalStateException    if the file cannot be read
+     */
+    public static TriangleMesh load(Scene scene, Path file) {
+        TriangleMesh mesh = load(file);
+        scene.geometries.add(mesh);
+        return mesh;
+    }
+
+    /**
+     * Loads a mesh from a file. The format is chosen by the file extension.
+     *
+     * @param file the OBJ or PLY file
+     * @return the loaded mesh
+     * @throws IllegalArgumentException if the file format is not supported or the file is malformed
+     * @throws IllegalStateException    if the file cannot be read
+     */
+    public static TriangleMesh load(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        boolean obj = name.endsWith(".obj");
+        if (!obj && !name.endsWith(".ply"))
+            throw new IllegalArgumentException("Unsupported mesh file format: " + file);
+        DoubleArray vertices = new DoubleArray();
+        IntArray indices = new IntArray();
+        try (Input in = new Input(file)) {
+            if (obj) readObj(in, vertices, indices);
+            else readPly(in, vertices, indices);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error reading mesh file " + file, e);
+        }
+        return new TriangleMesh(vertices.toArray(), indices.toArray(), ForkJoinPool.commonPool());
+    }
+
+    // ************************** OBJ ************************** //
+
+    /**
+     * Reads the vertices and the faces of an OBJ file
+     *
+     * @param in       the file input
+     * @param vertices the vertex coordinates to fill
+     * @param indices  the triangle vertex indices to fill
+     */
+    private static void readObj(Input in, DoubleArray vertices, IntArray indices) {
+        int[] face = new int[16];
+        while (in.skipBlanks() >= 0) {
+            int first = in.read();
+            int second = in.peek();
+            if (first == 'v' && (second == ' ' || second == '\t')) {
+                for (int i = 0; i < 3; ++i) vertices.add(in.readDouble());
+            } else if (first == 'f' && (second == ' ' || second == '\t')) {
+                int count = 0;
+                while (in.skipBlanks() > ' ') {
+                    int index = in.readInt();
+                    // skip the texture and normal indices of the vertex
+                    while (in.peek() > ' ') in.read();
+                    int vertexCount = vertices.size() / 3;
+                    index = index < 0 ? vertexCount + index : index - 1;
+                    if (index < 0 || index >= vertexCount)
+                        throw new IllegalArgumentException("OBJ face refers to a missing vertex");
+                    if (count == face.length) face = Arrays.copyOf(face, count * 2);
+                    face[count++] = index;
+                }
+                addFace(face, count, indices);
+            }
+            // a blank line has ended already
+            if (first != '\n') in.skipLine();
+        }
+    }
+
+    /**
+     * Adds a polygonal face as a fan of triangles
+     *
+     * @param face    the vertex indices of the face
+     * @param count   the amount of the vertices of the face
+     * @param indices the triangle vertex indices to fill
+     */
+    private static void addFace(int[] face, int count, IntArray indices) {
+        for (int i = 2; i < count; ++i) {
+            indices.add(face[0]);
+            indices.add(face[i - 1]);
+            indices.add(face[i]);
+        }
+    }
+
+    // ************************** PLY ************************** //
+
+    /**
+     * Property of a PLY element
+     *
+     * @param name      the property name
+     * @param type      the value type (the item type for a list)
+     * @param countType the list length type, {@code null} for a scalar property
+     */
+    private record Property(String name, String type, String countType) {
+    }
+
+    /**
+     * Element of a PLY file
+     *
+     * @param name       the element name
+     * @param count      the amount of the element instances
+     * @param properties the properties of every instance
+     */
+    private record Element(String name, long count, List<Property> properties) {
+    }
+
+    /**
+     * Reads the vertices and the faces of a PLY file
+     *
+     * @param in       the file input
+     * @param vertices the vertex coordinates to fill
+     * @param indices  the triangle vertex indices to fill
+     */
+    private static void readPly(Input in, DoubleArray vertices, IntArray indices) {
+        if (!"ply".equals(in.readLine()))
+            throw new IllegalArgumentException("Missing PLY file signature");
+        String format = null;
+        List<Element> elements = new ArrayList<>();
+        for (String line = in.readLine(); !"end_header".equals(line); line = in.readLine()) {
+            if (line == null) throw new IllegalArgumentException("Missing end of PLY header");
+            String[] words = line.trim().split("\\s+");
+            switch (words[0]) {
+                case "format" -> format = words[1];
+                case "element" -> elements.add(new Element(words[1], Long.parseLong(words[2]), new ArrayList<>()));
+                case "property" -> {
+                    if (elements.isEmpty()) throw new IllegalArgumentException("PLY property out of element");
+                    elements.getLast().properties().add(words[1].equals("list")
+                            ? new Property(words[4], words[3], words[2])
+                            : new Property(words[2], words[1], null));
+                }
+                default -> { } // comments and object information
+            }
+        }
+        if (format == null) throw new IllegalArgumentException("Missing PLY format");
+        boolean ascii = switch (format) {
+            case "ascii" -> true;
+            case "binary_little_endian" -> {
+                in.order(ByteOrder.LITTLE_ENDIAN);
+                yield false;
+            }
+            case "binary_big_endian" -> {
+                in.order(ByteOrder.BIG_ENDIAN);
+                yield false;
+            }
+            default -> throw new IllegalArgumentException("Unsupported PLY format: " + format);
+        };
+
+        int vertexBase = 0;
+        int[] face = new int[16];
+        for (Element element : elements) {
+            List<Property> properties = element.properties();
+            boolean isVertex = element.name().equals("vertex");
+            boolean isFace = element.name().equals("face");
+            int[] coordinate = new int[properties.size()];
+            Arrays.fill(coordinate, -1);
+            if (isVertex) {
+                vertexBase = vertices.size() / 3;
+                for (int p = 0; p < properties.size(); ++p)
+                    coordinate[p] = switch (properties.get(p).name()) {
+                        case "x" -> 0;
+                        case "y" -> 1;
+                        case "z" -> 2;
+                        default -> -1;
+                    };
+            }
+            double[] xyz = new double[3];
+            for (long i = 0; i < element.count(); ++i) {
+                for (int p = 0; p < properties.size(); ++p) {
+                    Property property = properties.get(p);
+                    if (property.countType() == null) {
+                        double value = ascii ? in.readDouble() : in.readBinary(property.type());
+                        if (coordinate[p] >= 0) xyz[coordinate[p]] = value;
+                        continue;
+                    }
+                    int count = (int) (ascii ? in.readDouble() : in.readBinary(property.countType()));
+                    boolean faceIndices = isFace && property.name().startsWith("vertex_ind");
+                    if (faceIndices && count > face.length) face = Arrays.copyOf(face, count);
+                    for (int k = 0; k < count; ++k) {
+                        double value = ascii ? in.readDouble() : in.readBinary(property.type());
+                        if (faceIndices) face[k] = vertexBase + (int) value;
+                    }
+                    if (faceIndices) {
+                        for (int k = 0; k < count; ++k)
+                            if (face[k] < 0 || face[k] >= vertices.size() / 3)
+                                throw new IllegalArgumentException("PLY face refers to a missing vertex");
+                        addFace(face, count, indices);
+                    }
+                }
+                if (isVertex)
+                    for (double value : xyz) vertices.add(value);
+            }
+        }
+    }
+
+    // ************************** Input ************************** //
+
+    /**
+     * Sequential input of a file through memory mapped windows. A new window is mapped from
+     * the current position whenever the rest of the current window is too short for a value.
+     */
+    private static final class Input implements AutoCloseable {
+        /** The file channel */
+        private final FileChannel channel;
+        /** The file size */
+        private final long size;
+        /** The file position of the current window */
+        private long base = 0;
+        /** The current window */
+        private MappedByteBuffer buffer;
+        /** The byte order of the binary values */
+        private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+        /**
+         * Opens a file and maps its first window
+         *
+         * @param file the file
+         * @throws IOException if the file cannot be opened
+         */
+        Input(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+            map(0);
+        }
+
+        /**
+         * Maps the window starting at a file position
+         *
+         * @param position the file position
+         */
+        private void map(long position) {
+            try {
+                base = position;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+                buffer.order(order);
+            } catch (IOException e) {
+                throw new IllegalStateException("I/O error mapping mesh file", e);
+            }
+        }
+
+        /**
+         * Sets the byte order of the binary values
+         *
+         * @param order the byte order
+         */
+        void order(ByteOrder order) {
+            this.order = order;
+            buffer.order(order);
+        }
+
+        /**
+         * Makes sure the current window holds the given amount of bytes
+         *
+         * @param bytes the amount of bytes
+         * @return true if there are enough bytes, false at the end of the file
+         */
+        private boolean ensure(int bytes) {
+            if (buffer.remaining() >= bytes) return true;
+            long position = base + buffer.position();
+            if (position + bytes > size) return false;
+            map(position);
+            return true;
+        }
+
+        /**
+         * Reads the next byte
+         *
+         * @return the byte, or -1 at the end of the file
+         */
+        int read() {
+            return ensure(1) ? buffer.get() & 0xff : -1;
+        }
+
+        /**
+         * Returns the next byte without reading it
+         *
+         * @return the byte, or -1 at the end of the file
+         */
+        int peek() {
+            return ensure(1) ? buffer.get(buffer.position()) & 0xff : -1;
+        }
+
+        /**
+         * Skips spaces and tabs (but not the line end)
+         *
+         * @return the next byte, or -1 at the end of the file
+         */
+        int skipBlanks() {
+            int c = peek();
+            while (c == ' ' || c == '\t') {
+                read();
+                c = peek();
+            }
+            return c;
+        }
+
+        /** Skips the rest of the current line including its end */
+        void skipLine() {
+            for (int c = read(); c >= 0 && c != '\n'; c = read()) ;
+        }
+
+        /**
+         * Reads a line of text (for headers)
+         *
+         * @return the line without its end, or {@code null} at the end of the file
+         */
+        String readLine() {
+            if (peek() < 0) return null;
+            StringBuilder line = new StringBuilder();
+            for (int c = read(); c >= 0 && c != '\n'; c = read())
+                if (c != '\r') line.append((char) c);
+            return line.toString();
+        }
+
+        /**
+         * Reads a decimal integer after blanks (ending at any non digit byte)
+         *
+         * @return the integer
+         * @throws IllegalArgumentException if there is no integer
+         */
+        int readInt() {
+            skipBlanks();
+            boolean negative = peek() == '-';
+            if (negative || peek() == '+') read();
+            int c = peek();
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Malformed integer in mesh file");
+            int value = 0;
+            for (; c >= '0' && c <= '9'; c = peek()) {
+                read();
+                value = value * 10 + (c - '0');
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Reads a decimal number after blanks or line ends
+         *
+         * @return the number
+         * @throws IllegalArgumentException if there is no number
+         */
+        double readDouble() {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                read();
+                c = peek();
+            }
+            boolean negative = c == '-';
+            if (negative || c == '+') {
+                read();
+                c = peek();
+            }
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            boolean fraction = false;
+            for (; (c >= '0' && c <= '9') || (c == '.' && !fraction); c = peek()) {
+                read();
+                if (c == '.') {
+                    fraction = true;
+                    continue;
+                }
+                ++digits;
+                // digits beyond the precision of long only shift the exponent
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) --exponent;
+                } else if (!fraction) ++exponent;
+            }
+            if (digits == 0) throw new IllegalArgumentException("Malformed number in mesh file");
+            if (c == 'e' || c == 'E') {
+                read();
+                exponent += readInt();
+            }
+            double value = mantissa;
+            if (exponent < 0)
+                value = -exponent < POWERS_OF_10.length ? value / POWERS_OF_10[-exponent] : value / Math.pow(10, -exponent);
+            else if (exponent > 0)
+                value = exponent < POWERS_OF_10.length ? value * POWERS_OF_10[exponent] : value * Math.pow(10, exponent);
+            return negative ? -value : value;
+        }
+
+        /**
+         * Reads a binary value of a PLY type
+         *
+         * @param type the PLY type name
+         * @return the value
+         * @throws IllegalArgumentException if the type is unknown or the file ends
+         */
+        double readBinary(String type) {
+            int bytes = switch (type) {
+                case "char", "int8", "uchar", "uint8" -> 1;
+                case "short", "int16", "ushort", "uint16" -> 2;
+                case "int", "int32", "uint", "uint32", "float", "float32" -> 4;
+                case "double", "float64" -> 8;
+                default -> throw new IllegalArgumentException("Unknown PLY type: " + type);
+            };
+            if (!ensure(bytes)) throw new IllegalArgumentException("Unexpected end of PLY file");
+            return switch (type) {
+                case "char", "int8" -> buffer.get();
+                case "uchar", "uint8" -> buffer.get() & 0xff;
+                case "short", "int16" -> buffer.getShort();
+                case "ushort", "uint16" -> buffer.getShort() & 0xffff;
+                case "int", "int32" -> buffer.getInt();
+                case "uint", "uint32" -> buffer.getInt() & 0xffffffffL;
+                case "float", "float32" -> buffer.getFloat();
+                default -> buffer.getDouble();
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // ************************** Growable arrays ************************** //
+
+    /** Growable array of doubles */
+    private static final class DoubleArray {
+        /** The values */
+        private double[] values = new double[1024];
+        /** The amount of the values */
+        private int size = 0;
+
+        /**
+         * Appends a value
+         *
+         * @param value the value
+         */
+        void add(double value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(size));
+            values[size++] = value;
+        }
+
+        /**
+         * Returns the amount of the values
+         *
+         * @return the amount of the values
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the values in an array of their exact size
+         *
+         * @return the values
+         */
+        double[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    /** Growable array of integers */
+    private static final class IntArray {
+        /** The values */
+        private int[] values = new int[1024];
+        /** The amount of the values */
+        private int size = 0;
+
+        /**
+         * Appends a value
+         *
+         * @param value the value
+         */
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, grow(size));
+            values[size++] = value;
+        }
+
+        /**
+         * Returns the values in an array of their exact size
+         *
+         * @return the values
+         */
+        int[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Calculates the grown capacity of an array
+     *
+     * @param size the current capacity
+     * @return the new capacity
+     * @throws IllegalArgumentException if the array cannot grow more
+     */
+    private static int grow(int size) {
+        if (size == Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Mesh is too large");
+        return (int) Math.min(Integer.MAX_VALUE - 8, size + (size >> 1) + 1L);
+    }
+}
@@ -0,0 +1,97 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BVHTest {
+
+    @Test
+    void calculateClosestIntersection() {
+        BVH bvh = new BVH();
+        for (int i = 0; i < 10; ++i)
+            bvh.add(new Sphere(1, new Point(i * 3, 0, 10)));
+        bvh.add(new Plane(new Point(0, 0, 30), new Vector(0, 0, 1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest sphere along the row of spheres, from both sides
+        Ray ray = new Ray(new Point(-5, 0, 10), new Vector(1, 0, 0));
+        assertEquals(new Point(-1, 0, 10), bvh.calculateClosestIntersection(ray).point, "Wrong closest point");
+        ray = new Ray(new Point(40, 0, 10), new Vector(-1, 0, 0));
+        assertEquals(new Point(28, 0, 10), bvh.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC02: Only the unbounded plane is hit
+        ray = new Ray(new Point(100, 0, 0), new Vector(0, 0, 1));
+        assertEquals(new Point(100, 0, 30), bvh.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC03: Nothing is hit
+        ray = new Ray(new Point(100, 0, 0), new Vector(0, 0, -1));
+        assertNull(bvh.calculateClosestIntersection(ray), "Expected no intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Ray starts inside a sphere in the middle of the row
+        ray = new Ray(new Point(15, 0, 10), new Vector(1, 0, 0));
+        assertEquals(new Point(16, 0, 10), bvh.calculateClosestIntersection(ray).point, "Wrong closest point");
+    }
+
+    @Test
+    void calculateClosestIntersections() {
+        Random random = new Random(5);
+        BVH bvh = new BVH();
+        for (int i = 0; i < 500; ++i)
+            bvh.add(new Sphere(random.nextDouble() + 0.2,
+                    new Point(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, random.nextDouble() * 40 + 10)));
+        bvh.add(new Plane(new Point(0, 0, 80), new Vector(0, 0, 1)));
+        Ray[] rays = new Ray[64];
+        Intersection[] intersections = new Intersection[64];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Packets of coherent rays from a point through the squares of a grid, as the
+        // primary rays of tiles of pixels
+        for (int tile = 0; tile < 16; ++tile) {
+            for (int r = 0; r < 64; ++r)
+                rays[r] = new Ray(Point.ZERO, new Vector((tile % 4 * 8 + r % 8 - 15.5) * 0.03,
+                        (tile / 4 * 8 + r / 8 - 15.5) * 0.03, 1));
+            bvh.calculateClosestIntersections(rays, 64, intersections);
+            for (int r = 0; r < 64; ++r) {
+                Intersection expected = bvh.calculateClosestIntersection(rays[r]);
+                assertEquals(expected.distance, intersections[r].distance, "Wrong closest distance in a packet");
+            }
+        }
+
+        // TC02: Packet of rays to all the directions (the octants of the rays differ)
+        for (int r = 0; r < 64; ++r)
+            rays[r] = new Ray(new Point(0, 0, 30), new Vector(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+        bvh.calculateClosestIntersections(rays, 64, intersections);
+        for (int r = 0; r < 64; ++r) {
+            Intersection expected = bvh.calculateClosestIntersection(rays[r]);
+            if (expected == null) assertNull(intersections[r], "Expected no intersection");
+            else assertEquals(expected.distance, intersections[r].distance, "Wrong closest distance in a packet");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Packet of rays parallel to the axes planes (infinite inverse directions), some missing everything
+        rays[0] = new Ray(Point.ZERO, new Vector(0, 0, 1));
+        rays[1] = new Ray(new Point(5, 0, 0), new Vector(0, 0, 1));
+        rays[2] = new Ray(new Point(0, 0, 30), new Vector(1, 0, 0));
+        rays[3] = new Ray(new Point(0, 0, 100), new Vector(0, 1, 0));
+        bvh.calculateClosestIntersections(rays, 4, intersections);
+        for (int r = 0; r < 4; ++r) {
+            Intersection expected = bvh.calculateClosestIntersection(rays[r]);
+            if (expected == null) assertNull(intersections[r], "Expected no intersection");
+            else assertEquals(expected.distance, intersections[r].distance, "Wrong closest distance in a packet");
+        }
+
+        // TC12: Empty hierarchy
+        new BVH().calculateClosestIntersections(rays, 4, intersections);
+        assertArrayEquals(new Intersection[4], Arrays.copyOf(intersections, 4), "Expected no intersections");
+    }
+}
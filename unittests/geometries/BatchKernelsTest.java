@@ -0,0 +1,128 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchKernelsTest {
+
+    /** The scalar kernels, the reference for the kernels in use */
+    private final BatchKernels scalar = new BatchKernels();
+
+    @Test
+    void testBoxes() {
+        // 6 boxes in planes of 8 values: minX, minY, minZ, maxX, maxY, maxZ
+        double[] boxes = new double[6 * 8];
+        double[][] box = { { 1, -1, -1, 2, 1, 1 }, { 3, -1, -1, 4, 1, 1 }, { -1, -1, -1, 1, 1, 1 },
+                { 1, 2, -1, 2, 3, 1 }, { -3, -1, -1, -2, 1, 1 }, { 9, -1, -1, 10, 1, 1 } };
+        for (int i = 0; i < box.length; ++i)
+            for (int c = 0; c < 6; ++c)
+                boxes[8 * c + i] = box[i][c];
+        double[] entries = new double[8];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Entry distances of the boxes in front of, around, beside, behind and beyond the ray
+        Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
+        BatchKernels.INSTANCE.boxes(boxes, 0, 8, box.length, ray, 5, entries);
+        assertArrayEquals(new double[] { 1, 3, 0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.POSITIVE_INFINITY }, Arrays.copyOf(entries, box.length), "Wrong entries");
+
+        // TC02: Ray in the negative direction enters through the maximal bounds
+        ray = new Ray(new Point(5, 0, 0), new Vector(-1, 0, 0));
+        BatchKernels.INSTANCE.boxes(boxes, 0, 8, 2, ray, 10, entries);
+        assertEquals(3, entries[0], 1e-10, "Wrong entry of a box in the negative direction");
+        assertEquals(1, entries[1], 1e-10, "Wrong entry of a box in the negative direction");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray parallel to a slab with the head on its border
+        ray = new Ray(new Point(0, 1, 0), new Vector(1, 0, 0));
+        BatchKernels.INSTANCE.boxes(boxes, 0, 8, 1, ray, 5, entries);
+        assertEquals(1, entries[0], 1e-10, "Wrong entry along a slab border");
+    }
+
+    @Test
+    void testTriangles() {
+        // 2 triangles in planes of 3 values: first vertex and two edges
+        double[] triangles = new double[9 * 3];
+        double[][] triangle = { { 0, 0, 2, 1, 0, 0, 0, 1, 0 }, { 0, 0, 4, 1, 0, 0, 0, 1, 0 } };
+        for (int i = 0; i < triangle.length; ++i)
+            for (int c = 0; c < 9; ++c)
+                triangles[3 * c + 1 + i] = triangle[i][c];
+        double[] distances = new double[2];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray through both triangles of a batch that starts inside the planes
+        Ray ray = new Ray(new Point(0.25, 0.25, 0), new Vector(0, 0, 1));
+        BatchKernels.INSTANCE.triangles(triangles, 3, 1, 2, ray, 10, distances);
+        assertArrayEquals(new double[] { 2, 4 }, distances, 1e-10, "Wrong distances");
+
+        // TC02: Ray outside the triangles
+        ray = new Ray(new Point(0.75, 0.75, 0), new Vector(0, 0, 1));
+        BatchKernels.INSTANCE.triangles(triangles, 3, 1, 2, ray, 10, distances);
+        assertArrayEquals(new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY }, distances,
+                "Expected no intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Hit on an edge is reported, hit beyond the maximal distance is not
+        ray = new Ray(new Point(0.5, 0, 0), new Vector(0, 0, 1));
+        BatchKernels.INSTANCE.triangles(triangles, 3, 1, 2, ray, 3, distances);
+        assertArrayEquals(new double[] { 2, Double.POSITIVE_INFINITY }, distances, 1e-10, "Wrong distances");
+
+        // TC12: Tiny triangles (edges of 1e-7) are hit - the parallel test is relative to their size
+        for (int i = 0; i < triangle.length; ++i)
+            for (int c = 3; c < 9; ++c)
+                triangles[3 * c + 1 + i] = triangle[i][c] * 1e-7;
+        ray = new Ray(new Point(2.5e-8, 2.5e-8, 0), new Vector(0, 0, 1));
+        BatchKernels.INSTANCE.triangles(triangles, 3, 1, 2, ray, 10, distances);
+        assertArrayEquals(new double[] { 2, 4 }, distances, 1e-10, "Wrong distances to tiny triangles");
+    }
+
+    @Test
+    void testSameAsScalar() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The kernels in use give exactly the results of the scalar kernels
+        Random random = new Random(7);
+        int count = 13;
+        double[] boxes = new double[6 * 16];
+        double[] triangles = new double[9 * count];
+        for (int i = 0; i < count; ++i) {
+            for (int c = 0; c < 3; ++c) {
+                double a = random.nextDouble() * 4 - 2, b = random.nextDouble() * 4 - 2;
+                boxes[16 * c + i] = Math.min(a, b);
+                boxes[16 * (c + 3) + i] = Math.max(a, b);
+            }
+            for (int c = 0; c < 9; ++c)
+                triangles[count * c + i] = random.nextDouble() * 4 - 2;
+        }
+        // 2 nodes of 8 quantized children
+        double[] frames = { -2, -2, -2, 0.015, 0.016, 0.017, -1, -1, -1, 0.008, 0.008, 0.008 };
+        byte[] quantized = new byte[2 * 6 * 8];
+        for (int i = 0; i < 2 * 8; ++i)
+            for (int c = 0; c < 3; ++c) {
+                int a = random.nextInt(256), b = random.nextInt(256);
+                quantized[48 * (i / 8) + 8 * c + i % 8] = (byte) Math.min(a, b);
+                quantized[48 * (i / 8) + 8 * (c + 3) + i % 8] = (byte) Math.max(a, b);
+            }
+        double[] expected = new double[16];
+        double[] actual = new double[16];
+        for (int r = 0; r < 200; ++r) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 6 - 3, random.nextDouble() * 6 - 3, -5),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 1));
+            scalar.boxes(boxes, 0, 16, count, ray, 8, expected);
+            BatchKernels.INSTANCE.boxes(boxes, 0, 16, count, ray, 8, actual);
+            assertArrayEquals(expected, actual, "Box entries differ from the scalar ones");
+            scalar.triangles(triangles, count, 0, count, ray, 8, expected);
+            BatchKernels.INSTANCE.triangles(triangles, count, 0, count, ray, 8, actual);
+            assertArrayEquals(expected, actual, "Triangle distances differ from the scalar ones");
+            scalar.quantizedBoxes(frames, quantized, 1, 8, 7, ray, 8, expected);
+            BatchKernels.INSTANCE.quantizedBoxes(frames, quantized, 1, 8, 7, ray, 8, actual);
+            assertArrayEquals(expected, actual, "Quantized box entries differ from the scalar ones");
+        }
+    }
+}
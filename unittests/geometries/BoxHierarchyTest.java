@@ -0,0 +1,64 @@
+package geometries;
+
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoxHierarchyTest {
+
+    /**
+     * The hierarchies tested - each test runs on an empty hierarchy of every kind
+     *
+     * @return the suppliers of the empty hierarchies
+     */
+    static Stream<Named<Supplier<BoxHierarchy<?>>>> hierarchies() {
+        return Stream.of(Named.of("BVH", BVH::new),
+                         Named.of("BVH4", () -> new WideBVH(4)),
+                         Named.of("BVH8", () -> new WideBVH(8)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("hierarchies")
+    void findIntersections(Supplier<BoxHierarchy<?>> hierarchy) {
+        BoxHierarchy<?> bvh = hierarchy.get();
+        for (int i = 0; i < 10; ++i)
+            bvh.add(new Sphere(1, new Point(i * 3, 0, 10)), new Sphere(1, new Point(i * 3, 5, 10)));
+        bvh.add(new Geometries(new Triangle(new Point(-1, -1, 20), new Point(1, -1, 20), new Point(0, 1, 20))),
+                new Plane(new Point(0, 0, 30), new Vector(0, 0, 1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray hits a sphere, the triangle of a nested collection and the plane
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        assertEquals(4, bvh.findIntersections(ray).size(), "Wrong number of intersections");
+
+        // TC02: Ray along the row of spheres
+        ray = new Ray(new Point(-5, 5, 10), new Vector(1, 0, 0));
+        assertEquals(20, bvh.findIntersections(ray).size(), "Wrong number of intersections");
+
+        // TC03: Ray misses everything
+        ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+        assertNull(bvh.findIntersections(ray), "Expected no intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Geometry added after the hierarchy was built is found
+        ray = new Ray(new Point(100, 100, 0), new Vector(0, 0, 1));
+        assertEquals(1, bvh.findIntersections(ray).size(), "Wrong number of intersections");
+        bvh.add(new Sphere(1, new Point(100, 100, 10)));
+        assertEquals(3, bvh.findIntersections(ray).size(), "Wrong number of intersections");
+
+        // TC05: Maximal distance limits the intersections
+        ray = new Ray(new Point(-5, 5, 10), new Vector(1, 0, 0));
+        assertEquals(2, bvh.calculateIntersections(ray, 6.5).size(), "Wrong number of intersections");
+
+        // TC06: Empty hierarchy
+        assertNull(hierarchy.get().findIntersections(ray), "Expected no intersections");
+    }
+}
@@ -0,0 +1,128 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BvhBuilderTest {
+
+    /**
+     * Builds unit boxes along the x axis
+     *
+     * @param count amount of boxes
+     * @return the boxes, 6 values per box
+     */
+    private static double[] boxes(int count) {
+        double[] boxes = new double[6 * count];
+        for (int i = 0; i < count; ++i) {
+            boxes[6 * i] = 2 * i;
+            boxes[6 * i + 3] = 2 * i + 1;
+            boxes[6 * i + 4] = 1;
+            boxes[6 * i + 5] = 1;
+        }
+        return boxes;
+    }
+
+    @Test
+    void build() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Many boxes - a depth-first layout with the first child right after its parent,
+        // every primitive in exactly one leaf and every child box inside its parent box
+        int count = 100;
+        BvhBuilder.Tree tree = BvhBuilder.build(boxes(count), count);
+        int[] order = tree.order().clone();
+        Arrays.sort(order);
+        for (int i = 0; i < count; ++i)
+            assertEquals(i, order[i], "Order is not a permutation of the primitives");
+        int leafPrimitives = 0;
+        for (int node = 0; node < tree.nodeCount(); ++node) {
+            int link = tree.nodes()[2 * node];
+            int amount = tree.nodes()[2 * node + 1];
+            if (amount > 0) {
+                leafPrimitives += amount;
+                continue;
+            }
+            assertTrue(link > node + 1 && link < tree.nodeCount(), "Wrong second child index");
+            for (int child : new int[] { node + 1, link })
+                for (int axis = 0; axis < 3; ++axis) {
+                    assertTrue(tree.bounds()[6 * child + axis] >= tree.bounds()[6 * node + axis],
+                            "Child box exceeds its parent");
+                    assertTrue(tree.bounds()[6 * child + 3 + axis] <= tree.bounds()[6 * node + 3 + axis],
+                            "Child box exceeds its parent");
+                }
+        }
+        assertEquals(count, leafPrimitives, "Wrong number of primitives in the leaves");
+        assertEquals(0, tree.bounds()[0], "Wrong root box");
+        assertEquals(2 * count - 1, tree.bounds()[3], "Wrong root box");
+
+        // TC02: Parallel build of a large amount of boxes builds the same tree as the sequential build
+        count = 70000;
+        tree = BvhBuilder.build(boxes(count), count);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BvhBuilder.Tree parallel = BvhBuilder.build(boxes(count), count, pool);
+        pool.shutdown();
+        assertEquals(tree.nodeCount(), parallel.nodeCount(), "Wrong number of nodes");
+        assertArrayEquals(tree.bounds(), parallel.bounds(), "Wrong node boxes");
+        assertArrayEquals(tree.nodes(), parallel.nodes(), "Wrong node links");
+        assertArrayEquals(tree.order(), parallel.order(), "Wrong primitive order");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Single box - the root is a leaf
+        tree = BvhBuilder.build(boxes(1), 1);
+        assertEquals(1, tree.nodeCount(), "Wrong number of nodes");
+        assertEquals(1, tree.nodes()[1], "Root must be a leaf of one primitive");
+    }
+
+    @Test
+    void widen() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every leaf of the binary tree is a child of exactly one wide node, every node has
+        // at most the width of children and the decoded child boxes contain the exact leaf boxes
+        int count = 1000;
+        double[] boxes = boxes(count);
+        BvhBuilder.Tree tree = BvhBuilder.build(boxes, count);
+        for (int width : new int[] { 4, 8 }) {
+            BvhBuilder.WideTree wide = BvhBuilder.widen(tree, width);
+            int stride = 1 + 2 * width;
+            int leafPrimitives = 0;
+            for (int node = 0; node < wide.nodeCount(); ++node) {
+                int children = wide.nodes()[stride * node];
+                assertTrue(children >= 1 && children <= width, "Wrong number of children");
+                for (int i = 0; i < children; ++i) {
+                    int link = wide.nodes()[stride * node + 1 + 2 * i];
+                    int amount = wide.nodes()[stride * node + 2 + 2 * i];
+                    if (amount == 0) {
+                        assertTrue(link > 0 && link < wide.nodeCount(), "Wrong child node index");
+                        continue;
+                    }
+                    leafPrimitives += amount;
+                    for (int k = link; k < link + amount; ++k) {
+                        int primitive = tree.order()[k];
+                        for (int axis = 0; axis < 3; ++axis) {
+                            double origin = wide.frames()[6 * node + axis], step = wide.frames()[6 * node + 3 + axis];
+                            int min = wide.boxes()[6 * width * node + axis * width + i] & 0xFF;
+                            int max = wide.boxes()[6 * width * node + (3 + axis) * width + i] & 0xFF;
+                            assertTrue(origin + min * step <= boxes[6 * primitive + axis],
+                                    "Quantized box does not contain the leaf");
+                            assertTrue(origin + max * step >= boxes[6 * primitive + 3 + axis],
+                                    "Quantized box does not contain the leaf");
+                        }
+                    }
+                }
+            }
+            assertEquals(count, leafPrimitives, "Wrong number of primitives in the leaves");
+            assertTrue(wide.nodeCount() < tree.nodeCount() / (width - 1) + 1, "Too many wide nodes");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Single box - the root has the leaf as its only child
+        tree = BvhBuilder.build(boxes(1), 1);
+        BvhBuilder.WideTree wide = BvhBuilder.widen(tree, 4);
+        assertEquals(1, wide.nodeCount(), "Wrong number of nodes");
+        assertEquals(1, wide.nodes()[0], "Root must have one child");
+        assertEquals(1, wide.nodes()[2], "Child must be a leaf of one primitive");
+    }
+}
@@ -1,6 +1,8 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -49,4 +51,103 @@ class GeometriesTest {
         assertNotNull(G.findIntersections(ray));
         assertEquals(4, G.findIntersections(ray).size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getBoundingBox() {
+        Sphere s1 = new Sphere(1, new Point(0, 0, 0));
+        Sphere s2 = new Sphere(1, new Point(4, 0, 0));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Union of the boxes of the geometries
+        Geometries inner = new Geometries(s1, s2);
+        assertEquals(s1.getBoundingBox().union(s2.getBoundingBox()), inner.getBoundingBox(), "Wrong bounding box");
+
+        // TC02: An unbounded geometry makes the collection unbounded
+        assertNull(new Geometries(s1, new Plane(Point.ZERO, new Vector(0, 0, 1))).getBoundingBox(),
+                "Unbounded collection has a bounding box");
+
+        // TC03: Ray missing the box of a nested collection
+        Geometries outer = new Geometries(inner);
+        assertNull(outer.findIntersections(new Ray(new Point(0, 5, -5), new Vector(0, 0, 1))),
+                "Expected no intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Geometry added to a nested collection updates the box of its parent
+        inner.add(new Sphere(1, new Point(0, 5, 0)));
+        assertEquals(2, outer.findIntersections(new Ray(new Point(0, 5, -5), new Vector(0, 0, 1))).size(),
+                "Wrong number of intersections");
+
+        // TC05: Empty collection has no box
+        assertNull(new Geometries().getBoundingBox(), "Empty collection has a bounding box");
+    }
+
+    @Test
+    void calculateClosestIntersection() {
+        Triangle T = new Triangle(new Point(0, 5, 1), new Point(5, 0, 1), new Point(0, 0, 1));
+        Sphere S = new Sphere(2, new Point(1, 0, 0));
+        Plane P = new Plane(new Point(0, 0, -7), new Vector(0, 0, 1));
+        Geometries G = new Geometries(P, S, new Geometries(T));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest of several geometries, the farther one is added first
+        Ray ray = new Ray(new Point(1, 1, -10), new Vector(0, 0, 1));
+        assertEquals(new Point(1, 1, -7), G.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC02: Closest hit is in a nested collection
+        ray = new Ray(new Point(0.5, 3, 5), new Vector(0, 0, -1));
+        assertEquals(new Point(0.5, 3, 1), G.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC03: No geometry is intersected
+        ray = new Ray(new Point(10, 10, 10), new Vector(5, 3, 1));
+        assertNull(G.calculateClosestIntersection(ray), "Expected no intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: All the intersections are beyond the maximal distance
+        ray = new Ray(new Point(1, 1, -10), new Vector(0, 0, 1));
+        assertNull(G.calculateClosestIntersection(ray, 2), "Expected no intersection");
+    }
+
+    @Test
+    void calculateClosestDistance() {
+        Triangle T = new Triangle(new Point(0, 5, 1), new Point(5, 0, 1), new Point(0, 0, 1));
+        Sphere S = new Sphere(2, new Point(1, 0, 0));
+        Geometries G = new Geometries(S, new Geometries(T));
+        Intersectable.Hit hit = new Intersectable.Hit();
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Distance and owner of the closest hit in a nested collection
+        Ray ray = new Ray(new Point(0.5, 3, 5), new Vector(0, 0, -1));
+        assertEquals(4, G.calculateClosestDistance(ray, Double.POSITIVE_INFINITY, hit), 1e-10, "Wrong distance");
+        assertSame(T, hit.getOwner(), "Wrong hit geometry");
+        assertEquals(Intersectable.Hit.WHOLE, hit.getPrimitive(), "Wrong hit primitive");
+
+        // TC02: A query without a hit within the distance does not change the record
+        ray = new Ray(new Point(1, 0, -5), new Vector(0, 0, 1));
+        assertEquals(Double.POSITIVE_INFINITY, G.calculateClosestDistance(ray, 2, hit), "Expected no hit");
+        assertSame(T, hit.getOwner(), "Record changed by a missed query");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Distance only query without a record
+        ray = new Ray(new Point(1, 0, -5), new Vector(0, 0, 1));
+        assertEquals(3, G.calculateClosestDistance(ray, Double.POSITIVE_INFINITY, null), 1e-10, "Wrong distance");
+    }
+
+    @Test
+    void calculateTransmittance() {
+        Sphere glass = (Sphere) new Sphere(1, new Point(0, 0, 5)).setMaterial(new Material().setKT(0.5));
+        Triangle wall = (Triangle) new Triangle(new Point(-2, -2, 10), new Point(2, -2, 10), new Point(0, 2, 10))
+                .setMaterial(new Material().setKT(0));
+        Geometries G = new Geometries(glass, new Geometries(wall));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray passes through a transparent sphere only (entering and leaving it)
+        assertEquals(new Double3(0.25), G.calculateTransmittance(ray, 8, 0.001), "Wrong transmittance");
+
+        // TC02: Ray is blocked by an opaque triangle
+        assertEquals(Double3.ZERO, G.calculateTransmittance(ray, 20, 0.001), "Ray is not blocked");
+
+        // TC03: Nothing between the ray head and the distance
+        assertEquals(Double3.ONE, G.calculateTransmittance(ray, 3, 0.001), "Wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Transmittance drops under the threshold
+        assertEquals(Double3.ZERO, G.calculateTransmittance(ray, 8, 0.3), "Ray is not blocked");
+    }
+}
@@ -0,0 +1,93 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceTest {
+
+    /** Shared unit sphere at the origin */
+    private final Sphere sphere = new Sphere(1, Point.ZERO);
+    /** The sphere scaled by 2 and moved to (10,0,0) */
+    private final Instance instance = new Instance(sphere,
+            Transform.scaling(2).then(Transform.translation(new Vector(10, 0, 0))));
+
+    @Test
+    void calculateIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray through the transformed sphere
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        var intersections = instance.calculateIntersections(ray);
+        assertEquals(2, intersections.size(), "Wrong number of intersections");
+        assertSame(sphere, intersections.getFirst().geometry, "Intersection is not with the shared geometry");
+
+        // TC02: Ray through the original place of the sphere misses the instance
+        ray = new Ray(new Point(0, 0, -5), new Vector(0, 0, 1));
+        assertNull(instance.calculateIntersections(ray), "Expected no intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Maximal distance in world units between the two intersections
+        ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        assertEquals(1, instance.calculateIntersections(ray, 10).size(), "Wrong number of intersections");
+    }
+
+    @Test
+    void calculateClosestIntersection() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest point, distance and normal are in the world space
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        Intersectable.Intersection closest = instance.calculateClosestIntersection(ray);
+        assertEquals(new Point(8, 0, 0), closest.point, "Wrong closest point");
+        assertEquals(8, closest.distance, 1e-10, "Wrong closest distance");
+        assertEquals(new Vector(-1, 0, 0), closest.normal, "Wrong normal");
+
+        // TC02: Instances of a shared hierarchy in a top level hierarchy
+        BVH shared = new BVH(sphere, new Sphere(1, new Point(0, 0, 3)));
+        BVH scene = new BVH();
+        for (int i = 1; i <= 5; ++i)
+            scene.add(new Instance(shared, Transform.translation(new Vector(i * 10, 0, 0))));
+        ray = new Ray(new Point(40, 0, 10), new Vector(0, 0, -1));
+        assertEquals(new Point(40, 0, 4), scene.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Nested instances combine their transformations
+        Instance nested = new Instance(instance, Transform.translation(new Vector(0, 5, 0)));
+        ray = new Ray(new Point(0, 5, 0), new Vector(1, 0, 0));
+        assertEquals(new Point(8, 5, 0), nested.calculateClosestIntersection(ray).point, "Wrong closest point");
+    }
+
+    @Test
+    void calculateClosestDistance() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: World space distance of a hit owned by the instance
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        Intersectable.Hit hit = new Intersectable.Hit();
+        assertEquals(8, instance.calculateClosestDistance(ray, Double.POSITIVE_INFINITY, hit), 1e-10,
+                "Wrong distance");
+        assertSame(instance, hit.getOwner(), "Hit is not owned by the instance");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Distance only query bounded in world units
+        assertEquals(Double.POSITIVE_INFINITY, instance.calculateClosestDistance(ray, 7, null),
+                "Expected no hit within the distance");
+    }
+
+    @Test
+    void calculateTransmittance() {
+        sphere.setMaterial(new Material().setKT(0.5));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Shadow ray through the transformed sphere
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(1, 0, 0));
+        assertEquals(new Double3(0.25), instance.calculateTransmittance(ray, 20, 0.001), "Wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Light source inside the transformed sphere
+        assertEquals(new Double3(0.5), instance.calculateTransmittance(ray, 10, 0.001), "Wrong transmittance");
+    }
+}
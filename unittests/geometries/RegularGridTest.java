@@ -0,0 +1,70 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegularGridTest {
+
+    /** Scene of a few spheres along the z axis, a triangle and an infinite plane */
+    private final Geometries geometries = new Geometries(
+            new Sphere(1, new Point(0, 0, 5)),
+            new Sphere(1, new Point(0, 0, 10)),
+            new Geometries(new Sphere(1, new Point(0, 0, 15)), new Sphere(1, new Point(5, 5, 5))),
+            new Triangle(new Point(-2, -2, 20), new Point(2, -2, 20), new Point(0, 2, 20)),
+            new Plane(new Point(0, 0, 30), new Vector(0, 0, 1)));
+
+    @Test
+    void calculateIntersections() {
+        RegularGrid grid = new RegularGrid(geometries);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray passes through all the geometries on the z axis
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        assertEquals(8, grid.findIntersections(ray).size(), "Wrong number of intersections");
+
+        // TC02: Ray misses the finite geometries but hits the plane
+        ray = new Ray(new Point(10, -10, 0), new Vector(0, 0, 1));
+        assertEquals(1, grid.findIntersections(ray).size(), "Wrong number of intersections");
+
+        // TC03: Ray misses all the geometries
+        ray = new Ray(new Point(10, -10, 0), new Vector(0, 0, -1));
+        assertNull(grid.findIntersections(ray), "Expected no intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Maximal distance stops before the second sphere
+        ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        assertEquals(2, grid.calculateIntersections(ray, 8).size(), "Wrong number of intersections");
+
+        // TC05: Empty grid
+        assertNull(new RegularGrid(new Geometries()).findIntersections(ray), "Expected no intersections");
+    }
+
+    @Test
+    void calculateClosestIntersection() {
+        RegularGrid grid = new RegularGrid(geometries);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest of many intersections
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        assertEquals(new Point(0, 0, 4), grid.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC02: Ray starts between the geometries and goes backwards
+        ray = new Ray(new Point(0, 0, 12), new Vector(0, 0, -1));
+        assertEquals(new Point(0, 0, 11), grid.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC03: Only the infinite plane is hit
+        ray = new Ray(new Point(10, -10, 0), new Vector(0, 0, 1));
+        assertEquals(new Point(10, -10, 30), grid.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC04: Nothing is hit
+        ray = new Ray(new Point(10, -10, 0), new Vector(0, 0, -1));
+        assertNull(grid.calculateClosestIntersection(ray), "Expected no intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC05: Ray parallel to a grid axis from inside a sphere in a nested collection
+        ray = new Ray(new Point(5, 5, 5), new Vector(1, 0, 0));
+        assertEquals(new Point(6, 5, 5), grid.calculateClosestIntersection(ray).point, "Wrong closest point");
+    }
+}
@@ -169,4 +169,38 @@ class SphereTest {
         assertNull(s.calculateIntersections(r, MAX), "Expected no intersections");
     }
 
-}
\ No newline at end of file
+    /**Test method for {@link geometries.Intersectable#calculateClosestIntersection(Ray, double)}. */
+    @Test
+    void testCalculateClosestIntersection() {
+        Sphere s = new Sphere(1, new Point(0, 0, 5));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the sphere - the nearer point with its distance
+        Ray r = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        var result = s.calculateClosestIntersection(r);
+        assertNotNull(result, "Can't be null");
+        assertEquals(new Point(0, 0, 4), result.point, "Wrong closest point");
+        assertEquals(4, result.distance, 1e-10, "Wrong distance");
+
+        // TC02: Ray starts inside the sphere
+        r = new Ray(new Point(0, 0, 5.5), new Vector(0, 0, 1));
+        assertEquals(new Point(0, 0, 6), s.calculateClosestIntersection(r).point, "Wrong closest point");
+
+        // TC03: Both points are beyond the maximal distance
+        r = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        assertNull(s.calculateClosestIntersection(r, 3), "Expected no intersection");
+
+        // TC04: Ray misses the sphere
+        r = new Ray(new Point(0, 3, 0), new Vector(0, 0, 1));
+        assertNull(s.calculateClosestIntersection(r), "Expected no intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray starts at the center of the sphere
+        r = new Ray(new Point(0, 0, 5), new Vector(0, 1, 0));
+        assertEquals(new Point(0, 1, 5), s.calculateClosestIntersection(r).point, "Wrong closest point");
+
+        // TC12: Maximal distance between the two points
+        r = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        assertEquals(new Point(0, 0, 4), s.calculateClosestIntersection(r, 5).point, "Wrong closest point");
+    }
+}
@@ -0,0 +1,127 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriangleMeshTest {
+
+    /** Vertices of a unit square in the plane z=0 and a unit square in the plane z=2 */
+    private final double[] vertices = {
+            0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0,
+            0, 0, 2, 1, 0, 2, 1, 1, 2, 0, 1, 2 };
+    /** Two triangles per square, facing the positive z direction */
+    private final int[] indices = { 0, 1, 2, 0, 2, 3, 4, 5, 6, 4, 6, 7 };
+    /** The mesh of the two squares */
+    private final TriangleMesh mesh = new TriangleMesh(vertices, indices);
+
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct mesh
+        assertEquals(4, mesh.getTriangleCount(), "Wrong number of triangles");
+        assertEquals(8, mesh.getVertexCount(), "Wrong number of vertices");
+
+        // TC02: Vertex index out of range
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(vertices, new int[] { 0, 1, 8 }),
+                "Index out of range is accepted");
+
+        // TC03: Incomplete triangle
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(vertices, new int[] { 0, 1 }),
+                "Incomplete triangle is accepted");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Only degenerate triangles
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(vertices, new int[] { 0, 1, 1 }),
+                "Mesh of degenerate triangles is accepted");
+
+        // TC05: Tiny triangles (edges of 1e-6, as in scanned meshes in metres) are not degenerate
+        double[] tiny = new double[vertices.length];
+        for (int i = 0; i < tiny.length; ++i) tiny[i] = vertices[i] * 1e-6;
+        TriangleMesh small = new TriangleMesh(tiny, indices);
+        assertEquals(4, small.getTriangleCount(), "Wrong number of triangles");
+        var closest = small.calculateClosestIntersection(new Ray(new Point(3e-7, 6e-7, -1), new Vector(0, 0, 1)));
+        assertNotNull(closest, "Tiny triangles must be hit");
+        assertEquals(new Vector(0, 0, 1), closest.normal, "Wrong normal of a tiny triangle");
+    }
+
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point on a triangle
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.7, 0.2, 2)), "Wrong normal");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Point off the mesh
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(5, 5, 5)),
+                "Normal of a point off the mesh is found");
+    }
+
+    @Test
+    void testCalculateIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray through both squares
+        Ray ray = new Ray(new Point(0.3, 0.6, -1), new Vector(0, 0, 1));
+        assertEquals(2, mesh.calculateIntersections(ray).size(), "Wrong number of intersections");
+
+        // TC02: Ray misses the mesh
+        ray = new Ray(new Point(2, 2, -1), new Vector(0, 0, 1));
+        assertNull(mesh.calculateIntersections(ray), "Expected no intersections");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Ray through the shared edge of two triangles hits the mesh once per square
+        ray = new Ray(new Point(0.5, 0.5, -1), new Vector(0, 0, 1));
+        assertNotNull(mesh.calculateIntersections(ray), "Ray through a shared edge misses the mesh");
+
+        // TC04: Maximal distance between the squares
+        ray = new Ray(new Point(0.3, 0.6, -1), new Vector(0, 0, 1));
+        assertEquals(1, mesh.calculateIntersections(ray, 2).size(), "Wrong number of intersections");
+    }
+
+    @Test
+    void testCalculateClosestIntersection() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest hit from below with its normal
+        Ray ray = new Ray(new Point(0.3, 0.6, -1), new Vector(0, 0, 1));
+        var closest = mesh.calculateClosestIntersection(ray);
+        assertEquals(new Point(0.3, 0.6, 0), closest.point, "Wrong closest point");
+        assertEquals(1, closest.distance, 1e-10, "Wrong closest distance");
+        assertEquals(new Vector(0, 0, 1), closest.normal, "Wrong normal");
+
+        // TC02: Closest hit from above
+        ray = new Ray(new Point(0.8, 0.1, 5), new Vector(0, 0, -1));
+        assertEquals(new Point(0.8, 0.1, 2), mesh.calculateClosestIntersection(ray).point, "Wrong closest point");
+
+        // TC03: Ray parallel to the squares
+        ray = new Ray(new Point(-1, 0.5, 1), new Vector(1, 0, 0));
+        assertNull(mesh.calculateClosestIntersection(ray), "Expected no intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Ray starts on the mesh
+        ray = new Ray(new Point(0.3, 0.6, 0), new Vector(0, 0, 1));
+        assertEquals(new Point(0.3, 0.6, 2), mesh.calculateClosestIntersection(ray).point, "Wrong closest point");
+    }
+
+    @Test
+    void testCalculateTransmittance() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Transparent mesh attenuates the ray by both squares
+        mesh.setMaterial(new Material().setKT(0.5));
+        Ray ray = new Ray(new Point(0.3, 0.6, -1), new Vector(0, 0, 1));
+        assertEquals(new Double3(0.25), mesh.calculateTransmittance(ray, 10, 0.001), "Wrong transmittance");
+
+        // TC02: Opaque mesh blocks the ray
+        mesh.setMaterial(new Material());
+        assertEquals(Double3.ZERO, mesh.calculateTransmittance(ray, 10, 0.001), "Wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Light source between the squares
+        mesh.setMaterial(new Material().setKT(0.5));
+        assertEquals(new Double3(0.5), mesh.calculateTransmittance(ray, 2, 0.001), "Wrong transmittance");
+    }
+}
@@ -0,0 +1,97 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WideBVHTest {
+
+    @Test
+    void testConstructor() {
+        // =============== Boundary Values Tests ==================
+        // TC01: Width other than 4 or 8
+        assertThrows(IllegalArgumentException.class, () -> new WideBVH(2), "Binary width must be rejected");
+        assertThrows(IllegalArgumentException.class, () -> new WideBVH(16), "Width 16 must be rejected");
+    }
+
+    @Test
+    void calculateClosestIntersection() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The same closest hits and transmittance as the binary hierarchy over many spheres
+        Random random = new Random(3);
+        Intersectable[] spheres = new Intersectable[2000];
+        for (int i = 0; i < spheres.length; ++i)
+            spheres[i] = new Sphere(random.nextDouble() + 0.1,
+                    new Point(random.nextDouble() * 100, random.nextDouble() * 100, random.nextDouble() * 100));
+        BVH binary = new BVH(spheres);
+        WideBVH bvh4 = new WideBVH(4, spheres);
+        WideBVH bvh8 = new WideBVH(8, spheres);
+        for (int r = 0; r < 500; ++r) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 100, random.nextDouble() * 100, -10),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 1));
+            double expected = binary.calculateClosestDistance(ray, Double.POSITIVE_INFINITY, null);
+            assertEquals(expected, bvh4.calculateClosestDistance(ray, Double.POSITIVE_INFINITY, null),
+                    "Wrong closest distance in BVH4");
+            assertEquals(expected, bvh8.calculateClosestDistance(ray, Double.POSITIVE_INFINITY, null),
+                    "Wrong closest distance in BVH8");
+            assertEquals(binary.calculateTransmittance(ray, 50, 0.001), bvh8.calculateTransmittance(ray, 50, 0.001),
+                    "Wrong transmittance in BVH8");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Ray starts inside a sphere in the middle of a row
+        WideBVH row = new WideBVH(8);
+        for (int i = 0; i < 10; ++i)
+            row.add(new Sphere(1, new Point(i * 3, 0, 10)));
+        Ray ray = new Ray(new Point(15, 0, 10), new Vector(1, 0, 0));
+        assertEquals(new Point(16, 0, 10), row.calculateClosestIntersection(ray).point, "Wrong closest point");
+    }
+
+    @Test
+    void calculateClosestIntersections() {
+        Random random = new Random(5);
+        Intersectable[] spheres = new Intersectable[500];
+        for (int i = 0; i < spheres.length; ++i)
+            spheres[i] = new Sphere(random.nextDouble() + 0.2,
+                    new Point(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, random.nextDouble() * 40 + 10));
+        BVH binary = new BVH(spheres);
+        Ray[] rays = new Ray[64];
+        Intersection[] intersections = new Intersection[64];
+        for (int width : new int[] { 4, 8 }) {
+            WideBVH bvh = new WideBVH(width, spheres);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Packets of coherent rays from a point, as the primary rays of tiles of pixels
+            for (int tile = 0; tile < 16; ++tile) {
+                for (int r = 0; r < 64; ++r)
+                    rays[r] = new Ray(Point.ZERO, new Vector((tile % 4 * 8 + r % 8 - 15.5) * 0.03,
+                            (tile / 4 * 8 + r / 8 - 15.5) * 0.03, 1));
+                bvh.calculateClosestIntersections(rays, 64, intersections);
+                for (int r = 0; r < 64; ++r) {
+                    Intersection expected = binary.calculateClosestIntersection(rays[r]);
+                    if (expected == null) assertNull(intersections[r], "Expected no intersection");
+                    else assertEquals(expected.distance, intersections[r].distance, "Wrong closest distance in a packet");
+                }
+            }
+
+            // =============== Boundary Values Tests ==================
+            // TC11: Packet of rays of different octants, one of them parallel to the axes planes
+            for (int r = 0; r < 16; ++r)
+                rays[r] = new Ray(new Point(0, 0, 30), new Vector(random.nextDouble() - 0.5,
+                        random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            rays[15] = new Ray(new Point(0, 0, 30), new Vector(0, 0, 1));
+            bvh.calculateClosestIntersections(rays, 16, intersections);
+            for (int r = 0; r < 16; ++r) {
+                Intersection expected = binary.calculateClosestIntersection(rays[r]);
+                if (expected == null) assertNull(intersections[r], "Expected no intersection");
+                else assertEquals(expected.distance, intersections[r].distance, "Wrong closest distance in a packet");
+            }
+        }
+    }
+}
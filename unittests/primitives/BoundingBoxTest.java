@@ -0,0 +1,56 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundingBoxTest {
+
+    /** Unit cube box for the tests */
+    private final BoundingBox box = new BoundingBox(0, 0, 0, 1, 1, 1);
+
+    @Test
+    void intersects() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray goes through the box
+        assertTrue(box.intersects(new Ray(new Point(-1, 0.5, 0.5), new Vector(1, 0.1, 0)), 10),
+                "Ray through the box is not detected");
+
+        // TC02: Ray misses the box
+        assertFalse(box.intersects(new Ray(new Point(-1, 0.5, 0.5), new Vector(1, 2, 0)), 10),
+                "Ray missing the box is detected");
+
+        // TC03: Ray starts inside the box
+        assertTrue(box.intersects(new Ray(new Point(0.5, 0.5, 0.5), new Vector(1, 1, 1)), 10),
+                "Ray from inside the box is not detected");
+
+        // TC04: Box is behind the ray
+        assertFalse(box.intersects(new Ray(new Point(2, 0.5, 0.5), new Vector(1, 0, 0)), 10),
+                "Box behind the ray is detected");
+
+        // TC05: Box is beyond the maximal distance
+        assertFalse(box.intersects(new Ray(new Point(-5, 0.5, 0.5), new Vector(1, 0, 0)), 3),
+                "Box beyond the distance is detected");
+
+        // =============== Boundary Values Tests ==================
+        // TC06: Ray parallel to an axis inside the slab
+        assertTrue(box.intersects(new Ray(new Point(0.5, 0.5, -1), new Vector(0, 0, 1)), 10),
+                "Axis parallel ray through the box is not detected");
+
+        // TC07: Ray parallel to an axis outside the slab
+        assertFalse(box.intersects(new Ray(new Point(2, 0.5, -1), new Vector(0, 0, 1)), 10),
+                "Axis parallel ray outside the box is detected");
+
+        // TC08: Ray runs along a face of the box
+        assertTrue(box.intersects(new Ray(new Point(0, 0.5, -1), new Vector(0, 0, 1)), 10),
+                "Ray along the face is not detected");
+    }
+
+    @Test
+    void union() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Union of two disjoint boxes
+        assertEquals(new BoundingBox(-1, 0, 0, 1, 2, 1), box.union(new BoundingBox(-1, 1, 0, 0, 2, 1)),
+                "Wrong union box");
+    }
+}
@@ -68,4 +68,27 @@ class RayTest {
 
         assertEquals(expected, ray.findClosestPoint(points), "Incorrect closest ray point");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for the cached components of {@link primitives.Ray}.
+     */
+    @Test
+    void testComponents() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Head, normalized direction, inverse direction and sign bits
+        Ray ray = new Ray(new Point(1, 2, 3), new Vector(-3, 0, 4));
+        assertEquals(2, ray.oy, "Wrong head coordinate");
+        assertEquals(-0.6, ray.dx, 1e-10, "Direction is not normalized");
+        assertEquals(0.8, ray.dz, 1e-10, "Direction is not normalized");
+        assertEquals(1 / -0.6, ray.ix, 1e-10, "Wrong inverse direction");
+        assertEquals(1, ray.signX, "Wrong sign bit of a negative coordinate");
+        assertEquals(0, ray.signZ, "Wrong sign bit of a positive coordinate");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Zero coordinate gives infinite inverse and a sign bit by the sign of the zero
+        assertEquals(Double.POSITIVE_INFINITY, ray.iy, "Wrong inverse of zero coordinate");
+        assertEquals(0, ray.signY, "Wrong sign bit of zero coordinate");
+        ray = new Ray(Point.ZERO, new Vector(1, -0.0, 0));
+        assertEquals(1, ray.signY, "Wrong sign bit of negative zero coordinate");
+    }
+}
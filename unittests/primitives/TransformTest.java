@@ -0,0 +1,50 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformTest {
+
+    /** Rotation by 90 degrees around z axis, then scaling by 2 and translation by (1,2,3) */
+    private final Transform transform = Transform.rotation(Vector.AXIS_Z, 90)
+            .then(Transform.scaling(2))
+            .then(Transform.translation(new Vector(1, 2, 3)));
+
+    @Test
+    void apply() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point is rotated, scaled and translated
+        assertEquals(new Point(1, 4, 3), transform.apply(new Point(1, 0, 0)), "Wrong transformed point");
+
+        // TC02: Vector is rotated and scaled but not translated
+        assertEquals(new Vector(0, 2, 0), transform.apply(new Vector(1, 0, 0)), "Wrong transformed vector");
+
+        // TC03: Inverse transformation restores the point and the vector
+        Point p = new Point(0.3, -2, 7);
+        assertEquals(p, transform.applyInverse(transform.apply(p)), "Inverse does not restore the point");
+        Vector v = new Vector(1, 2, 3);
+        assertEquals(v, transform.inverse().apply(transform.apply(v)), "Inverse does not restore the vector");
+
+        // TC04: Normal of a plane stays orthogonal to the plane after non-uniform scaling
+        Transform stretch = Transform.scaling(1, 4, 1);
+        Vector tangent = stretch.apply(new Vector(1, -1, 0));
+        assertEquals(0, stretch.applyNormal(new Vector(1, 1, 0)).dotProduct(tangent), 1e-10,
+                "Transformed normal is not orthogonal to the surface");
+
+        // TC05: Box bounds all the transformed corners
+        BoundingBox box = transform.apply(new BoundingBox(0, 0, 0, 1, 1, 1));
+        assertEquals(-1, box.minX(), 1e-10, "Wrong transformed box");
+        assertEquals(1, box.maxX(), 1e-10, "Wrong transformed box");
+        assertEquals(2, box.minY(), 1e-10, "Wrong transformed box");
+        assertEquals(5, box.maxZ(), 1e-10, "Wrong transformed box");
+
+        // =============== Boundary Values Tests ==================
+        // TC06: Identity transformation
+        assertEquals(p, Transform.IDENTITY.apply(p), "Identity changes the point");
+
+        // TC07: Singular transformation
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1),
+                "Singular transformation is accepted");
+    }
+}
@@ -0,0 +1,39 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameBufferTest {
+
+    @Test
+    void testAccumulation() {
+        FrameBuffer buffer = new HeapFrameBuffer(4, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Weighted samples give their weighted mean
+        buffer.add(3, 2, 100, 0, 300, 1);
+        buffer.add(3, 2, 200, 30, 600, 3);
+        assertEquals(2, buffer.samples(3, 2), "Wrong amount of samples");
+        assertEquals(4, buffer.weight(3, 2), 1e-6, "Wrong total weight");
+        assertEquals(175, buffer.get(3, 2, 0), 1e-4, "Wrong red channel");
+        assertEquals(22.5, buffer.get(3, 2, 1), 1e-4, "Wrong green channel");
+        assertEquals(525, buffer.get(3, 2, 2), 1e-4, "Wrong blue channel (HDR)");
+
+        // TC02: Setting a pixel replaces its samples
+        buffer.set(3, 2, 10, 20, 30);
+        assertEquals(1, buffer.samples(3, 2), "Wrong amount of samples");
+        assertEquals(20, buffer.get(3, 2, 1), 1e-6, "Wrong green channel");
+
+        // TC03: Quantization truncates and clamps the channels
+        buffer.set(1, 0, 12.9, 300, -5);
+        assertEquals(12 << 16 | 255 << 8, buffer.toRGB(1, 0), "Wrong quantized color");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A pixel without samples is black, also after clearing
+        assertEquals(0, buffer.toRGB(0, 1), "Empty pixel must be black");
+        buffer.clear();
+        assertEquals(0, buffer.samples(3, 2), "Samples remain after clearing");
+        assertEquals(0, buffer.toRGB(3, 2), "Pixel must be black after clearing");
+    }
+}
@@ -0,0 +1,70 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFrameBufferTest {
+
+    @Test
+    void testResume() throws IOException {
+        File file = File.createTempFile("frame", ".hdr");
+        file.deleteOnExit();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Weighted samples give their weighted mean
+        MappedFrameBuffer buffer = new MappedFrameBuffer(file.toPath(), 70, 50, 16, 7);
+        buffer.add(69, 49, 100, 0, 300, 1);
+        buffer.add(69, 49, 200, 30, 600, 3);
+        assertEquals(2, buffer.samples(69, 49), "Wrong amount of samples");
+        assertEquals(4, buffer.weight(69, 49), 1e-6, "Wrong total weight");
+        assertEquals(175, buffer.get(69, 49, 0), 1e-4, "Wrong red channel");
+        assertEquals(525, buffer.get(69, 49, 2), 1e-4, "Wrong blue channel (HDR)");
+
+        // TC02: The pixels and the rendered tiles are kept by reopening the file
+        buffer.set(3, 2, 10, 20, 30);
+        buffer.tileDone(4);
+        buffer.flush();
+        buffer = new MappedFrameBuffer(file.toPath(), 70, 50, 16, 7);
+        assertTrue(buffer.isTileDone(4), "Rendered tile is lost");
+        assertFalse(buffer.isTileDone(5), "Tile must not be rendered");
+        assertEquals(10 << 16 | 20 << 8 | 30, buffer.toRGB(3, 2), "Pixel is lost");
+        assertEquals(2, buffer.samples(69, 49), "Samples are lost");
+
+        // TC03: A file of another layout is started anew
+        buffer = new MappedFrameBuffer(file.toPath(), 70, 50, 32, 7);
+        assertFalse(buffer.isTileDone(4), "Tile of another layout must not be rendered");
+        assertEquals(0, buffer.toRGB(3, 2), "Pixel of another layout must be black");
+
+        // TC04: A file of another rendering (fingerprint) is started anew
+        buffer.set(3, 2, 10, 20, 30);
+        buffer.tileDone(4);
+        buffer.close();
+        buffer = new MappedFrameBuffer(file.toPath(), 70, 50, 32, 8);
+        assertFalse(buffer.isTileDone(4), "Tile of another rendering must not be rendered");
+        assertEquals(0, buffer.toRGB(3, 2), "Pixel of another rendering must be black");
+
+        // TC05: Clearing the rendered tiles of a complete image keeps its pixels
+        buffer.set(3, 2, 10, 20, 30);
+        buffer.tileDone(4);
+        buffer.clearTiles();
+        buffer.close();
+        buffer = new MappedFrameBuffer(file.toPath(), 70, 50, 32, 8);
+        assertFalse(buffer.isTileDone(4), "Tile of a complete image must be rendered again");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Clearing removes the samples and the rendered tiles
+        buffer.set(0, 0, 1, 2, 3);
+        buffer.tileDone(0);
+        buffer.clear();
+        assertEquals(0, buffer.samples(0, 0), "Samples remain after clearing");
+        assertFalse(buffer.isTileDone(0), "Rendered tile remains after clearing");
+
+        // TC12: Closing twice is harmless
+        buffer.close();
+        buffer.close();
+    }
+}
@@ -0,0 +1,67 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PngWriterTest {
+
+    /**
+     * Fills a buffer with a pattern that has smooth and noisy areas and out of range
+     * values
+     * @param buffer the buffer
+     */
+    private static void fill(FrameBuffer buffer) {
+        for (int y = 0; y < buffer.nY(); ++y)
+            for (int x = 0; x < buffer.nX(); ++x) {
+                long hash = Sampler.mix((long) x << 32 | y);
+                if (x < buffer.nX() / 2) buffer.set(x, y, x % 256, y % 256, (x + y) % 300);
+                else buffer.set(x, y, hash & 0xFF, (hash >> 8) & 0xFF, (hash >> 16) & 0x1FF);
+            }
+    }
+
+    /**
+     * Reads a written image and compares it to the quantized buffer
+     * @param file   the image file
+     * @param buffer the buffer
+     * @throws IOException if the image cannot be read
+     */
+    private static void assertImage(File file, FrameBuffer buffer) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        assertEquals(buffer.nX(), image.getWidth(), "Wrong image width");
+        assertEquals(buffer.nY(), image.getHeight(), "Wrong image height");
+        for (int y = 0; y < buffer.nY(); ++y)
+            for (int x = 0; x < buffer.nX(); ++x)
+                assertEquals(buffer.toRGB(x, y), image.getRGB(x, y) & 0xFFFFFF,
+                             "Wrong pixel " + x + "," + y);
+    }
+
+    @Test
+    void testStreaming() throws IOException {
+        File file = File.createTempFile("png", ".png");
+        file.deleteOnExit();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rows reported in uneven steps (several compressed blocks)
+        FrameBuffer buffer = new HeapFrameBuffer(700, 450);
+        fill(buffer);
+        try (PngWriter png = new PngWriter(file, buffer)) {
+            for (int rows = 7; rows < buffer.nY(); rows += 61) png.rowsReady(rows);
+        }
+        assertImage(file, buffer);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single pixel image without reported rows
+        buffer = new HeapFrameBuffer(1, 1);
+        buffer.set(0, 0, 10, 20, 30);
+        try (PngWriter png = new PngWriter(file, buffer)) {
+            assertNotNull(png, "Writer not opened");
+        }
+        assertImage(file, buffer);
+    }
+}
@@ -0,0 +1,33 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleCacheTest {
+
+    @Test
+    void testCache() {
+        SampleCache cache = new SampleCache();
+        Color color = new Color(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A stored key is found, a missing key is not
+        cache.put(5L << 32 | 7, color);
+        assertSame(color, cache.get(5L << 32 | 7), "Stored color not found");
+        assertNull(cache.get(7L << 32 | 5), "Missing key found");
+
+        // TC02: Many keys (the table grows) are all found
+        for (long key = 0; key < 10000; ++key)
+            if (key != 7) cache.put(key, new Color(key, 0, 0));
+        for (long key = 0; key < 10000; ++key)
+            if (key != 7) assertEquals(key, cache.get(key).rgb.d1(), "Wrong color after growing");
+        assertSame(color, cache.get(5L << 32 | 7), "Stored color lost after growing");
+
+        // TC03: Clearing removes all the keys
+        cache.clear();
+        assertNull(cache.get(5L << 32 | 7), "Key found after clearing");
+        assertNull(cache.get(100), "Key found after clearing");
+    }
+}
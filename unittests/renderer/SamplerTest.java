@@ -0,0 +1,108 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the samplers
+ */
+class SamplerTest {
+
+    /**
+     * Generates the 2D samples of a series in a pixel
+     *
+     * @param sampler   the sampler
+     * @param count     the amount of the samples
+     * @param dimension the first dimension
+     * @return the samples, x and y for every sample
+     */
+    private static double[][] samples(Sampler sampler, int count, int dimension) {
+        sampler.startPixel(7, 3);
+        double[][] samples = new double[count][];
+        for (int i = 0; i < count; ++i) {
+            sampler.startSample(i, count, dimension);
+            samples[i] = new double[] { sampler.get1D(), sampler.get1D() };
+            for (double value : samples[i])
+                assertTrue(value >= 0 && value < 1, "Sample value out of range");
+        }
+        return samples;
+    }
+
+    /**
+     * Checks that every cell of a grid over the unit square holds the same amount of
+     * samples
+     *
+     * @param samples the samples
+     * @param columns the amount of grid columns
+     * @param rows    the amount of grid rows
+     */
+    private static void assertStratified(double[][] samples, int columns, int rows) {
+        int[] cells = new int[columns * rows];
+        for (double[] sample : samples)
+            ++cells[(int) (sample[1] * rows) * columns + (int) (sample[0] * columns)];
+        for (int cell : cells)
+            assertEquals(samples.length / cells.length, cell, "Samples are not stratified");
+    }
+
+    @Test
+    void testRandomSampler() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The same pixel and sample give the same values, another pixel gives other values
+        double[][] samples = samples(new RandomSampler(1), 16, 0);
+        assertArrayEquals(samples[5], samples(new RandomSampler(1), 16, 0)[5], "Sampler is not deterministic");
+        Sampler sampler = new RandomSampler(1);
+        sampler.startPixel(8, 3);
+        sampler.startSample(5, 16, 0);
+        assertNotEquals(samples[5][0], sampler.get1D(), "Pixels must have different samples");
+
+        // TC02: Another seed gives other values
+        assertNotEquals(samples[5][0], samples(new RandomSampler(2), 16, 0)[5][0],
+                "Seeds must give different samples");
+    }
+
+    @Test
+    void testStratifiedSampler() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A square amount of samples - one sample in every stratum of every dimension pair
+        assertStratified(samples(new StratifiedSampler(1), 16, 0), 4, 4);
+        assertStratified(samples(new StratifiedSampler(1), 16, 2), 4, 4);
+
+        // TC02: A non-square amount of samples - the grid of a factorisation of the amount is covered
+        assertStratified(samples(new StratifiedSampler(1), 8, 0), 4, 2);
+        assertStratified(samples(new StratifiedSampler(1), 12, 2), 4, 3);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single sample
+        assertStratified(samples(new StratifiedSampler(1), 1, 0), 1, 1);
+
+        // TC12: A prime amount of samples - one stratum per sample across the whole square
+        assertStratified(samples(new StratifiedSampler(1), 3, 0), 3, 1);
+        assertStratified(samples(new StratifiedSampler(1), 5, 0), 5, 1);
+    }
+
+    @Test
+    void testHaltonSampler() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The first dimension is stratified in base 2, the second in base 3
+        double[][] samples = samples(new HaltonSampler(1), 16, 0);
+        assertStratified(samples, 16, 1);
+        samples = samples(new HaltonSampler(1), 9, 0);
+        assertStratified(samples, 1, 9);
+    }
+
+    @Test
+    void testSobolSampler() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every dimension pair is stratified in all the elementary intervals
+        for (int dimension : new int[] { 0, 2, 6 }) {
+            double[][] samples = samples(new SobolSampler(1), 16, dimension);
+            for (int columns = 1; columns <= 16; columns *= 2)
+                assertStratified(samples, columns, 16 / columns);
+        }
+
+        // TC02: Different dimension pairs are scrambled differently
+        assertNotEquals(samples(new SobolSampler(1), 16, 0)[0][0], samples(new SobolSampler(1), 16, 2)[0][0],
+                "Dimension pairs must have different samples");
+    }
+}
@@ -0,0 +1,129 @@
+package scene;
+
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshLoaderTest {
+
+    /**
+     * Writes a temporary file
+     *
+     * @param suffix  the file name suffix
+     * @param content the file content
+     * @return the file path
+     * @throws IOException if the file cannot be written
+     */
+    private static Path file(String suffix, byte[] content) throws IOException {
+        Path file = Files.createTempFile("mesh", suffix);
+        file.toFile().deleteOnExit();
+        return Files.write(file, content);
+    }
+
+    /**
+     * Checks the unit square (z=0) loaded mesh: two triangles hit from above
+     *
+     * @param mesh the loaded mesh
+     */
+    private static void assertSquare(TriangleMesh mesh) {
+        assertEquals(4, mesh.getVertexCount(), "Wrong number of vertices");
+        assertEquals(2, mesh.getTriangleCount(), "Wrong number of triangles");
+        Ray ray = new Ray(new Point(0.25, 0.75, 1), new Vector(0, 0, -1));
+        assertEquals(new Point(0.25, 0.75, 0), mesh.calculateClosestIntersection(ray).point, "Wrong intersection");
+    }
+
+    @Test
+    void testLoadObj() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A quad face with texture and normal indices, comments and other lines
+        String obj = """
+                # square
+                o square
+                v 0 0 0
+                v 1.0 0 0
+                v 1e0 1 0
+                v 0 10E-1 -0.0
+                vn 0 0 1
+                vt 0 0
+                f 1/1/1 2/1/1 3/1/1 4/1/1
+                """;
+        assertSquare(MeshLoader.load(file(".obj", obj.getBytes(StandardCharsets.US_ASCII))));
+
+        // TC02: Triangles with negative (relative) indices and CRLF line ends, added to a scene
+        obj = "v 0 0 0\r\nv 1 0 0\r\nv 1 1 0\r\nf -3 -2 -1\r\nv 0 1 0\r\nf 1//1 3//1 -1//1\r\n";
+        Scene scene = new Scene("Test");
+        TriangleMesh mesh = MeshLoader.load(scene, file(".obj", obj.getBytes(StandardCharsets.US_ASCII)));
+        assertSquare(mesh);
+        assertNotNull(scene.geometries.findIntersections(new Ray(new Point(0.5, 0.25, 1), new Vector(0, 0, -1))),
+                "Mesh was not added to the scene");
+
+        // TC03: A face referring to a missing vertex
+        byte[] bad = "v 0 0 0\nv 1 0 0\nv 1 1 0\nf 1 2 4\n".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(file(".obj", bad)),
+                "Missing vertex must be rejected");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: An unsupported file format
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(file(".stl", new byte[0])),
+                "Unsupported format must be rejected");
+
+        // TC12: Blank lines (with and without blanks) between the vertex and the face lines
+        obj = "v 0 0 0\n\nv 1 0 0\n  \nv 1 1 0\n\n\nv 0 1 0\n\r\nf 1 2 3 4\n\n";
+        assertSquare(MeshLoader.load(file(".obj", obj.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    void testLoadPly() throws IOException {
+        String header = """
+                ply
+                format %s 1.0
+                comment square
+                element vertex 4
+                property float x
+                property float y
+                property float z
+                property uchar red
+                element face 1
+                property list uchar int vertex_indices
+                end_header
+                """;
+        float[][] vertices = { { 0, 0, 0 }, { 1, 0, 0 }, { 1, 1, 0 }, { 0, 1, 0 } };
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Binary little endian file with an ignored property and a quad face
+        // TC02: Binary big endian file (same content)
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN }) {
+            String format = order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian" : "binary_big_endian";
+            byte[] head = header.formatted(format).getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer buffer = ByteBuffer.allocate(head.length + 4 * 13 + 1 + 16).order(order);
+            buffer.put(head);
+            for (float[] vertex : vertices) {
+                for (float value : vertex) buffer.putFloat(value);
+                buffer.put((byte) 255);
+            }
+            buffer.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3);
+            assertSquare(MeshLoader.load(file(".ply", buffer.array())));
+        }
+
+        // TC03: ASCII file
+        String ascii = header.formatted("ascii") + "0 0 0 1\n1 0 0 2\n1 1 0 3\n0 1 0 4\n4 0 1 2 3\n";
+        assertSquare(MeshLoader.load(file(".ply", ascii.getBytes(StandardCharsets.US_ASCII))));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A truncated binary file
+        byte[] truncated = (header.formatted("binary_little_endian") + "abc").getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(file(".ply", truncated)),
+                "Truncated file must be rejected");
+    }
+}